@@ -21,6 +21,7 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import org.apache.ibatis.executor.keygen.SequenceKeyGenerator;
 import org.apache.ibatis.mapping.ResultSetType;
 import org.apache.ibatis.mapping.StatementType;
 
@@ -62,5 +63,18 @@ public @interface Options {
 
   String keyColumn() default "";
 
+  /**
+   * The id of a select statement returning sequence values. When set, keys are assigned before the insert from
+   * blocks reserved with this statement.
+   */
+  String keySequence() default "";
+
+  /**
+   * The number of keys reserved by a sequence value, used with {@link #keySequence()}.
+   */
+  int keyBlockSize() default SequenceKeyGenerator.DEFAULT_BLOCK_SIZE;
+
+  SequenceKeyGenerator.Allocation keyAllocation() default SequenceKeyGenerator.Allocation.HILO;
+
   String resultSets() default "";
 }
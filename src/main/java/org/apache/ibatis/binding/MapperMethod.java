@@ -34,6 +34,9 @@ import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * @author Clinton Begin
@@ -52,65 +55,77 @@ public class MapperMethod {
    */
   private final MethodSignature method;
 
+  /**
+   * 根据sql语句的类型和方法的返回值类型,在构造时确定的执行方式
+   */
+  private final MethodExecution execution;
+  /**
+   * 返回值是否为基本类型(不包括void),这种方法不能返回null
+   */
+  private final boolean returnsPrimitive;
+
   public MapperMethod(Class<?> mapperInterface, Method method, Configuration config) {
     this.command = new SqlCommand(config, mapperInterface, method);
     this.method = new MethodSignature(config, mapperInterface, method);
+    this.execution = resolveExecution();
+    this.returnsPrimitive = this.method.getReturnType().isPrimitive() && !this.method.returnsVoid();
   }
 
   public Object execute(SqlSession sqlSession, Object[] args) {
-    Object result;
-    // 根据sql语句的类型调用SqlSession对应的方法
+    Object result = execution.execute(sqlSession, args);
+    // 当返回值类型是基本类型,但返回值为null时,报错
+    if (result == null && returnsPrimitive) {
+      throw new BindingException("Mapper method '" + command.getName()
+          + " attempted to return null from a method with a primitive return type (" + method.getReturnType() + ").");
+    }
+    return result;
+  }
+
+  /**
+   * 根据sql语句的类型调用SqlSession对应的方法,每次执行时不必再判断语句类型和返回值类型
+   */
+  private MethodExecution resolveExecution() {
     switch (command.getType()) {
-      case INSERT: {
-        // 使用ParamNameResolver处理args[]数组,将用户传入的实参与指定的参数名称关联起来
-    	Object param = method.convertArgsToSqlCommandParam(args);
-    	// 执行sqlSession的方法,并根据method的返回值类型进行转换
-        result = rowCountResult(sqlSession.insert(command.getName(), param));
-        break;
-      }
-      case UPDATE: {
-        Object param = method.convertArgsToSqlCommandParam(args);
-        result = rowCountResult(sqlSession.update(command.getName(), param));
-        break;
-      }
-      case DELETE: {
-        Object param = method.convertArgsToSqlCommandParam(args);
-        result = rowCountResult(sqlSession.delete(command.getName(), param));
-        break;
-      }
+      case INSERT:
+        // 使用ParamNameResolver处理args[]数组,将用户传入的实参与指定的参数名称关联起来,
+        // 执行sqlSession的方法,并根据method的返回值类型进行转换
+        return (sqlSession, args) -> rowCountResult(sqlSession.insert(command.getName(), method.convertArgsToSqlCommandParam(args)));
+      case UPDATE:
+        return (sqlSession, args) -> rowCountResult(sqlSession.update(command.getName(), method.convertArgsToSqlCommandParam(args)));
+      case DELETE:
+        return (sqlSession, args) -> rowCountResult(sqlSession.delete(command.getName(), method.convertArgsToSqlCommandParam(args)));
       case SELECT:
         // 根据method返回值种类的不同调用不同的方法
         if (method.returnsVoid() && method.hasResultHandler()) {
-          executeWithResultHandler(sqlSession, args);
-          result = null;
+          return (sqlSession, args) -> {
+            executeWithResultHandler(sqlSession, args);
+            return null;
+          };
         } else if (method.returnsMany()) {
-          result = executeForMany(sqlSession, args);
+          return this::executeForMany;
         } else if (method.returnsMap()) {
-          result = executeForMap(sqlSession, args);
+          return this::executeForMap;
         } else if (method.returnsCursor()) {
-          result = executeForCursor(sqlSession, args);
-        } else {
-          Object param = method.convertArgsToSqlCommandParam(args);
-          result = sqlSession.selectOne(command.getName(), param);
+          return this::executeForCursor;
+        } else if (method.returnsOptional()) {
           // 使用Optional时的处理
-          if (method.returnsOptional() &&
-              (result == null || !method.getReturnType().equals(result.getClass()))) {
-            result = Optional.ofNullable(result);
-          }
+          return (sqlSession, args) -> {
+            Object result = sqlSession.selectOne(command.getName(), method.convertArgsToSqlCommandParam(args));
+            if (result == null || !method.getReturnType().equals(result.getClass())) {
+              result = Optional.ofNullable(result);
+            }
+            return result;
+          };
+        } else {
+          return (sqlSession, args) -> sqlSession.selectOne(command.getName(), method.convertArgsToSqlCommandParam(args));
         }
-        break;
       case FLUSH:
-        result = sqlSession.flushStatements();
-        break;
+        return (sqlSession, args) -> sqlSession.flushStatements();
       default:
-        throw new BindingException("Unknown execution method for: " + command.getName());
+        return (sqlSession, args) -> {
+          throw new BindingException("Unknown execution method for: " + command.getName());
+        };
     }
-    // 当返回值类型是基本类型,但返回值为null时,报错
-    if (result == null && method.getReturnType().isPrimitive() && !method.returnsVoid()) {
-      throw new BindingException("Mapper method '" + command.getName()
-          + " attempted to return null from a method with a primitive return type (" + method.getReturnType() + ").");
-    }
-    return result;
   }
 
   private Object rowCountResult(int rowCount) {
@@ -236,18 +251,252 @@ public class MapperMethod {
     return result;
   }
 
+  /**
+   * 构造时根据SQL语句类型和方法返回值选定的执行逻辑,调用时不再逐次判断
+   */
+  @FunctionalInterface
+  private interface MethodExecution {
+    Object execute(SqlSession sqlSession, Object[] args);
+  }
+
+  /**
+   * 多个参数时传给SqlSession的参数对象。
+   * <p>
+   * 由ParamNameResolver创建时,直接引用方法的实参数组和预先算好的参数名称,读取参数时按名称在数组中查找,不需要构建哈希表。
+   * 第一次修改(或者获取keySet()等视图)时才把所有参数复制到HashMap中,之后与普通的HashMap行为一致,
+   * 所以插件或者selectKey向其中写入数据仍然有效。
+   */
   public static class ParamMap<V> extends HashMap<String, V> {
 
     private static final long serialVersionUID = -2212268410512043556L;
 
+    /**
+     * 参数名称,包括param1,param2这样的通用名称,为null表示参数已复制到HashMap中
+     */
+    private transient String[] names;
+    /**
+     * 每个参数名称对应的实参在args中的位置
+     */
+    private transient int[] argIndexes;
+    private transient Object[] args;
+
+    public ParamMap() {
+      super();
+    }
+
+    /**
+     * @param names 参数名称,不能重复,多个方法调用之间共享
+     * @param argIndexes 每个名称对应的实参位置,多个方法调用之间共享
+     * @param args 方法的实参
+     */
+    public ParamMap(String[] names, int[] argIndexes, Object[] args) {
+      super();
+      this.names = names;
+      this.argIndexes = argIndexes;
+      this.args = args;
+    }
+
     @Override
     public V get(Object key) {
+      if (names != null) {
+        final int index = indexOf(key);
+        if (index < 0) {
+          throw new BindingException("Parameter '" + key + "' not found. Available parameters are " + Arrays.asList(names));
+        }
+        return argAt(index);
+      }
       if (!super.containsKey(key)) {
         throw new BindingException("Parameter '" + key + "' not found. Available parameters are " + keySet());
       }
       return super.get(key);
     }
 
+    @Override
+    public boolean containsKey(Object key) {
+      return names != null ? indexOf(key) >= 0 : super.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+      if (names != null) {
+        for (int i = 0; i < names.length; i++) {
+          if (Objects.equals(value, argAt(i))) {
+            return true;
+          }
+        }
+        return false;
+      }
+      return super.containsValue(value);
+    }
+
+    @Override
+    public int size() {
+      return names != null ? names.length : super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return names != null ? names.length == 0 : super.isEmpty();
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+      if (names != null) {
+        final int index = indexOf(key);
+        return index < 0 ? defaultValue : argAt(index);
+      }
+      return super.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super V> action) {
+      if (names != null) {
+        for (int i = 0; i < names.length; i++) {
+          action.accept(names[i], argAt(i));
+        }
+      } else {
+        super.forEach(action);
+      }
+    }
+
+    // 下面的方法会修改集合或者返回与集合关联的视图,需要先把参数复制到HashMap中
+
+    @Override
+    public Set<String> keySet() {
+      materialize();
+      return super.keySet();
+    }
+
+    @Override
+    public Collection<V> values() {
+      materialize();
+      return super.values();
+    }
+
+    @Override
+    public Set<Map.Entry<String, V>> entrySet() {
+      materialize();
+      return super.entrySet();
+    }
+
+    @Override
+    public V put(String key, V value) {
+      materialize();
+      return super.put(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends V> m) {
+      materialize();
+      super.putAll(m);
+    }
+
+    @Override
+    public V remove(Object key) {
+      materialize();
+      return super.remove(key);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+      materialize();
+      return super.remove(key, value);
+    }
+
+    @Override
+    public void clear() {
+      materialize();
+      super.clear();
+    }
+
+    @Override
+    public V putIfAbsent(String key, V value) {
+      materialize();
+      return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public boolean replace(String key, V oldValue, V newValue) {
+      materialize();
+      return super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public V replace(String key, V value) {
+      materialize();
+      return super.replace(key, value);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super V, ? extends V> function) {
+      materialize();
+      super.replaceAll(function);
+    }
+
+    @Override
+    public V computeIfAbsent(String key, Function<? super String, ? extends V> mappingFunction) {
+      materialize();
+      return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public V computeIfPresent(String key, BiFunction<? super String, ? super V, ? extends V> remappingFunction) {
+      materialize();
+      return super.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public V compute(String key, BiFunction<? super String, ? super V, ? extends V> remappingFunction) {
+      materialize();
+      return super.compute(key, remappingFunction);
+    }
+
+    @Override
+    public V merge(String key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+      materialize();
+      return super.merge(key, value, remappingFunction);
+    }
+
+    @Override
+    public Object clone() {
+      materialize();
+      return super.clone();
+    }
+
+    private Object writeReplace() {
+      // 序列化的是HashMap中的数据
+      materialize();
+      return this;
+    }
+
+    private int indexOf(Object key) {
+      for (int i = 0; i < names.length; i++) {
+        if (names[i].equals(key)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V argAt(int index) {
+      return (V) args[argIndexes[index]];
+    }
+
+    @SuppressWarnings("unchecked")
+    private void materialize() {
+      if (names != null) {
+        final String[] names = this.names;
+        // 先置空,使下面的put走HashMap的逻辑
+        this.names = null;
+        for (int i = 0; i < names.length; i++) {
+          super.put(names[i], (V) args[argIndexes[i]]);
+        }
+        this.argIndexes = null;
+        this.args = null;
+      }
+    }
+
   }
 
   public static class SqlCommand {
@@ -16,12 +16,15 @@
 package org.apache.ibatis.binding;
 
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.ibatis.reflection.ExceptionUtil;
 import org.apache.ibatis.session.SqlSession;
@@ -33,6 +36,20 @@ import org.apache.ibatis.session.SqlSession;
 public class MapperProxy<T> implements InvocationHandler, Serializable {
 
   private static final long serialVersionUID = -6424540398559729838L;
+  /**
+   * jdk9新增的MethodHandles.privateLookupIn()方法，jdk8中为null
+   */
+  private static final Method PRIVATE_LOOKUP_IN;
+
+  static {
+    Method privateLookupIn;
+    try {
+      privateLookupIn = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+    } catch (NoSuchMethodException e) {
+      privateLookupIn = null;
+    }
+    PRIVATE_LOOKUP_IN = privateLookupIn;
+  }
   /**
    * 记录了关联的sqlsession对象
    */
@@ -46,14 +63,30 @@ public class MapperProxy<T> implements InvocationHandler, Serializable {
    */
   private final Map<Method, MapperMethod> methodCache;
 
+  /**
+   * 用于缓存default方法对应的MethodHandle，key为Mapper接口的default方法
+   */
+  private final Map<Method, MethodHandle> defaultMethodCache;
+
   public MapperProxy(SqlSession sqlSession, Class<T> mapperInterface, Map<Method, MapperMethod> methodCache) {
+    this(sqlSession, mapperInterface, methodCache, new ConcurrentHashMap<>());
+  }
+
+  public MapperProxy(SqlSession sqlSession, Class<T> mapperInterface, Map<Method, MapperMethod> methodCache,
+      Map<Method, MethodHandle> defaultMethodCache) {
     this.sqlSession = sqlSession;
     this.mapperInterface = mapperInterface;
     this.methodCache = methodCache;
+    this.defaultMethodCache = defaultMethodCache;
   }
 
   @Override
   public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    // 绝大多数调用的是已经缓存了MapperMethod的方法，先直接查找，不做其他判断
+    MapperMethod mapperMethod = methodCache.get(method);
+    if (mapperMethod != null) {
+      return mapperMethod.execute(sqlSession, args);
+    }
     try {
       // 如果是Object类的方法，则直接执行
       if (Object.class.equals(method.getDeclaringClass())) {
@@ -66,7 +99,7 @@ public class MapperProxy<T> implements InvocationHandler, Serializable {
       throw ExceptionUtil.unwrapThrowable(t);
     }
     // 当方法是操作数据库的方法时，则缓存并获取该方法对应的MapperMethod对象，然后执行
-    final MapperMethod mapperMethod = cachedMapperMethod(method);
+    mapperMethod = cachedMapperMethod(method);
     return mapperMethod.execute(sqlSession, args);
   }
 
@@ -79,10 +112,9 @@ public class MapperProxy<T> implements InvocationHandler, Serializable {
   }
 
   /**
-   * 创建Lookup对象，并通过lookup获得没有被重写的methodHandle，并执行该方法，目的是为了直接执行接口中的default方法
+   * 通过没有被重写的MethodHandle执行接口中的default方法，MethodHandle对每个方法只解析一次
    * 这里的MethodHandle是jdk7引入的，比Method更轻量的一个代表 方法 的对象，对象的获取也更加灵活
    * 一般用于基于JVM的动态类型语言使用，jdk8的新特性也用到了这个
-   * Lookup则是MethodHandle的工厂类，根据参数的不同生成不同的MethodHandle对象
    * @param proxy
    * @param method
    * @param args
@@ -91,17 +123,36 @@ public class MapperProxy<T> implements InvocationHandler, Serializable {
    */
   private Object invokeDefaultMethod(Object proxy, Method method, Object[] args)
       throws Throwable {
+    MethodHandle methodHandle = defaultMethodCache.get(method);
+    if (methodHandle == null) {
+      methodHandle = getDefaultMethodHandle(method);
+      defaultMethodCache.putIfAbsent(method, methodHandle);
+    }
+    return methodHandle.bindTo(proxy).invokeWithArguments(args);
+  }
+
+  /**
+   * 创建Lookup对象，并通过lookup获得没有被重写的methodHandle
+   * Lookup则是MethodHandle的工厂类，根据参数的不同生成不同的MethodHandle对象
+   * jdk9及以后的版本使用MethodHandles.privateLookupIn()获得Lookup对象，jdk8只能通过反射调用Lookup的私有构造方法
+   */
+  private static MethodHandle getDefaultMethodHandle(Method method) throws Throwable {
+    final Class<?> declaringClass = method.getDeclaringClass();
+    if (PRIVATE_LOOKUP_IN != null) {
+      final MethodHandles.Lookup lookup = (MethodHandles.Lookup) PRIVATE_LOOKUP_IN.invoke(null, declaringClass, MethodHandles.lookup());
+      return lookup.findSpecial(declaringClass, method.getName(),
+          MethodType.methodType(method.getReturnType(), method.getParameterTypes()), declaringClass);
+    }
     final Constructor<MethodHandles.Lookup> constructor = MethodHandles.Lookup.class
         .getDeclaredConstructor(Class.class, int.class);
     if (!constructor.isAccessible()) {
       constructor.setAccessible(true);
     }
-    final Class<?> declaringClass = method.getDeclaringClass();
     return constructor
         .newInstance(declaringClass,
             MethodHandles.Lookup.PRIVATE | MethodHandles.Lookup.PROTECTED
                 | MethodHandles.Lookup.PACKAGE | MethodHandles.Lookup.PUBLIC)
-        .unreflectSpecial(method, declaringClass).bindTo(proxy).invokeWithArguments(args);
+        .unreflectSpecial(method, declaringClass);
   }
 
   /**
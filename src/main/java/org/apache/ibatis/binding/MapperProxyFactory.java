@@ -15,7 +15,11 @@
  */
 package org.apache.ibatis.binding;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Proxy;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -35,6 +39,14 @@ public class MapperProxyFactory<T> {
    * mapperInterface的method缓存，key为method对象，value为对应的MapperMethod对象
    */
   private final Map<Method, MapperMethod> methodCache = new ConcurrentHashMap<>();
+  /**
+   * mapperInterface中default方法对应的MethodHandle缓存
+   */
+  private final Map<Method, MethodHandle> defaultMethodCache = new ConcurrentHashMap<>();
+  /**
+   * 代理类的构造方法，代理类只需要生成一次，getMapper()时直接通过构造方法创建代理对象
+   */
+  private volatile Constructor<?> proxyConstructor;
 
   public MapperProxyFactory(Class<T> mapperInterface) {
     this.mapperInterface = mapperInterface;
@@ -51,13 +63,32 @@ public class MapperProxyFactory<T> {
   @SuppressWarnings("unchecked")
   protected T newInstance(MapperProxy<T> mapperProxy) {
     // 创建实现了mapperInterface接口的代理对象
-    return (T) Proxy.newProxyInstance(mapperInterface.getClassLoader(), new Class[] { mapperInterface }, mapperProxy);
+    try {
+      return (T) getProxyConstructor().newInstance(mapperProxy);
+    } catch (Exception e) {
+      throw new BindingException("Error creating proxy for mapper " + mapperInterface.getName() + ".  Cause: " + e, e);
+    }
   }
 
   public T newInstance(SqlSession sqlSession) {
     // 创建mapperInterface对应的MapperProxy对象
-    final MapperProxy<T> mapperProxy = new MapperProxy<>(sqlSession, mapperInterface, methodCache);
+    final MapperProxy<T> mapperProxy = new MapperProxy<>(sqlSession, mapperInterface, methodCache, defaultMethodCache);
     return newInstance(mapperProxy);
   }
 
+  @SuppressWarnings("deprecation")
+  private Constructor<?> getProxyConstructor() throws NoSuchMethodException {
+    Constructor<?> constructor = proxyConstructor;
+    if (constructor == null) {
+      // 与Proxy.newProxyInstance()生成的是同一个代理类
+      constructor = Proxy.getProxyClass(mapperInterface.getClassLoader(), mapperInterface).getConstructor(InvocationHandler.class);
+      if (!Modifier.isPublic(mapperInterface.getModifiers())) {
+        // 非public接口的代理类也不是public的
+        constructor.setAccessible(true);
+      }
+      proxyConstructor = constructor;
+    }
+    return constructor;
+  }
+
 }
@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.binding;
 
+import org.apache.ibatis.builder.StartupReport;
 import org.apache.ibatis.builder.annotation.MapperAnnotationBuilder;
 import org.apache.ibatis.io.ResolverUtil;
 import org.apache.ibatis.session.Configuration;
@@ -89,7 +90,9 @@ public class MapperRegistry {
         knownMappers.put(type, new MapperProxyFactory<>(type));
         // 在运行解析器之前添加类型非常重要，否则mapper解析器可能会自动尝试绑定。如果类型已添加到knownMappers中，则不会尝试。
         MapperAnnotationBuilder parser = new MapperAnnotationBuilder(config, type);
-        parser.parse();
+        try (StartupReport.Timer ignored = StartupReport.start(config, StartupReport.MAPPER_ANNOTATIONS, type.getName())) {
+          parser.parse();
+        }
         loadCompleted = true;
       } finally {
         if (!loadCompleted) {
@@ -111,7 +114,9 @@ public class MapperRegistry {
    */
   public void addMappers(String packageName, Class<?> superType) {
     ResolverUtil<Class<?>> resolverUtil = new ResolverUtil<>();
-    resolverUtil.find(new ResolverUtil.IsA(superType), packageName);
+    try (StartupReport.Timer ignored = StartupReport.start(config, StartupReport.SCAN, packageName)) {
+      resolverUtil.find(new ResolverUtil.IsA(superType), packageName);
+    }
     Set<Class<? extends Class<?>>> mapperSet = resolverUtil.getClasses();
     for (Class<?> mapperClass : mapperSet) {
       addMapper(mapperClass);
@@ -30,6 +30,7 @@ import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
+import org.apache.ibatis.executor.keygen.SequenceKeyGenerator;
 import org.apache.ibatis.mapping.CacheBuilder;
 import org.apache.ibatis.mapping.Discriminator;
 import org.apache.ibatis.mapping.MappedStatement;
@@ -490,6 +491,30 @@ public class MapperBuilderAssistant extends BaseBuilder {
         nestedResultMap, notNullColumn, columnPrefix, typeHandler, flags, null, null, configuration.isLazyLoadingEnabled());
   }
 
+  /**
+   * Returns the key generator reserving key blocks with the sequence statement, shared by all statements using
+   * the same sequence statement so that they take keys from the same blocks.
+   */
+  public KeyGenerator useSequenceKeyGenerator(String sequenceStatementId, Integer blockSize,
+      SequenceKeyGenerator.Allocation allocation) {
+    String statementId = applyCurrentNamespace(sequenceStatementId, true);
+    int size = valueOrDefault(blockSize, SequenceKeyGenerator.DEFAULT_BLOCK_SIZE);
+    SequenceKeyGenerator.Allocation mode = valueOrDefault(allocation, SequenceKeyGenerator.Allocation.HILO);
+    String id = statementId + SequenceKeyGenerator.SEQUENCE_SUFFIX;
+    if (configuration.hasKeyGenerator(id)) {
+      SequenceKeyGenerator keyGenerator = (SequenceKeyGenerator) configuration.getKeyGenerator(id);
+      if (keyGenerator.getBlockSize() != size || keyGenerator.getAllocation() != mode) {
+        throw new BuilderException("Sequence '" + statementId + "' is already used with block size "
+            + keyGenerator.getBlockSize() + " and allocation " + keyGenerator.getAllocation()
+            + ", it cannot be used with block size " + size + " and allocation " + mode + ".");
+      }
+      return keyGenerator;
+    }
+    SequenceKeyGenerator keyGenerator = new SequenceKeyGenerator(configuration, statementId, size, mode);
+    configuration.addKeyGenerator(id, keyGenerator);
+    return keyGenerator;
+  }
+
   public LanguageDriver getLanguageDriver(Class<? extends LanguageDriver> langClass) {
     if (langClass != null) {
       configuration.getLanguageRegistry().register(langClass);
@@ -0,0 +1,197 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Timings of the phases of building a {@link Configuration}, recorded when the {@code startupProfiling} setting
+ * is enabled.
+ * <p>
+ * Each entry belongs to one of the categories below and names the element, resource or package it measured.
+ * Entries of different categories may overlap, e.g. {@link #MAPPER_BUILD} includes the {@link #PENDING}
+ * resolution of the same mapper, and the {@link #CONFIGURATION} entry of {@code mappers} includes every mapper.
+ * The allocated bytes are those of the measuring thread, or {@code -1} when the JVM cannot count them. The
+ * {@code document}, {@code properties}, {@code settings} and {@code total} entries start before the setting is
+ * read, so only their time is known and their allocated bytes are always {@code -1}.
+ */
+public class StartupReport {
+
+  /** Elements of the configuration file, and the whole build as {@code total}. */
+  public static final String CONFIGURATION = "configuration";
+  /** Reading, validating and parsing a mapper XML document. */
+  public static final String MAPPER_PARSE = "mapper.parse";
+  /** Building the statements, result maps and caches of a parsed mapper XML document. */
+  public static final String MAPPER_BUILD = "mapper.build";
+  /** Building a mapper interface, including its annotations and the XML resource next to it. */
+  public static final String MAPPER_ANNOTATIONS = "mapper.annotations";
+  /** Scanning a package for mappers, type aliases or type handlers. */
+  public static final String SCAN = "scan";
+  /** Retrying the result maps, cache references and statements that were incomplete. */
+  public static final String PENDING = "pending";
+
+  private static final Timer NO_TIMER = new Timer(null, null, null);
+  private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+  private static final boolean ALLOCATIONS_SUPPORTED = isAllocationCountingSupported();
+
+  private final List<Entry> entries = Collections.synchronizedList(new ArrayList<>());
+
+  /**
+   * Starts timing a phase, it is recorded when the returned timer is closed.
+   */
+  public Timer start(String category, String name) {
+    return new Timer(this, category, name);
+  }
+
+  /**
+   * Starts timing a phase in the report of the configuration, the timer does nothing when profiling is disabled.
+   */
+  public static Timer start(Configuration configuration, String category, String name) {
+    final StartupReport report = configuration.getStartupReport();
+    return report == null ? NO_TIMER : report.start(category, name);
+  }
+
+  public void record(String category, String name, long nanos, long allocatedBytes) {
+    entries.add(new Entry(category, name, nanos, allocatedBytes));
+  }
+
+  public List<Entry> getEntries() {
+    synchronized (entries) {
+      return new ArrayList<>(entries);
+    }
+  }
+
+  public List<Entry> getEntries(String category) {
+    return getEntries().stream().filter(entry -> entry.getCategory().equals(category)).collect(Collectors.toList());
+  }
+
+  public long getTotalNanos(String category) {
+    return getEntries(category).stream().mapToLong(Entry::getNanos).sum();
+  }
+
+  /**
+   * Returns the allocated bytes of the current thread so far, or {@code -1} when the JVM cannot count them.
+   */
+  public static long currentThreadAllocatedBytes() {
+    if (!ALLOCATIONS_SUPPORTED) {
+      return -1;
+    }
+    return ((com.sun.management.ThreadMXBean) THREAD_BEAN).getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  private static boolean isAllocationCountingSupported() {
+    try {
+      return THREAD_BEAN instanceof com.sun.management.ThreadMXBean
+          && ((com.sun.management.ThreadMXBean) THREAD_BEAN).isThreadAllocatedMemorySupported()
+          && ((com.sun.management.ThreadMXBean) THREAD_BEAN).isThreadAllocatedMemoryEnabled();
+    } catch (LinkageError e) {
+      return false;
+    }
+  }
+
+  /**
+   * Lists the entries slowest first, one per line.
+   */
+  @Override
+  public String toString() {
+    final List<Entry> sorted = getEntries();
+    sorted.sort((a, b) -> Long.compare(b.getNanos(), a.getNanos()));
+    final StringBuilder report = new StringBuilder("Startup report");
+    for (Entry entry : sorted) {
+      report.append(System.lineSeparator()).append(entry);
+    }
+    return report.toString();
+  }
+
+  public static final class Entry {
+
+    private final String category;
+    private final String name;
+    private final long nanos;
+    private final long allocatedBytes;
+
+    Entry(String category, String name, long nanos, long allocatedBytes) {
+      this.category = category;
+      this.name = name;
+      this.nanos = nanos;
+      this.allocatedBytes = allocatedBytes;
+    }
+
+    public String getCategory() {
+      return category;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getNanos() {
+      return nanos;
+    }
+
+    public long getMillis() {
+      return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    public long getAllocatedBytes() {
+      return allocatedBytes;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.ENGLISH, "%10.3f ms %12s  %-18s %s", nanos / 1_000_000d,
+          allocatedBytes < 0 ? "-" : allocatedBytes / 1024 + " KB", category, name);
+    }
+  }
+
+  /**
+   * Measures one phase in the thread that started it.
+   */
+  public static final class Timer implements AutoCloseable {
+
+    private final StartupReport report;
+    private final String category;
+    private final String name;
+    private final long startNanos;
+    private final long startBytes;
+
+    private Timer(StartupReport report, String category, String name) {
+      this.report = report;
+      this.category = category;
+      this.name = name;
+      this.startNanos = report == null ? 0 : System.nanoTime();
+      this.startBytes = report == null ? 0 : currentThreadAllocatedBytes();
+    }
+
+    @Override
+    public void close() {
+      if (report != null) {
+        final long bytes = startBytes < 0 ? -1 : currentThreadAllocatedBytes() - startBytes;
+        report.record(category, name, System.nanoTime() - startNanos, bytes);
+      }
+    }
+  }
+
+}
@@ -65,6 +65,7 @@ import org.apache.ibatis.builder.BuilderException;
 import org.apache.ibatis.builder.CacheRefResolver;
 import org.apache.ibatis.builder.IncompleteElementException;
 import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.apache.ibatis.builder.StartupReport;
 import org.apache.ibatis.builder.xml.XMLMapperBuilder;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
@@ -136,14 +137,30 @@ public class MapperAnnotationBuilder {
         try {
           // issue #237
           if (!method.isBridge()) {
-            parseStatement(method);
+            if (isLazyStatement(method)) {
+              configuration.addLazyStatement(type.getName() + "." + method.getName(), null, () -> parseStatement(method));
+            } else {
+              parseStatement(method);
+            }
           }
         } catch (IncompleteElementException e) {
           configuration.addIncompleteMethod(new MethodResolver(this, method));
         }
       }
     }
-    parsePendingMethods();
+    try (StartupReport.Timer ignored = StartupReport.start(configuration, StartupReport.PENDING, type.getName())) {
+      parsePendingMethods();
+    }
+  }
+
+  /**
+   * Statements declaring result maps are still parsed eagerly, other statements may refer to their result maps.
+   */
+  private boolean isLazyStatement(Method method) {
+    return configuration.isLazyStatementCompilation()
+        && (getSqlAnnotationType(method) != null || getSqlProviderAnnotationType(method) != null)
+        && method.getAnnotation(Results.class) == null && method.getAnnotation(ConstructorArgs.class) == null
+        && method.getAnnotation(TypeDiscriminator.class) == null;
   }
 
   private void parsePendingMethods() {
@@ -323,6 +340,12 @@ public class MapperAnnotationBuilder {
           keyProperty = selectKey.keyProperty();
         } else if (options == null) {
           keyGenerator = configuration.isUseGeneratedKeys() ? Jdbc3KeyGenerator.INSTANCE : NoKeyGenerator.INSTANCE;
+        } else if (!options.keySequence().isEmpty()) {
+          if (options.keyProperty().isEmpty()) {
+            throw new BuilderException("Method '" + mappedStatementId + "' specifies keySequence but no keyProperty.");
+          }
+          keyGenerator = assistant.useSequenceKeyGenerator(options.keySequence(), options.keyBlockSize(), options.keyAllocation());
+          keyProperty = options.keyProperty();
         } else {
           keyGenerator = options.useGeneratedKeys() ? Jdbc3KeyGenerator.INSTANCE : NoKeyGenerator.INSTANCE;
           keyProperty = options.keyProperty();
@@ -15,13 +15,20 @@
  */
 package org.apache.ibatis.builder.xml;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import javax.sql.DataSource;
 
 import org.apache.ibatis.builder.BaseBuilder;
 import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.builder.StartupReport;
 import org.apache.ibatis.datasource.DataSourceFactory;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.loader.ProxyFactory;
@@ -30,6 +37,7 @@ import org.apache.ibatis.io.VFS;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.mapping.DatabaseIdProvider;
 import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.metrics.MetricsCollector;
 import org.apache.ibatis.parsing.XNode;
 import org.apache.ibatis.parsing.XPathParser;
 import org.apache.ibatis.plugin.Interceptor;
@@ -120,27 +128,50 @@ public class XMLConfigBuilder extends BaseBuilder {
   private void parseConfiguration(XNode root) {
     try {
       // 分别解析configuration下的所有节点
+      // 读取settings之前还不知道是否开启startupProfiling,只记下时间戳,开启后再补记这两个阶段
+      final long propertiesNanos = System.nanoTime();
       propertiesElement(root.evalNode("properties"));
+      final long settingsNanos = System.nanoTime();
       Properties settings = settingsAsProperties(root.evalNode("settings"));
       loadCustomVfs(settings);
       loadCustomLogImpl(settings);
-      typeAliasesElement(root.evalNode("typeAliases"));
-      pluginElement(root.evalNode("plugins"));
-      objectFactoryElement(root.evalNode("objectFactory"));
-      objectWrapperFactoryElement(root.evalNode("objectWrapperFactory"));
-      reflectorFactoryElement(root.evalNode("reflectorFactory"));
+      if (booleanValueOf(settings.getProperty("startupProfiling"), false)) {
+        configuration.setStartupProfiling(true);
+        StartupReport report = configuration.getStartupReport();
+        report.record(StartupReport.CONFIGURATION, "properties", settingsNanos - propertiesNanos, -1);
+        report.record(StartupReport.CONFIGURATION, "settings", System.nanoTime() - settingsNanos, -1);
+      }
+      step("typeAliases", () -> typeAliasesElement(root.evalNode("typeAliases")));
+      step("plugins", () -> pluginElement(root.evalNode("plugins")));
+      step("objectFactory", () -> objectFactoryElement(root.evalNode("objectFactory")));
+      step("objectWrapperFactory", () -> objectWrapperFactoryElement(root.evalNode("objectWrapperFactory")));
+      step("reflectorFactory", () -> reflectorFactoryElement(root.evalNode("reflectorFactory")));
       // 讲settings值设置到configuration中
       settingsElement(settings);
       // 再解析environment元素
-      environmentsElement(root.evalNode("environments"));
-      databaseIdProviderElement(root.evalNode("databaseIdProvider"));
-      typeHandlerElement(root.evalNode("typeHandlers"));
-      mapperElement(root.evalNode("mappers"));
+      step("environments", () -> environmentsElement(root.evalNode("environments")));
+      step("databaseIdProvider", () -> databaseIdProviderElement(root.evalNode("databaseIdProvider")));
+      step("typeHandlers", () -> typeHandlerElement(root.evalNode("typeHandlers")));
+      step("mappers", () -> mapperElement(root.evalNode("mappers")));
+      step("warmUpStatements", configuration::compileWarmUpStatements);
     } catch (Exception e) {
       throw new BuilderException("Error parsing SQL Mapper Configuration. Cause: " + e, e);
     }
   }
 
+  /**
+   * 解析一个节点,开启startupProfiling时记录耗时
+   */
+  private void step(String name, Step step) throws Exception {
+    try (StartupReport.Timer ignored = StartupReport.start(configuration, StartupReport.CONFIGURATION, name)) {
+      step.run();
+    }
+  }
+
+  private interface Step {
+    void run() throws Exception;
+  }
+
   private Properties settingsAsProperties(XNode context) {
     if (context == null) {
       return new Properties();
@@ -183,7 +214,9 @@ public class XMLConfigBuilder extends BaseBuilder {
         if ("package".equals(child.getName())) {
           // 根据包名批量注册别名
           String typeAliasPackage = child.getStringAttribute("name");
-          configuration.getTypeAliasRegistry().registerAliases(typeAliasPackage);
+          try (StartupReport.Timer ignored = StartupReport.start(configuration, StartupReport.SCAN, typeAliasPackage)) {
+            configuration.getTypeAliasRegistry().registerAliases(typeAliasPackage);
+          }
         } else {
           // 一个一个注册别名
           String alias = child.getStringAttribute("alias");
@@ -298,7 +331,32 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setUseActualParamName(booleanValueOf(props.getProperty("useActualParamName"), true));
     configuration.setReturnInstanceForEmptyRow(booleanValueOf(props.getProperty("returnInstanceForEmptyRow"), false));
     configuration.setLogPrefix(props.getProperty("logPrefix"));
+    configuration.setMapperSnapshotDirectory(props.getProperty("mapperSnapshotDirectory"));
+    configuration.setParallelMapperParsing(booleanValueOf(props.getProperty("parallelMapperParsing"), false));
+    configuration.setStreamingMapperParsing(booleanValueOf(props.getProperty("streamingMapperParsing"), false));
+    configuration.setStartupProfiling(booleanValueOf(props.getProperty("startupProfiling"), false));
+    configuration.setLazyStatementCompilation(booleanValueOf(props.getProperty("lazyStatementCompilation"), false));
+    configuration.setWarmUpStatements(stringSetValueOf(props.getProperty("warmUpStatements"), ""));
     configuration.setConfigurationFactory(resolveClass(props.getProperty("configurationFactory")));
+    configuration.setMetricsCollector(newMetricsCollector(props.getProperty("metricsCollector")));
+    configuration.setSlowStatementThreshold(longValueOf(props.getProperty("slowStatementThreshold"), null));
+    configuration.setStatementTraceSampleRate(doubleValueOf(props.getProperty("statementTraceSampleRate"), null));
+    configuration.setStatementPhaseTiming(booleanValueOf(props.getProperty("statementPhaseTiming"), false));
+  }
+
+  /**
+   * 根据别名或类名创建指标收集器,未配置时返回null
+   */
+  private MetricsCollector newMetricsCollector(String type) {
+    Class<? extends MetricsCollector> collectorClass = resolveClass(type);
+    if (collectorClass == null) {
+      return null;
+    }
+    try {
+      return collectorClass.getDeclaredConstructor().newInstance();
+    } catch (Exception e) {
+      throw new BuilderException("Error creating metrics collector " + type + ". Cause: " + e, e);
+    }
   }
 
   private void environmentsElement(XNode context) throws Exception {
@@ -375,7 +433,9 @@ public class XMLConfigBuilder extends BaseBuilder {
       for (XNode child : parent.getChildren()) {
         if ("package".equals(child.getName())) {
           String typeHandlerPackage = child.getStringAttribute("name");
-          typeHandlerRegistry.register(typeHandlerPackage);
+          try (StartupReport.Timer ignored = StartupReport.start(configuration, StartupReport.SCAN, typeHandlerPackage)) {
+            typeHandlerRegistry.register(typeHandlerPackage);
+          }
         } else {
           String javaTypeName = child.getStringAttribute("javaType");
           String jdbcTypeName = child.getStringAttribute("jdbcType");
@@ -399,7 +459,12 @@ public class XMLConfigBuilder extends BaseBuilder {
 
   private void mapperElement(XNode parent) throws Exception {
     if (parent != null) {
-      for (XNode child : parent.getChildren()) {
+      // 开启了parallelMapperParsing时,先并行解析所有映射文件,之后仍按声明顺序逐个加载到Configuration中
+      final List<XNode> children = parent.getChildren();
+      final List<CompletableFuture<XPathParser>> parsedMappers = configuration.isParallelMapperParsing()
+          ? parseMappersInParallel(children) : Collections.nCopies(children.size(), null);
+      for (int i = 0; i < children.size(); i++) {
+        final XNode child = children.get(i);
         if ("package".equals(child.getName())) {
           // 根据包名加载mapper
           String mapperPackage = child.getStringAttribute("name");
@@ -411,14 +476,12 @@ public class XMLConfigBuilder extends BaseBuilder {
           String mapperClass = child.getStringAttribute("class");
           if (resource != null && url == null && mapperClass == null) {
             ErrorContext.instance().resource(resource);
-            InputStream inputStream = Resources.getResourceAsStream(resource);
-            XMLMapperBuilder mapperParser = new XMLMapperBuilder(inputStream, configuration, resource, configuration.getSqlFragments());
-            mapperParser.parse();
+            XPathParser document = parsedMappers.get(i) != null ? join(parsedMappers.get(i)) : parseMapperDocument(resource, true);
+            buildMapper(document, resource);
           } else if (resource == null && url != null && mapperClass == null) {
             ErrorContext.instance().resource(url);
-            InputStream inputStream = Resources.getUrlAsStream(url);
-            XMLMapperBuilder mapperParser = new XMLMapperBuilder(inputStream, configuration, url, configuration.getSqlFragments());
-            mapperParser.parse();
+            XPathParser document = parsedMappers.get(i) != null ? join(parsedMappers.get(i)) : parseMapperDocument(url, false);
+            buildMapper(document, url);
           } else if (resource == null && url == null && mapperClass != null) {
             Class<?> mapperInterface = Resources.classForName(mapperClass);
             configuration.addMapper(mapperInterface);
@@ -430,6 +493,65 @@ public class XMLConfigBuilder extends BaseBuilder {
     }
   }
 
+  /**
+   * 在ForkJoinPool中并行读取并解析resource和url指定的映射文件,得到的只是各自的DOM,不会修改Configuration
+   * 返回的集合与children一一对应,其他节点对应的元素为null
+   */
+  private List<CompletableFuture<XPathParser>> parseMappersInParallel(List<XNode> children) {
+    final List<CompletableFuture<XPathParser>> parsedMappers = new ArrayList<>(children.size());
+    for (XNode child : children) {
+      final String resource = child.getStringAttribute("resource");
+      final String url = child.getStringAttribute("url");
+      final String mapperClass = child.getStringAttribute("class");
+      if ("package".equals(child.getName())) {
+        parsedMappers.add(null);
+      } else if (resource != null && url == null && mapperClass == null) {
+        parsedMappers.add(CompletableFuture.supplyAsync(() -> parseMapper(resource, true)));
+      } else if (resource == null && url != null && mapperClass == null) {
+        parsedMappers.add(CompletableFuture.supplyAsync(() -> parseMapper(url, false)));
+      } else {
+        parsedMappers.add(null);
+      }
+    }
+    return parsedMappers;
+  }
+
+  private XPathParser parseMapper(String location, boolean resource) {
+    try {
+      return parseMapperDocument(location, resource);
+    } catch (IOException e) {
+      // join()时抛出原始的IOException
+      throw new CompletionException(e);
+    }
+  }
+
+  private XPathParser parseMapperDocument(String location, boolean resource) throws IOException {
+    try (StartupReport.Timer ignored = StartupReport.start(configuration, StartupReport.MAPPER_PARSE, location);
+        InputStream inputStream = resource ? Resources.getResourceAsStream(location) : Resources.getUrlAsStream(location)) {
+      return XMLMapperBuilder.newParser(inputStream, configuration);
+    }
+  }
+
+  private void buildMapper(XPathParser document, String location) {
+    try (StartupReport.Timer ignored = StartupReport.start(configuration, StartupReport.MAPPER_BUILD, location)) {
+      new XMLMapperBuilder(document, configuration, location, configuration.getSqlFragments()).parse();
+    }
+  }
+
+  /**
+   * 等待映射文件解析完成,解析失败时抛出与顺序解析相同的异常
+   */
+  private static XPathParser join(CompletableFuture<XPathParser> parsedMapper) throws Exception {
+    try {
+      return parsedMapper.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      }
+      throw e;
+    }
+  }
+
   private boolean isSpecifiedEnvironment(String id) {
     if (environment == null) {
       throw new BuilderException("No environment specified.");
@@ -17,6 +17,7 @@ package org.apache.ibatis.builder.xml;
 
 import java.io.InputStream;
 import java.io.Reader;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -24,6 +25,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
 
 import org.apache.ibatis.builder.BaseBuilder;
@@ -32,6 +34,7 @@ import org.apache.ibatis.builder.CacheRefResolver;
 import org.apache.ibatis.builder.IncompleteElementException;
 import org.apache.ibatis.builder.MapperBuilderAssistant;
 import org.apache.ibatis.builder.ResultMapResolver;
+import org.apache.ibatis.builder.StartupReport;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.io.Resources;
@@ -42,6 +45,8 @@ import org.apache.ibatis.mapping.ResultFlag;
 import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.parsing.XNode;
+import org.apache.ibatis.parsing.DocumentSnapshotStore;
+import org.apache.ibatis.parsing.StreamingDocumentBuilder;
 import org.apache.ibatis.parsing.XPathParser;
 import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.session.Configuration;
@@ -77,11 +82,25 @@ public class XMLMapperBuilder extends BaseBuilder {
   }
 
   public XMLMapperBuilder(InputStream inputStream, Configuration configuration, String resource, Map<String, XNode> sqlFragments) {
-    this(new XPathParser(inputStream, true, configuration.getVariables(), new XMLMapperEntityResolver()),
-        configuration, resource, sqlFragments);
+    this(newParser(inputStream, configuration), configuration, resource, sqlFragments);
+  }
+
+  static XPathParser newParser(InputStream inputStream, Configuration configuration) {
+    final String snapshotDirectory = configuration.getMapperSnapshotDirectory();
+    if (snapshotDirectory == null) {
+      if (configuration.isStreamingMapperParsing()) {
+        return new XPathParser(StreamingDocumentBuilder.parse(inputStream), false, configuration.getVariables(), new XMLMapperEntityResolver());
+      }
+      return new XPathParser(inputStream, true, configuration.getVariables(), new XMLMapperEntityResolver());
+    }
+    return new DocumentSnapshotStore(Paths.get(snapshotDirectory))
+        .newParser(inputStream, true, configuration.getVariables(), new XMLMapperEntityResolver());
   }
 
-  private XMLMapperBuilder(XPathParser parser, Configuration configuration, String resource, Map<String, XNode> sqlFragments) {
+  /**
+   * Builds the statements of a mapper document that was already parsed, e.g. concurrently with other mappers.
+   */
+  public XMLMapperBuilder(XPathParser parser, Configuration configuration, String resource, Map<String, XNode> sqlFragments) {
     super(configuration);
     this.builderAssistant = new MapperBuilderAssistant(configuration, resource);
     this.parser = parser;
@@ -99,12 +118,14 @@ public class XMLMapperBuilder extends BaseBuilder {
       // 注册mapper接口
       bindMapperForNamespace();
     }
-    // 处理configurationElement()方法中解析失败的<resultMap>节点
-    parsePendingResultMaps();
-    // 处理configurationElement()方法中解析失败的<cache-ref>节点
-    parsePendingCacheRefs();
-    // 处理configurationElement()方法中解析失败的sql语句节点
-    parsePendingStatements();
+    try (StartupReport.Timer ignored = StartupReport.start(configuration, StartupReport.PENDING, resource)) {
+      // 处理configurationElement()方法中解析失败的<resultMap>节点
+      parsePendingResultMaps();
+      // 处理configurationElement()方法中解析失败的<cache-ref>节点
+      parsePendingCacheRefs();
+      // 处理configurationElement()方法中解析失败的sql语句节点
+      parsePendingStatements();
+    }
   }
 
   public XNode getSqlFragment(String refid) {
@@ -147,6 +168,15 @@ public class XMLMapperBuilder extends BaseBuilder {
   private void buildStatementFromContext(List<XNode> list, String requiredDatabaseId) {
     for (XNode context : list) {
       final XMLStatementBuilder statementParser = new XMLStatementBuilder(configuration, builderAssistant, context, requiredDatabaseId);
+      if (configuration.isLazyStatementCompilation()) {
+        // 只登记编译动作,第一次访问该语句时才解析。databaseId与本轮要求的不一致的语句解析时也会被跳过,不必登记
+        final String databaseId = context.getStringAttribute("databaseId");
+        if (Objects.equals(databaseId, requiredDatabaseId)) {
+          configuration.addLazyStatement(builderAssistant.applyCurrentNamespace(context.getStringAttribute("id"), false),
+              databaseId, statementParser::parseStatementNode);
+        }
+        continue;
+      }
       try {
         statementParser.parseStatementNode();
       } catch (IncompleteElementException e) {
@@ -19,11 +19,13 @@ import java.util.List;
 import java.util.Locale;
 
 import org.apache.ibatis.builder.BaseBuilder;
+import org.apache.ibatis.builder.BuilderException;
 import org.apache.ibatis.builder.MapperBuilderAssistant;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.executor.keygen.SelectKeyGenerator;
+import org.apache.ibatis.executor.keygen.SequenceKeyGenerator;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ResultSetType;
 import org.apache.ibatis.mapping.SqlCommandType;
@@ -100,8 +102,17 @@ public class XMLStatementBuilder extends BaseBuilder {
     KeyGenerator keyGenerator;
     String keyStatementId = id + SelectKeyGenerator.SELECT_KEY_SUFFIX;
     keyStatementId = builderAssistant.applyCurrentNamespace(keyStatementId, true);
+    String keySequence = context.getStringAttribute("keySequence");
     if (configuration.hasKeyGenerator(keyStatementId)) {
       keyGenerator = configuration.getKeyGenerator(keyStatementId);
+    } else if (keySequence != null) {
+      // 按块预取序列值生成主键
+      if (keyProperty == null) {
+        throw new BuilderException("Statement '" + id + "' specifies keySequence but no keyProperty.");
+      }
+      String keyAllocation = context.getStringAttribute("keyAllocation");
+      keyGenerator = builderAssistant.useSequenceKeyGenerator(keySequence, context.getIntAttribute("keyBlockSize"),
+          keyAllocation == null ? null : SequenceKeyGenerator.Allocation.valueOf(keyAllocation));
     } else {
       keyGenerator = context.getBooleanAttribute("useGeneratedKeys",
           configuration.isUseGeneratedKeys() && SqlCommandType.INSERT.equals(sqlCommandType))
@@ -20,6 +20,7 @@ import java.lang.ref.SoftReference;
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.ibatis.cache.Cache;
 
@@ -36,6 +37,10 @@ public class SoftCache implements Cache {
    * 即使用强引用指向其value,类型为LinkedList<Object>
    */
   private final Deque<Object> hardLinksToAvoidGarbageCollection;
+  /**
+   * 保护hardLinksToAvoidGarbageCollection集合的锁,避免使用synchronized导致虚拟线程被固定
+   */
+  private final ReentrantLock hardLinksLock = new ReentrantLock();
   /**
    * 引用队列,用于记录已经被回收的缓存项所对应的SoftEntry对象
    */
@@ -93,13 +98,16 @@ public class SoftCache implements Cache {
         delegate.removeObject(key);
       } else {
         // 未被GC回收
-        synchronized (hardLinksToAvoidGarbageCollection) {
+        hardLinksLock.lock();
+        try {
           // 缓存项的value添加到hardLinksToAvoidGarbageCollection集合中保存,避免被GC回收
           hardLinksToAvoidGarbageCollection.addFirst(result);
           if (hardLinksToAvoidGarbageCollection.size() > numberOfHardLinks) {
             // 超过最大强引用数量,则将最老的缓存项从集合中清除,类似于先进先出队列
             hardLinksToAvoidGarbageCollection.removeLast();
           }
+        } finally {
+          hardLinksLock.unlock();
         }
       }
     }
@@ -115,8 +123,11 @@ public class SoftCache implements Cache {
   @Override
   public void clear() {
     // 清除强引用集合
-    synchronized (hardLinksToAvoidGarbageCollection) {
+    hardLinksLock.lock();
+    try {
       hardLinksToAvoidGarbageCollection.clear();
+    } finally {
+      hardLinksLock.unlock();
     }
     // 清理被GC回收的缓存项
     removeGarbageCollectedItems();
@@ -18,6 +18,7 @@ package org.apache.ibatis.datasource.pooled;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.metrics.MetricsCollector;
 
 import javax.sql.DataSource;
 import java.io.PrintWriter;
@@ -27,11 +28,18 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 /**
  * This is a simple, synchronous, thread-safe database connection pool.
+ * <p>
+ * Pool state is guarded by a {@link java.util.concurrent.locks.ReentrantLock} that is never held across JDBC calls
+ * (connect, ping, rollback, close), so callers running on virtual threads are not pinned while waiting on the database.
  *
  * @author Clinton Begin
  */
@@ -86,6 +94,10 @@ public class PooledDataSource implements DataSource {
    * 根据URL,username和password 生成一个hash值,该哈希值用于标识着当前的连接池,在构造函数中初始化
    */
   private int expectedConnectionTypeCode;
+  /**
+   * 统计获取连接耗时的指标收集器,为null时不统计
+   */
+  private volatile MetricsCollector metricsCollector;
 
   public PooledDataSource() {
     dataSource = new UnpooledDataSource();
@@ -266,6 +278,13 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  /**
+   * 设置统计获取连接耗时的指标收集器,传入null时停止统计
+   */
+  public void setMetricsCollector(MetricsCollector metricsCollector) {
+    this.metricsCollector = metricsCollector;
+  }
+
   public String getDriver() {
     return dataSource.getDriver();
   }
@@ -326,49 +345,44 @@ public class PooledDataSource implements DataSource {
     return poolPingConnectionsNotUsedFor;
   }
 
+  public MetricsCollector getMetricsCollector() {
+    return metricsCollector;
+  }
+
   /*
    * Closes all active and idle connections in the pool
    */
   public void forceCloseAll() {
-    synchronized (state) {
+    // 持锁时只摘除连接,回滚和关闭等JDBC操作在释放锁后执行
+    List<PooledConnection> connections = new ArrayList<>();
+    state.lock.lock();
+    try {
       // 更新当前连接池的标识
       expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
-      // 遍历处理活跃连接
-      for (int i = state.activeConnections.size(); i > 0; i--) {
-        try {
-          PooledConnection conn = state.activeConnections.remove(i - 1);
-          // 设置为无效
-          conn.invalidate();
-          // 获取真正的数据库连接对象
-          Connection realConn = conn.getRealConnection();
-          // 回滚未提交的事务
-          if (!realConn.getAutoCommit()) {
-            realConn.rollback();
-          }
-          // 关闭真正的数据库连接
-          realConn.close();
-        } catch (Exception e) {
-          // ignore
-        }
+      // 摘除活跃连接和空闲连接
+      connections.addAll(state.activeConnections);
+      connections.addAll(state.idleConnections);
+      state.activeConnections.clear();
+      state.idleConnections.clear();
+      for (PooledConnection conn : connections) {
+        // 设置为无效
+        conn.invalidate();
       }
-      // 遍历处理空闲连接
-      for (int i = state.idleConnections.size(); i > 0; i--) {
-        try {
-          // 从空闲连接集合中取出连接
-          PooledConnection conn = state.idleConnections.remove(i - 1);
-          // 设置为无效
-          conn.invalidate();
-          // 获得真正的数据库连接对象
-          Connection realConn = conn.getRealConnection();
-          // 回滚未提交的事务
-          if (!realConn.getAutoCommit()) {
-            realConn.rollback();
-          }
-          // 关闭真正的数据库连接
-          realConn.close();
-        } catch (Exception e) {
-          // ignore
+    } finally {
+      state.lock.unlock();
+    }
+    for (PooledConnection conn : connections) {
+      try {
+        // 获取真正的数据库连接对象
+        Connection realConn = conn.getRealConnection();
+        // 回滚未提交的事务
+        if (!realConn.getAutoCommit()) {
+          realConn.rollback();
         }
+        // 关闭真正的数据库连接
+        realConn.close();
+      } catch (Exception e) {
+        // ignore
       }
     }
     if (log.isDebugEnabled()) {
@@ -385,66 +399,119 @@ public class PooledDataSource implements DataSource {
   }
 
   protected void pushConnection(PooledConnection conn) throws SQLException {
+    long checkoutTime;
+    // 加锁,先认领该连接:移出活跃连接后,其他线程不会再把它当作超时连接取走
+    state.lock.lock();
+    try {
+      if (!removeActiveConnection(conn)) {
+        // 该连接已被其他线程作为超时连接取走(或已被强制关闭),真实连接可能已属于新的使用者,既不能回滚也不能放回连接池
+        state.badConnectionCount++;
+        if (log.isDebugEnabled()) {
+          log.debug("Connection " + conn.getRealHashCode() + " was claimed before it was returned, discarding it.");
+        }
+        return;
+      }
+      checkoutTime = conn.getCheckoutTime();
+      // 检测和回滚期间,该连接仍占用一个活跃名额
+      state.pendingConnectionCount++;
+    } finally {
+      state.lock.unlock();
+    }
 
-    // 加锁,同步
-    synchronized (state) {
-      // 先从活动连接中移出该对象
-      state.activeConnections.remove(conn);
-      if (conn.isValid()) {
-        // 如果conn还有效,则判断空闲连接数是否已达到上限,以及PooledConnection是否为该连接池的连接
-        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
+    // 检测连接是否有效(可能发送ping语句)并回滚未提交的事务,这些JDBC操作都不能在持锁时执行
+    boolean valid = false;
+    SQLException rollbackFailure = null;
+    boolean close = false;
+    PooledConnection newConn = null;
+    try {
+      valid = conn.isValid();
+      if (valid && !conn.getRealConnection().getAutoCommit()) {
+        conn.getRealConnection().rollback();
+      }
+    } catch (SQLException e) {
+      // 回滚失败的连接不能再放回连接池,更新状态后再抛出异常
+      rollbackFailure = e;
+      valid = false;
+    } finally {
+      state.lock.lock();
+      try {
+        state.pendingConnectionCount--;
+        if (valid) {
           // 累计使用时间增加
-          state.accumulatedCheckoutTime += conn.getCheckoutTime();
-          // 回滚未提交的事务
-          if (!conn.getRealConnection().getAutoCommit()) {
-            conn.getRealConnection().rollback();
-          }
-          // 为返还连接创建新的PooledConnection 对象
-          PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
-          // 向空闲连接集合添加新的对象
-          state.idleConnections.add(newConn);
-          // 设置新对象的创建时间和最后使用时间
-          newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
-          newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
-          // 老连接设置为无效
-          conn.invalidate();
-          if (log.isDebugEnabled()) {
-            log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
+          state.accumulatedCheckoutTime += checkoutTime;
+          // 如果conn还有效,则判断空闲连接数是否已达到上限,以及PooledConnection是否为该连接池的连接
+          if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
+            // 为返还连接创建新的PooledConnection 对象
+            newConn = new PooledConnection(conn.getRealConnection(), this);
+            // 设置新对象的创建时间和最后使用时间
+            newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
+            newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+            // 向空闲连接集合添加新的对象
+            state.idleConnections.add(newConn);
+          } else {
+            // 空闲连接数已达到上线,或PooledConnection对象并不属于该连接池,释放锁后关闭连接
+            close = true;
           }
-          // 唤醒阻塞等待的线程
-          state.notifyAll();
         } else {
-          // 空闲连接数已达到上线,或PooledConnection对象并不属于该连接池
-          state.accumulatedCheckoutTime += conn.getCheckoutTime();
-          if (!conn.getRealConnection().getAutoCommit()) {
-            conn.getRealConnection().rollback();
-          }
-          // 关闭连接,并设置为无效
-          conn.getRealConnection().close();
-          if (log.isDebugEnabled()) {
-            log.debug("Closed connection " + conn.getRealHashCode() + ".");
-          }
-          conn.invalidate();
-        }
-      } else {
-        if (log.isDebugEnabled()) {
-          log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+          // 统计无效PooledConnection对象的个数
+          state.badConnectionCount++;
         }
-        // 统计无效PooledConnection对象的个数
-        state.badConnectionCount++;
+        // 老连接设置为无效
+        conn.invalidate();
+        // 空闲连接增加或活跃名额释放,唤醒阻塞等待的线程
+        state.condition.signalAll();
+      } finally {
+        state.lock.unlock();
       }
     }
+
+    if (newConn != null) {
+      if (log.isDebugEnabled()) {
+        log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
+      }
+    } else if (close) {
+      // 关闭连接
+      conn.getRealConnection().close();
+      if (log.isDebugEnabled()) {
+        log.debug("Closed connection " + conn.getRealHashCode() + ".");
+      }
+    } else if (log.isDebugEnabled()) {
+      log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+    }
+    if (rollbackFailure != null) {
+      throw rollbackFailure;
+    }
+  }
+
+  /**
+   * 按引用移出活跃连接,PooledConnection的equals只比较真实连接,超时连接被取走后新的包装对象与旧对象相等
+   */
+  private boolean removeActiveConnection(PooledConnection conn) {
+    for (Iterator<PooledConnection> it = state.activeConnections.iterator(); it.hasNext(); ) {
+      if (it.next() == conn) {
+        it.remove();
+        return true;
+      }
+    }
+    return false;
   }
 
   private PooledConnection popConnection(String username, String password) throws SQLException {
     boolean countedWait = false;
     PooledConnection conn = null;
     long t = System.currentTimeMillis();
+    final MetricsCollector metrics = metricsCollector;
+    final long start = metrics == null ? 0L : System.nanoTime();
     int localBadConnectionCount = 0;
 
     while (conn == null) {
-      // 加锁,同步
-      synchronized (state) {
+      // 需要在释放锁后新建真实连接
+      boolean createConnection = false;
+      // 需要在释放锁后回滚的超时连接
+      PooledConnection overdueConnection = null;
+      // 加锁,同步,持锁期间只操作连接池状态,不执行任何JDBC操作
+      state.lock.lock();
+      try {
         if (!state.idleConnections.isEmpty()) {
           // 检测空闲连接,若有则直接获取连接
           conn = state.idleConnections.remove(0);
@@ -453,104 +520,156 @@ public class PooledDataSource implements DataSource {
           }
         } else {
           // 连接池没有可用连接时
-          if (state.activeConnections.size() < poolMaximumActiveConnections) {
-            // 当活跃连接数小于最大活跃连接数时,直接创建新连接
-            conn = new PooledConnection(dataSource.getConnection(), this);
+          if (state.activeConnections.size() + state.pendingConnectionCount < poolMaximumActiveConnections) {
+            // 当活跃连接数小于最大活跃连接数时,预占一个名额,释放锁后创建新连接
+            state.pendingConnectionCount++;
+            createConnection = true;
+          } else if (!state.activeConnections.isEmpty()
+              && state.activeConnections.get(0).getCheckoutTime() > poolMaximumCheckoutTime) {
+            // 不能创建新连接时,获取最先创建的活跃连接,该连接已超时,更新连接超时相关的信息
+            overdueConnection = state.activeConnections.get(0);
+            long longestCheckoutTime = overdueConnection.getCheckoutTime();
+            // 超时连接数增加
+            state.claimedOverdueConnectionCount++;
+            // 所有超时连接总checkoutTime增加
+            state.accumulatedCheckoutTimeOfOverdueConnections += longestCheckoutTime;
+            // 所有连接的checkoutTime增加
+            state.accumulatedCheckoutTime += longestCheckoutTime;
+            // 将超时连接移出activeConnections集合
+            state.activeConnections.remove(overdueConnection);
+            // 根据超时连接的realConnection创建新的PooledConnection
+            conn = new PooledConnection(overdueConnection.getRealConnection(), this);
+            conn.setCreatedTimestamp(overdueConnection.getCreatedTimestamp());
+            conn.setLastUsedTimestamp(overdueConnection.getLastUsedTimestamp());
+            // 超时连接则设置为无效
+            overdueConnection.invalidate();
             if (log.isDebugEnabled()) {
-              log.debug("Created connection " + conn.getRealHashCode() + ".");
+              log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
             }
           } else {
-            // 不能创建新连接时
-            // 获取最先创建的活跃连接
-            PooledConnection oldestActiveConnection = state.activeConnections.get(0);
-            long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
-            if (longestCheckoutTime > poolMaximumCheckoutTime) {
-              // 该连接已超时,更新连接超时相关的信息
-              // 超时连接数增加
-              state.claimedOverdueConnectionCount++;
-              // 所有超时连接总checkoutTime增加
-              state.accumulatedCheckoutTimeOfOverdueConnections += longestCheckoutTime;
-              // 所有连接的checkoutTime增加
-              state.accumulatedCheckoutTime += longestCheckoutTime;
-              // 将超时连接移出activeConnections集合
-              state.activeConnections.remove(oldestActiveConnection);
-              if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
-                // 如果超时连接未自动提交
-                try {
-                  // 回滚
-                  oldestActiveConnection.getRealConnection().rollback();
-                } catch (SQLException e) {
-                  /*
-                     Just log a message for debug and continue to execute the following
-                     statement like nothing happened.
-                     Wrap the bad connection with a new PooledConnection, this will help
-                     to not interrupt current executing thread and give current thread a
-                     chance to join the next competition for another valid/good database
-                     connection. At the end of this loop, bad {@link @conn} will be set as null.
-                   */
-                  log.debug("Bad connection. Could not roll back");
-                }
+            // 若前面的情况都不行,则只能等待了
+            try {
+              // 统计等待次数
+              if (!countedWait) {
+                state.hadToWaitCount++;
+                countedWait = true;
               }
-              // 根据超时连接的realConnection创建新的PooledConnection
-              conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
-              conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
-              conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
-              // 超时连接则设置为无效
-              oldestActiveConnection.invalidate();
               if (log.isDebugEnabled()) {
-                log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
-              }
-            } else {
-              // 若前面的情况都不行,则只能等待了
-              try {
-                // 统计等待次数
-                if (!countedWait) {
-                  state.hadToWaitCount++;
-                  countedWait = true;
-                }
-                if (log.isDebugEnabled()) {
-                  log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
-                }
-                long wt = System.currentTimeMillis();
-                // 阻塞等待
-                state.wait(poolTimeToWait);
-                // 统计累计的等待时间
-                state.accumulatedWaitTime += System.currentTimeMillis() - wt;
-              } catch (InterruptedException e) {
-                break;
+                log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
               }
+              long wt = System.currentTimeMillis();
+              // 阻塞等待,await会释放锁,不会固定虚拟线程
+              state.condition.await(poolTimeToWait, TimeUnit.MILLISECONDS);
+              // 统计累计的等待时间
+              state.accumulatedWaitTime += System.currentTimeMillis() - wt;
+            } catch (InterruptedException e) {
+              break;
             }
           }
         }
         if (conn != null) {
-          // 检测pooledConnection是否有效,其中isValid方法中发送了ping命令来检测
-          if (conn.isValid()) {
-            if (!conn.getRealConnection().getAutoCommit()) {
-              conn.getRealConnection().rollback();
+          // 先将连接记入活跃连接,校验失败时再移除,同时记录取出时间,避免被其他线程误判为超时连接
+          conn.setCheckoutTimestamp(System.currentTimeMillis());
+          state.activeConnections.add(conn);
+        }
+      } finally {
+        state.lock.unlock();
+      }
+
+      if (createConnection) {
+        try {
+          conn = new PooledConnection(dataSource.getConnection(), this);
+        } finally {
+          state.lock.lock();
+          try {
+            state.pendingConnectionCount--;
+            if (conn != null) {
+              conn.setCheckoutTimestamp(System.currentTimeMillis());
+              state.activeConnections.add(conn);
+            } else {
+              // 创建失败,释放预占的名额
+              state.condition.signalAll();
             }
+          } finally {
+            state.lock.unlock();
+          }
+        }
+        if (log.isDebugEnabled()) {
+          log.debug("Created connection " + conn.getRealHashCode() + ".");
+        }
+      }
+
+      if (overdueConnection != null && !overdueConnection.getRealConnection().getAutoCommit()) {
+        // 如果超时连接未自动提交
+        try {
+          // 回滚
+          overdueConnection.getRealConnection().rollback();
+        } catch (SQLException e) {
+          /*
+             Just log a message for debug and continue to execute the following
+             statement like nothing happened.
+             Wrap the bad connection with a new PooledConnection, this will help
+             to not interrupt current executing thread and give current thread a
+             chance to join the next competition for another valid/good database
+             connection. At the end of this loop, bad {@link @conn} will be set as null.
+           */
+          log.debug("Bad connection. Could not roll back");
+        }
+      }
+
+      if (conn != null) {
+        // 检测pooledConnection是否有效,其中isValid方法中发送了ping命令来检测,在锁外执行
+        boolean valid = false;
+        boolean checked = false;
+        try {
+          valid = conn.isValid();
+          if (valid && !conn.getRealConnection().getAutoCommit()) {
+            conn.getRealConnection().rollback();
+          }
+          checked = true;
+        } finally {
+          if (!checked) {
+            // 校验过程中抛出异常,释放预先记入的活跃名额
+            state.lock.lock();
+            try {
+              state.activeConnections.remove(conn);
+              state.condition.signalAll();
+            } finally {
+              state.lock.unlock();
+            }
+          }
+        }
+        state.lock.lock();
+        try {
+          if (valid) {
             // 设置连接的唯一标识,取出时间和最后使用时间
             conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
             conn.setCheckoutTimestamp(System.currentTimeMillis());
             conn.setLastUsedTimestamp(System.currentTimeMillis());
             // 更新相关统计
-            state.activeConnections.add(conn);
             state.requestCount++;
             state.accumulatedRequestTime += System.currentTimeMillis() - t;
           } else {
-            if (log.isDebugEnabled()) {
-              log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
-            }
             // 如果connection取出和创建都失败,则将无效的连接数+1,
+            state.activeConnections.remove(conn);
             state.badConnectionCount++;
-            localBadConnectionCount++;
-            conn = null;
-            // 如果这次获取连接的失败次数超过了 最大可用连接数和最大失败后尝试次数之和,则抛出异常
-            if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
-              if (log.isDebugEnabled()) {
-                log.debug("PooledDataSource: Could not get a good connection to the database.");
-              }
-              throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
+            state.condition.signalAll();
+          }
+        } finally {
+          state.lock.unlock();
+        }
+        if (!valid) {
+          if (log.isDebugEnabled()) {
+            log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+          }
+          localBadConnectionCount++;
+          conn = null;
+          // 如果这次获取连接的失败次数超过了 最大可用连接数和最大失败后尝试次数之和,则抛出异常
+          if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
+            if (log.isDebugEnabled()) {
+              log.debug("PooledDataSource: Could not get a good connection to the database.");
             }
+            throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
           }
         }
       }
@@ -565,6 +684,10 @@ public class PooledDataSource implements DataSource {
       throw new SQLException("PooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
     }
 
+    if (metrics != null) {
+      metrics.recordPoolWait(System.nanoTime() - start);
+    }
+
     return conn;
   }
 
@@ -35,6 +35,7 @@ import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
 import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.metrics.MetricsCollector;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.session.Configuration;
@@ -114,7 +115,18 @@ public abstract class BaseExecutor implements Executor {
       throw new ExecutorException("Executor was closed.");
     }
     clearLocalCache();
-    return doUpdate(ms, parameter);
+    final MetricsCollector metrics = configuration.getMetricsCollector();
+    if (metrics == null) {
+      return doUpdate(ms, parameter);
+    }
+    final long start = System.nanoTime();
+    final int updateCount = doUpdate(ms, parameter);
+    metrics.recordExecution(ms, System.nanoTime() - start);
+    if (updateCount >= 0) {
+      // batched updates report their counts on flush
+      metrics.recordRows(ms, updateCount);
+    }
+    return updateCount;
   }
 
   @Override
@@ -126,7 +138,28 @@ public abstract class BaseExecutor implements Executor {
     if (closed) {
       throw new ExecutorException("Executor was closed.");
     }
-    return doFlushStatements(isRollBack);
+    final List<BatchResult> batchResults = doFlushStatements(isRollBack);
+    final MetricsCollector metrics = configuration.getMetricsCollector();
+    if (metrics != null && !isRollBack) {
+      recordBatchRows(metrics, batchResults);
+    }
+    return batchResults;
+  }
+
+  private static void recordBatchRows(MetricsCollector metrics, List<BatchResult> batchResults) {
+    for (BatchResult batchResult : batchResults) {
+      final int[] updateCounts = batchResult.getUpdateCounts();
+      if (updateCounts == null) {
+        continue;
+      }
+      long rows = 0;
+      for (int updateCount : updateCounts) {
+        if (updateCount > 0) {
+          rows += updateCount;
+        }
+      }
+      metrics.recordRows(batchResult.getMappedStatement(), rows);
+    }
   }
 
   @Override
@@ -150,6 +183,10 @@ public abstract class BaseExecutor implements Executor {
     try {
       queryStack++;
       list = resultHandler == null ? (List<E>) localCache.getObject(key) : null;
+      final MetricsCollector metrics = configuration.getMetricsCollector();
+      if (metrics != null && resultHandler == null) {
+        metrics.recordLocalCacheAccess(ms, list != null);
+      }
       if (list != null) {
         handleLocallyCachedOutputParameters(ms, key, parameter, boundSql);
       } else {
@@ -323,7 +360,14 @@ public abstract class BaseExecutor implements Executor {
     List<E> list;
     localCache.putObject(key, EXECUTION_PLACEHOLDER);
     try {
-      list = doQuery(ms, parameter, rowBounds, resultHandler, boundSql);
+      final MetricsCollector metrics = configuration.getMetricsCollector();
+      if (metrics == null) {
+        list = doQuery(ms, parameter, rowBounds, resultHandler, boundSql);
+      } else {
+        final long start = System.nanoTime();
+        list = doQuery(ms, parameter, rowBounds, resultHandler, boundSql);
+        metrics.recordExecution(ms, System.nanoTime() - start);
+      }
     } finally {
       localCache.removeObject(key);
     }
@@ -336,7 +380,7 @@ public abstract class BaseExecutor implements Executor {
 
   protected Connection getConnection(Log statementLog) throws SQLException {
     Connection connection = transaction.getConnection();
-    if (statementLog.isDebugEnabled()) {
+    if (statementLog.isDebugEnabled() && configuration.getStatementTracer() == null) {
       return ConnectionLogger.newInstance(connection, statementLog, queryStack);
     } else {
       return connection;
@@ -28,7 +28,6 @@ import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.reflection.ArrayUtil;
-import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.defaults.DefaultSqlSession.StrictMap;
 import org.apache.ibatis.type.JdbcType;
@@ -128,20 +127,22 @@ public class Jdbc3KeyGenerator implements KeyGenerator {
     } else {
       paramAsCollection = (Collection<?>) param;
     }
+    KeyPropertySetter setter = null;
     TypeHandler<?>[] typeHandlers = null;
     for (Object obj : paramAsCollection) {
       if (!rs.next()) {
         break;
       }
-      MetaObject metaParam = configuration.newMetaObject(obj);
-      if (typeHandlers == null) {
-        typeHandlers = getTypeHandlers(typeHandlerRegistry, metaParam, keyProperties, rsmd);
+      // setters and type handlers are resolved once per parameter type, not for each row
+      if (setter == null || !setter.appliesTo(obj)) {
+        setter = KeyPropertySetter.forObject(configuration, obj, keyProperties);
+        typeHandlers = getTypeHandlers(typeHandlerRegistry, setter, keyProperties, rsmd);
       }
-      populateKeys(rs, metaParam, keyProperties, typeHandlers);
+      populateKeys(rs, setter, setter.target(obj), keyProperties, typeHandlers);
     }
   }
 
-  private Object getSoleParameter(Object parameter) {
+  static Object getSoleParameter(Object parameter) {
     if (!(parameter instanceof ParamMap || parameter instanceof StrictMap)) {
       return parameter;
     }
@@ -157,27 +158,20 @@ public class Jdbc3KeyGenerator implements KeyGenerator {
     return soleParam;
   }
 
-  private TypeHandler<?>[] getTypeHandlers(TypeHandlerRegistry typeHandlerRegistry, MetaObject metaParam, String[] keyProperties, ResultSetMetaData rsmd) throws SQLException {
+  private TypeHandler<?>[] getTypeHandlers(TypeHandlerRegistry typeHandlerRegistry, KeyPropertySetter setter, String[] keyProperties, ResultSetMetaData rsmd) throws SQLException {
     TypeHandler<?>[] typeHandlers = new TypeHandler<?>[keyProperties.length];
     for (int i = 0; i < keyProperties.length; i++) {
-      if (metaParam.hasSetter(keyProperties[i])) {
-        Class<?> keyPropertyType = metaParam.getSetterType(keyProperties[i]);
-        typeHandlers[i] = typeHandlerRegistry.getTypeHandler(keyPropertyType, JdbcType.forCode(rsmd.getColumnType(i + 1)));
-      } else {
-        throw new ExecutorException("No setter found for the keyProperty '" + keyProperties[i] + "' in '"
-            + metaParam.getOriginalObject().getClass().getName() + "'.");
-      }
+      typeHandlers[i] = typeHandlerRegistry.getTypeHandler(setter.getPropertyType(i), JdbcType.forCode(rsmd.getColumnType(i + 1)));
     }
     return typeHandlers;
   }
 
-  private void populateKeys(ResultSet rs, MetaObject metaParam, String[] keyProperties, TypeHandler<?>[] typeHandlers) throws SQLException {
+  private void populateKeys(ResultSet rs, KeyPropertySetter setter, Object target, String[] keyProperties, TypeHandler<?>[] typeHandlers) throws SQLException {
     for (int i = 0; i < keyProperties.length; i++) {
-      String property = keyProperties[i];
       TypeHandler<?> th = typeHandlers[i];
       if (th != null) {
         Object value = th.getResult(rs, i + 1);
-        metaParam.setValue(property, value);
+        setter.setValue(target, i, value);
       }
     }
   }
@@ -0,0 +1,131 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.keygen;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapper;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Sets the key properties of parameter objects of one type.
+ * <p>
+ * When the parameter is a plain bean and every key property is a top level property, the set invokers are
+ * resolved once and used for every object of that type. Otherwise each object is wrapped in a {@link MetaObject},
+ * as it always used to be.
+ */
+final class KeyPropertySetter {
+
+  private final Configuration configuration;
+  private final String[] keyProperties;
+  private final Class<?> beanType;
+  private final Invoker[] setters;
+  private final Class<?>[] types;
+
+  private KeyPropertySetter(Configuration configuration, String[] keyProperties, Class<?> beanType, Invoker[] setters,
+      Class<?>[] types) {
+    this.configuration = configuration;
+    this.keyProperties = keyProperties;
+    this.beanType = beanType;
+    this.setters = setters;
+    this.types = types;
+  }
+
+  static KeyPropertySetter forObject(Configuration configuration, Object parameter, String[] keyProperties) {
+    if (isPlainBean(configuration, parameter)) {
+      final Reflector reflector = configuration.getReflectorFactory().findForClass(parameter.getClass());
+      final Invoker[] setters = new Invoker[keyProperties.length];
+      final Class<?>[] types = new Class<?>[keyProperties.length];
+      boolean direct = true;
+      for (int i = 0; i < keyProperties.length && direct; i++) {
+        final String property = keyProperties[i];
+        direct = property.indexOf('.') < 0 && property.indexOf('[') < 0 && reflector.hasSetter(property);
+        if (direct) {
+          setters[i] = reflector.getSetInvoker(property);
+          types[i] = reflector.getSetterType(property);
+        }
+      }
+      if (direct) {
+        return new KeyPropertySetter(configuration, keyProperties, parameter.getClass(), setters, types);
+      }
+    }
+    final MetaObject metaParam = configuration.newMetaObject(parameter);
+    final Class<?>[] types = new Class<?>[keyProperties.length];
+    for (int i = 0; i < keyProperties.length; i++) {
+      if (!metaParam.hasSetter(keyProperties[i])) {
+        throw new ExecutorException("No setter found for the keyProperty '" + keyProperties[i] + "' in '"
+            + metaParam.getOriginalObject().getClass().getName() + "'.");
+      }
+      types[i] = metaParam.getSetterType(keyProperties[i]);
+    }
+    return new KeyPropertySetter(configuration, keyProperties, null, null, types);
+  }
+
+  /**
+   * A MetaObject of such a parameter would use a BeanWrapper of its class. A null parameter is left to the
+   * MetaObject path, which reports that it has no setter for the key property.
+   */
+  private static boolean isPlainBean(Configuration configuration, Object parameter) {
+    return parameter != null && !(parameter instanceof Map) && !(parameter instanceof Collection) && !(parameter instanceof ObjectWrapper)
+        && !parameter.getClass().isArray() && !configuration.getObjectWrapperFactory().hasWrapperFor(parameter);
+  }
+
+  /**
+   * Whether this setter can be used for another object of the same batch. Invokers only apply to objects of the
+   * type they were resolved for, while MetaObjects are created per object anyway. A null object always gets its
+   * own setter, so that it fails like it would have as the first object of the batch.
+   */
+  boolean appliesTo(Object parameter) {
+    return parameter != null && (beanType == null || beanType == parameter.getClass());
+  }
+
+  Class<?> getPropertyType(int index) {
+    return types[index];
+  }
+
+  /**
+   * Returns what {@link #setValue(Object, int, Object)} expects for the parameter, so that multiple properties of
+   * an object are set through the same MetaObject.
+   */
+  Object target(Object parameter) {
+    return setters == null ? configuration.newMetaObject(parameter) : parameter;
+  }
+
+  void setValue(Object target, int index, Object value) {
+    if (setters == null) {
+      ((MetaObject) target).setValue(keyProperties[index], value);
+      return;
+    }
+    try {
+      try {
+        setters[index].invoke(target, new Object[] {value});
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    } catch (Throwable t) {
+      throw new ReflectionException("Could not set property '" + keyProperties[index] + "' of '" + target.getClass()
+          + "' with value '" + value + "' Cause: " + t.toString(), t);
+    }
+  }
+
+}
@@ -0,0 +1,284 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.keygen;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * Assigns keys before an insert from blocks reserved with a single sequence query.
+ * <p>
+ * How a value returned by the sequence statement reserves a block depends on the {@link Allocation}:
+ * <ul>
+ * <li>{@link Allocation#HILO}: the value {@code hi} reserves the keys {@code hi * blockSize} up to
+ * {@code hi * blockSize + blockSize - 1}. Works with any sequence.</li>
+ * <li>{@link Allocation#INCREMENT}: the sequence is declared with {@code INCREMENT BY blockSize} and the value
+ * {@code v} reserves the keys {@code v} up to {@code v + blockSize - 1}, so keys match the sequence values.</li>
+ * </ul>
+ * The sequence statement may also return several rows (e.g. {@code nextval} selected 1000 times), each of them
+ * reserving a block. Keys are handed out locally without locking, so a batch or a multi-row insert of any size
+ * costs one query per block instead of one {@code <selectKey>} query per row. When threads run out of keys at
+ * the same time each of them may reserve a block; the spare ones are kept for later inserts. Keys left in a
+ * block when the application stops are lost, and keys are only unique among generators sharing the sequence
+ * with the same block size and allocation.
+ * <p>
+ * The parameter may be a single object, a collection or an array of objects, or a parameter map of these as
+ * {@link Jdbc3KeyGenerator} accepts it. A single key property is supported.
+ */
+public class SequenceKeyGenerator implements KeyGenerator {
+
+  public static final String SEQUENCE_SUFFIX = "!sequenceKey";
+
+  public static final int DEFAULT_BLOCK_SIZE = 1000;
+
+  public enum Allocation {
+    /** A sequence value is the high part of the keys of its block. */
+    HILO,
+    /** A sequence value is the first key of its block, the sequence increments by the block size. */
+    INCREMENT
+  }
+
+  private final Configuration configuration;
+  private final String sequenceStatementId;
+  private final int blockSize;
+  private final Allocation allocation;
+  private final AtomicReference<Block> currentBlock = new AtomicReference<>(Block.EMPTY);
+  private final ConcurrentLinkedQueue<Block> reservedBlocks = new ConcurrentLinkedQueue<>();
+  private volatile MappedStatement sequenceStatement;
+
+  public SequenceKeyGenerator(MappedStatement sequenceStatement, int blockSize) {
+    this(sequenceStatement.getConfiguration(), sequenceStatement.getId(), blockSize, Allocation.HILO);
+    this.sequenceStatement = sequenceStatement;
+  }
+
+  /**
+   * Creates a generator whose sequence statement is looked up on first use, so it may be declared after the
+   * statements using it.
+   */
+  public SequenceKeyGenerator(Configuration configuration, String sequenceStatementId, int blockSize, Allocation allocation) {
+    if (blockSize < 1) {
+      throw new IllegalArgumentException("The block size of a sequence key generator must be positive, but was " + blockSize);
+    }
+    this.configuration = configuration;
+    this.sequenceStatementId = sequenceStatementId;
+    this.blockSize = blockSize;
+    this.allocation = allocation == null ? Allocation.HILO : allocation;
+  }
+
+  public MappedStatement getSequenceStatement() {
+    MappedStatement statement = sequenceStatement;
+    if (statement == null) {
+      statement = configuration.getMappedStatement(sequenceStatementId);
+      sequenceStatement = statement;
+    }
+    return statement;
+  }
+
+  public String getSequenceStatementId() {
+    return sequenceStatementId;
+  }
+
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  public Allocation getAllocation() {
+    return allocation;
+  }
+
+  @Override
+  public void processBefore(Executor executor, MappedStatement ms, Statement stmt, Object parameter) {
+    final String[] keyProperties = ms.getKeyProperties();
+    if (parameter == null || keyProperties == null || keyProperties.length == 0) {
+      return;
+    }
+    if (keyProperties.length > 1) {
+      throw new ExecutorException("A sequence key generator assigns a single key property, but statement '" + ms.getId()
+          + "' specifies " + Arrays.toString(keyProperties) + ".");
+    }
+    try {
+      String keyProperty = keyProperties[0];
+      Object target = Jdbc3KeyGenerator.getSoleParameter(parameter);
+      if (target == null) {
+        // e.g. 'param.id' when there are multiple parameters
+        final int firstDot = keyProperty.indexOf('.');
+        final Map<?, ?> paramMap = (Map<?, ?>) parameter;
+        if (firstDot == -1 || !paramMap.containsKey(keyProperty.substring(0, firstDot))) {
+          throw new ExecutorException("Could not determine which parameter to assign generated keys to. "
+              + "Note that when there are multiple parameters, 'keyProperty' must include the parameter name (e.g. 'param.id'). "
+              + "Specified key property is '" + keyProperty + "' and available parameters are " + paramMap.keySet());
+        }
+        target = paramMap.get(keyProperty.substring(0, firstDot));
+        keyProperty = keyProperty.substring(firstDot + 1);
+      }
+      assignKeys(executor, ms.getConfiguration(), toCollection(target), new String[] {keyProperty});
+    } catch (ExecutorException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new ExecutorException("Error getting a key from sequence or setting it to parameter object. Cause: " + e, e);
+    }
+  }
+
+  @Override
+  public void processAfter(Executor executor, MappedStatement ms, Statement stmt, Object parameter) {
+    // do nothing
+  }
+
+  private void assignKeys(Executor executor, Configuration configuration, Collection<?> objects, String[] keyProperties) {
+    final long[] keys = nextKeys(executor, objects.size());
+    KeyPropertySetter setter = null;
+    int i = 0;
+    for (Object obj : objects) {
+      if (setter == null || !setter.appliesTo(obj)) {
+        setter = KeyPropertySetter.forObject(configuration, obj, keyProperties);
+      }
+      setter.setValue(setter.target(obj), 0, toKeyType(keys[i++], setter.getPropertyType(0)));
+    }
+  }
+
+  /**
+   * Takes the next keys of the current block, reserving new blocks as needed.
+   */
+  private long[] nextKeys(Executor executor, int count) {
+    final long[] keys = new long[count];
+    int taken = 0;
+    while (taken < count) {
+      final Block block = currentBlock.get();
+      taken = block.take(keys, taken);
+      if (taken < count) {
+        final Block next = reservedBlocks.poll();
+        if (next == null) {
+          reserveBlocks(executor);
+        } else if (!currentBlock.compareAndSet(block, next)) {
+          // another thread replaced the used up block first, keep this one for later
+          reservedBlocks.offer(next);
+        }
+      }
+    }
+    return keys;
+  }
+
+  private void reserveBlocks(Executor executor) {
+    for (long value : selectSequenceValues(executor)) {
+      final long first = allocation == Allocation.HILO ? Math.multiplyExact(value, (long) blockSize) : value;
+      reservedBlocks.offer(new Block(first, Math.addExact(first, (long) blockSize)));
+    }
+  }
+
+  protected long[] selectSequenceValues(Executor executor) {
+    final MappedStatement statement;
+    try {
+      statement = getSequenceStatement();
+    } catch (IllegalArgumentException e) {
+      throw new ExecutorException("Could not find sequence statement '" + sequenceStatementId + "'. Cause: " + e, e);
+    }
+    // Do not close keyExecutor.
+    // The transaction will be closed by parent executor.
+    final Executor keyExecutor = statement.getConfiguration().newExecutor(executor.getTransaction(), ExecutorType.SIMPLE);
+    try {
+      final List<Object> values = keyExecutor.query(statement, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      if (values.isEmpty()) {
+        throw new ExecutorException("Sequence statement '" + statement.getId() + "' returned no value.");
+      }
+      final long[] result = new long[values.size()];
+      for (int i = 0; i < result.length; i++) {
+        if (!(values.get(i) instanceof Number)) {
+          throw new ExecutorException("Sequence statement '" + statement.getId() + "' must return numbers, but returned " + values + ".");
+        }
+        result[i] = ((Number) values.get(i)).longValue();
+      }
+      return result;
+    } catch (ExecutorException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new ExecutorException("Error selecting sequence value with '" + statement.getId() + "'. Cause: " + e, e);
+    }
+  }
+
+  private static Collection<?> toCollection(Object parameter) {
+    if (parameter instanceof Collection) {
+      return (Collection<?>) parameter;
+    } else if (parameter instanceof Object[]) {
+      return Arrays.asList((Object[]) parameter);
+    }
+    return Arrays.asList(parameter);
+  }
+
+  static Object toKeyType(long key, Class<?> type) {
+    if (type == Long.class || type == long.class || type == Object.class || type == Number.class) {
+      return key;
+    } else if (type == Integer.class || type == int.class) {
+      return Math.toIntExact(key);
+    } else if (type == Short.class || type == short.class) {
+      if (key < Short.MIN_VALUE || key > Short.MAX_VALUE) {
+        throw new ArithmeticException("short overflow");
+      }
+      return (short) key;
+    } else if (type == BigInteger.class) {
+      return BigInteger.valueOf(key);
+    } else if (type == BigDecimal.class) {
+      return BigDecimal.valueOf(key);
+    } else if (type == String.class) {
+      return String.valueOf(key);
+    }
+    throw new ExecutorException("Cannot assign a sequence key to a key property of type " + type.getName() + ".");
+  }
+
+  private static class Block {
+
+    static final Block EMPTY = new Block(0, 0);
+
+    private final AtomicLong nextKey;
+    private final long end;
+
+    Block(long first, long end) {
+      this.nextKey = new AtomicLong(first);
+      this.end = end;
+    }
+
+    /**
+     * Copies as many of the wanted keys as this block still holds, returns the number of keys taken so far.
+     */
+    int take(long[] keys, int taken) {
+      if (nextKey.get() >= end) {
+        return taken;
+      }
+      final int wanted = keys.length - taken;
+      final long first = nextKey.getAndAdd(wanted);
+      final long available = Math.min(end - first, wanted);
+      for (long i = 0; i < available; i++) {
+        keys[taken++] = first + i;
+      }
+      return taken;
+    }
+  }
+
+}
@@ -0,0 +1,387 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.result;
+
+import java.io.Serializable;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * A result set materialized column by column into primitive arrays.
+ * <p>
+ * Statements whose result type is {@code ColumnarResult} are not mapped row by row: integral columns, and
+ * decimal columns without fraction digits of at most 18 digits, are read into {@code long[]}, floating point
+ * columns into {@code double[]}, character columns into dictionary encoded {@code int[]} codes and every other
+ * column, other decimals included, through its {@link TypeHandler} into {@code Object[]}. SQL {@code NULL}
+ * values are tracked in a separate bit set per column.
+ */
+public class ColumnarResult implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Decimal digits every {@code long} can hold.
+   */
+  private static final int MAX_LONG_PRECISION = 18;
+
+  public enum ColumnType {
+    LONG, DOUBLE, STRING, OBJECT
+  }
+
+  private final List<String> columnNames;
+  private final Map<String, Integer> columnIndexes;
+  private final Column[] columns;
+  private final int rowCount;
+
+  private ColumnarResult(List<String> columnNames, Column[] columns, int rowCount) {
+    this.columnNames = Collections.unmodifiableList(new ArrayList<>(columnNames));
+    this.columnIndexes = new HashMap<>();
+    for (int i = 0; i < columnNames.size(); i++) {
+      columnIndexes.putIfAbsent(columnNames.get(i).toUpperCase(Locale.ENGLISH), i);
+    }
+    this.columns = columns;
+    this.rowCount = rowCount;
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  public int getColumnCount() {
+    return columns.length;
+  }
+
+  public List<String> getColumnNames() {
+    return columnNames;
+  }
+
+  /**
+   * Returns the zero based index of the column, matching the name case-insensitively.
+   */
+  public int findColumn(String columnName) {
+    Integer index = columnIndexes.get(columnName.toUpperCase(Locale.ENGLISH));
+    if (index == null) {
+      throw new ExecutorException("Column '" + columnName + "' was not found in the columnar result. Available columns are " + columnNames);
+    }
+    return index;
+  }
+
+  public ColumnType getColumnType(String columnName) {
+    return columns[findColumn(columnName)].type;
+  }
+
+  public boolean isNull(String columnName, int row) {
+    return columns[findColumn(columnName)].nulls.get(checkRow(row));
+  }
+
+  /**
+   * Returns the values of an integral column. {@code NULL} rows hold {@code 0}.
+   */
+  public long[] getLongs(String columnName) {
+    return (long[]) column(columnName, ColumnType.LONG).values;
+  }
+
+  /**
+   * Returns the values of a floating point or decimal column. {@code NULL} rows hold {@code 0.0}.
+   */
+  public double[] getDoubles(String columnName) {
+    return (double[]) column(columnName, ColumnType.DOUBLE).values;
+  }
+
+  /**
+   * Returns the dictionary codes of a character column, indexes into {@link #getDictionary(String)}.
+   * {@code NULL} rows hold {@code -1}.
+   */
+  public int[] getCodes(String columnName) {
+    return (int[]) column(columnName, ColumnType.STRING).values;
+  }
+
+  /**
+   * Returns the distinct values of a character column in order of first appearance.
+   */
+  public String[] getDictionary(String columnName) {
+    return column(columnName, ColumnType.STRING).dictionary;
+  }
+
+  public Object[] getObjects(String columnName) {
+    return (Object[]) column(columnName, ColumnType.OBJECT).values;
+  }
+
+  public String getString(String columnName, int row) {
+    Column column = column(columnName, ColumnType.STRING);
+    int code = ((int[]) column.values)[checkRow(row)];
+    return code < 0 ? null : column.dictionary[code];
+  }
+
+  /**
+   * Returns a single value, boxed. Meant for inspection, not for bulk processing.
+   */
+  public Object getValue(String columnName, int row) {
+    Column column = columns[findColumn(columnName)];
+    checkRow(row);
+    if (column.nulls.get(row)) {
+      return null;
+    }
+    switch (column.type) {
+      case LONG:
+        return ((long[]) column.values)[row];
+      case DOUBLE:
+        return ((double[]) column.values)[row];
+      case STRING:
+        return column.dictionary[((int[]) column.values)[row]];
+      default:
+        return ((Object[]) column.values)[row];
+    }
+  }
+
+  private Column column(String columnName, ColumnType expectedType) {
+    Column column = columns[findColumn(columnName)];
+    if (column.type != expectedType) {
+      throw new ExecutorException("Column '" + columnName + "' is a " + column.type + " column, not a " + expectedType + " column.");
+    }
+    return column;
+  }
+
+  private int checkRow(int row) {
+    if (row < 0 || row >= rowCount) {
+      throw new IndexOutOfBoundsException("Row " + row + " is out of range, row count is " + rowCount);
+    }
+    return row;
+  }
+
+  /**
+   * Returns the column type of a column, {@code DECIMAL} and {@code NUMERIC} columns are read as {@code BigDecimal}
+   * through their type handler since their precision is unknown here.
+   */
+  public static ColumnType columnTypeFor(JdbcType jdbcType) {
+    if (jdbcType == null) {
+      return ColumnType.OBJECT;
+    }
+    switch (jdbcType) {
+      case TINYINT:
+      case SMALLINT:
+      case INTEGER:
+      case BIGINT:
+        return ColumnType.LONG;
+      case REAL:
+      case FLOAT:
+      case DOUBLE:
+        return ColumnType.DOUBLE;
+      case CHAR:
+      case VARCHAR:
+      case LONGVARCHAR:
+      case NCHAR:
+      case NVARCHAR:
+      case LONGNVARCHAR:
+        return ColumnType.STRING;
+      default:
+        return ColumnType.OBJECT;
+    }
+  }
+
+  /**
+   * Returns the column type of a column given its precision and scale as reported by the driver. Exact numeric
+   * columns without fraction digits that fit a {@code long} are read as {@link ColumnType#LONG}, every other
+   * {@code DECIMAL} and {@code NUMERIC} column stays {@link ColumnType#OBJECT} so that no digit is lost.
+   */
+  public static ColumnType columnTypeFor(JdbcType jdbcType, int precision, int scale) {
+    if (jdbcType == JdbcType.DECIMAL || jdbcType == JdbcType.NUMERIC) {
+      return scale == 0 && precision > 0 && precision <= MAX_LONG_PRECISION ? ColumnType.LONG : ColumnType.OBJECT;
+    }
+    return columnTypeFor(jdbcType);
+  }
+
+  private static class Column implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final ColumnType type;
+    private final Object values;
+    private final BitSet nulls;
+    private final String[] dictionary;
+
+    private Column(ColumnType type, Object values, BitSet nulls, String[] dictionary) {
+      this.type = type;
+      this.values = values;
+      this.nulls = nulls;
+      this.dictionary = dictionary;
+    }
+  }
+
+  /**
+   * Accumulates rows of a {@link ResultSet} into growable column buffers.
+   */
+  public static class Builder {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final List<String> columnNames;
+    private final ColumnType[] types;
+    private final TypeHandler<?>[] typeHandlers;
+    private final long[][] longs;
+    private final double[][] doubles;
+    private final int[][] codes;
+    private final Object[][] objects;
+    private final BitSet[] nulls;
+    private final List<Map<String, Integer>> dictionaries;
+    private int capacity = INITIAL_CAPACITY;
+    private int rowCount;
+
+    /**
+     * @param columnNames the result set column names
+     * @param columnTypes the column type of each column, see {@link ColumnarResult#columnTypeFor(JdbcType, int, int)}
+     * @param typeHandlers the handler used for {@link ColumnType#OBJECT} columns, may hold {@code null} for other columns
+     */
+    public Builder(List<String> columnNames, List<ColumnType> columnTypes, List<TypeHandler<?>> typeHandlers) {
+      int columnCount = columnNames.size();
+      this.columnNames = columnNames;
+      this.types = new ColumnType[columnCount];
+      this.typeHandlers = typeHandlers.toArray(new TypeHandler<?>[columnCount]);
+      this.longs = new long[columnCount][];
+      this.doubles = new double[columnCount][];
+      this.codes = new int[columnCount][];
+      this.objects = new Object[columnCount][];
+      this.nulls = new BitSet[columnCount];
+      this.dictionaries = new ArrayList<>(columnCount);
+      for (int i = 0; i < columnCount; i++) {
+        types[i] = columnTypes.get(i);
+        nulls[i] = new BitSet();
+        dictionaries.add(types[i] == ColumnType.STRING ? new HashMap<>() : null);
+        switch (types[i]) {
+          case LONG:
+            longs[i] = new long[capacity];
+            break;
+          case DOUBLE:
+            doubles[i] = new double[capacity];
+            break;
+          case STRING:
+            codes[i] = new int[capacity];
+            break;
+          default:
+            objects[i] = new Object[capacity];
+        }
+      }
+    }
+
+    /**
+     * Reads the current row of the result set, by column index.
+     */
+    public void addRow(ResultSet rs) throws SQLException {
+      if (rowCount == capacity) {
+        grow();
+      }
+      for (int i = 0; i < types.length; i++) {
+        final int columnIndex = i + 1;
+        switch (types[i]) {
+          case LONG:
+            longs[i][rowCount] = rs.getLong(columnIndex);
+            if (rs.wasNull()) {
+              nulls[i].set(rowCount);
+            }
+            break;
+          case DOUBLE:
+            doubles[i][rowCount] = rs.getDouble(columnIndex);
+            if (rs.wasNull()) {
+              nulls[i].set(rowCount);
+            }
+            break;
+          case STRING:
+            String value = rs.getString(columnIndex);
+            if (value == null) {
+              codes[i][rowCount] = -1;
+              nulls[i].set(rowCount);
+            } else {
+              Map<String, Integer> dictionary = dictionaries.get(i);
+              Integer code = dictionary.get(value);
+              if (code == null) {
+                code = dictionary.size();
+                dictionary.put(value, code);
+              }
+              codes[i][rowCount] = code;
+            }
+            break;
+          default:
+            Object object = typeHandlers[i].getResult(rs, columnIndex);
+            objects[i][rowCount] = object;
+            if (object == null) {
+              nulls[i].set(rowCount);
+            }
+        }
+      }
+      rowCount++;
+    }
+
+    public int getRowCount() {
+      return rowCount;
+    }
+
+    public ColumnarResult build() {
+      Column[] columns = new Column[types.length];
+      for (int i = 0; i < types.length; i++) {
+        switch (types[i]) {
+          case LONG:
+            columns[i] = new Column(types[i], Arrays.copyOf(longs[i], rowCount), nulls[i], null);
+            break;
+          case DOUBLE:
+            columns[i] = new Column(types[i], Arrays.copyOf(doubles[i], rowCount), nulls[i], null);
+            break;
+          case STRING:
+            Map<String, Integer> dictionary = dictionaries.get(i);
+            String[] values = new String[dictionary.size()];
+            for (Map.Entry<String, Integer> entry : dictionary.entrySet()) {
+              values[entry.getValue()] = entry.getKey();
+            }
+            columns[i] = new Column(types[i], Arrays.copyOf(codes[i], rowCount), nulls[i], values);
+            break;
+          default:
+            columns[i] = new Column(types[i], Arrays.copyOf(objects[i], rowCount), nulls[i], null);
+        }
+      }
+      return new ColumnarResult(columnNames, columns, rowCount);
+    }
+
+    private void grow() {
+      capacity = capacity << 1;
+      for (int i = 0; i < types.length; i++) {
+        switch (types[i]) {
+          case LONG:
+            longs[i] = Arrays.copyOf(longs[i], capacity);
+            break;
+          case DOUBLE:
+            doubles[i] = Arrays.copyOf(doubles[i], capacity);
+            break;
+          case STRING:
+            codes[i] = Arrays.copyOf(codes[i], capacity);
+            break;
+          default:
+            objects[i] = Arrays.copyOf(objects[i], capacity);
+        }
+      }
+    }
+  }
+
+}
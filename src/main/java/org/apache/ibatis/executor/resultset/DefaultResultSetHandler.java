@@ -26,9 +26,12 @@ import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.executor.loader.ResultLoader;
 import org.apache.ibatis.executor.loader.ResultLoaderMap;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.result.ColumnarResult;
 import org.apache.ibatis.executor.result.DefaultResultContext;
 import org.apache.ibatis.executor.result.DefaultResultHandler;
 import org.apache.ibatis.executor.result.ResultMapException;
+import org.apache.ibatis.executor.statement.StatementProfile;
+import org.apache.ibatis.executor.statement.StatementProfile.Phase;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.Discriminator;
 import org.apache.ibatis.mapping.MappedStatement;
@@ -36,25 +39,33 @@ import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
 import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.metrics.MetricsCollector;
 import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.PrimitiveSetInvoker;
+import org.apache.ibatis.reflection.wrapper.BeanWrapper;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
 import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultContext;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.PrimitiveTypeHandler;
 import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
 
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
 import java.sql.CallableStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -71,6 +82,12 @@ import java.util.Set;
 public class DefaultResultSetHandler implements ResultSetHandler {
 
   private static final Object DEFERRED = new Object();
+  private static final ClassValue<Boolean> READS_PRIMITIVES_LIKE_NULLABLE_RESULT = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue(Class<?> type) {
+      return readsPrimitivesLikeNullableResult(type);
+    }
+  };
 
   private final Executor executor;
   private final Configuration configuration;
@@ -83,37 +100,101 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private final ObjectFactory objectFactory;
   private final ReflectorFactory reflectorFactory;
 
+  // A handler is created per statement execution and most statements map neither nested result maps nor
+  // multiple result sets, so the state below is only allocated when one of them is actually handled.
+
   // nested resultmaps
-  private final Map<CacheKey, Object> nestedResultObjects = new HashMap<>();
-  private final Map<String, Object> ancestorObjects = new HashMap<>();
+  private Map<CacheKey, Object> nestedResultObjects;
+  private Map<String, Object> ancestorObjects;
   private Object previousRowValue;
+  private Map<String, RowKeyColumn[]> rowKeyColumnsCache;
+  private ResultSetWrapper rowKeyColumnsResultSet;
 
   // multiple resultsets
-  private final Map<String, ResultMapping> nextResultMaps = new HashMap<>();
-  private final Map<CacheKey, List<PendingRelation>> pendingRelations = new HashMap<>();
+  private Map<String, ResultMapping> nextResultMaps = Collections.emptyMap();
+  private Map<CacheKey, List<PendingRelation>> pendingRelations = Collections.emptyMap();
 
   // Cached Automappings
   private final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = new HashMap<>();
 
+  // Cached setters of property mappings
+  private final Map<String, PropertyMappingSetters> propertyMappingSettersCache = new HashMap<>();
+
   // temporary marking flag that indicate using constructor mapping (use field to reduce memory usage)
   private boolean useConstructorMappings;
 
+  // top level rows mapped, reported to the metrics collector and the statement profile
+  private long rowsMapped;
+
+  // times row fetching apart from mapping, null unless the execution is profiled
+  private StatementProfile profile;
+
   private static class PendingRelation {
     public MetaObject metaObject;
     public ResultMapping propertyMapping;
   }
 
+  /**
+   * Setters resolved for the property mappings of a result map, aligned with ResultMap#getPropertyResultMappings.
+   * A null element means the property is set through the MetaObject of the result object.
+   */
+  private static class PropertyMappingSetters {
+    private final PrimitiveSetInvoker[] primitiveSetInvokers;
+    private final PropertySetter[] propertySetters;
+
+    private PropertyMappingSetters(PrimitiveSetInvoker[] primitiveSetInvokers, PropertySetter[] propertySetters) {
+      this.primitiveSetInvokers = primitiveSetInvokers;
+      this.propertySetters = propertySetters;
+    }
+  }
+
   private static class UnMappedColumnAutoMapping {
     private final String column;
     private final String property;
     private final TypeHandler<?> typeHandler;
     private final boolean primitive;
-
-    public UnMappedColumnAutoMapping(String column, String property, TypeHandler<?> typeHandler, boolean primitive) {
+    private final PrimitiveSetInvoker primitiveSetInvoker;
+    private final PropertySetter propertySetter;
+    // the cached mappings outlive a result set, so the index is re-resolved when the column layout changes
+    private ResultSetLayout indexedLayout;
+    private int columnIndex;
+
+    public UnMappedColumnAutoMapping(String column, String property, TypeHandler<?> typeHandler, boolean primitive, PrimitiveSetInvoker primitiveSetInvoker,
+                                     PropertySetter propertySetter) {
       this.column = column;
       this.property = property;
       this.typeHandler = typeHandler;
       this.primitive = primitive;
+      this.primitiveSetInvoker = primitiveSetInvoker;
+      this.propertySetter = propertySetter;
+    }
+
+    private int getColumnIndex(ResultSetWrapper rsw) {
+      if (indexedLayout != rsw.getLayout()) {
+        columnIndex = rsw.getColumnIndex(column);
+        indexedLayout = rsw.getLayout();
+      }
+      return columnIndex;
+    }
+  }
+
+  private static class RowKeyColumn {
+    private final String column;
+    private final int columnIndex;
+    // null when the column is compared by its string value
+    private final TypeHandler<?> typeHandler;
+
+    private RowKeyColumn(String column, int columnIndex, TypeHandler<?> typeHandler) {
+      this.column = column;
+      this.columnIndex = columnIndex;
+      this.typeHandler = typeHandler;
+    }
+
+    private Object getValue(ResultSet rs) throws SQLException {
+      if (typeHandler != null) {
+        return columnIndex > 0 ? typeHandler.getResult(rs, columnIndex) : typeHandler.getResult(rs, column);
+      }
+      return columnIndex > 0 ? rs.getString(columnIndex) : rs.getString(column);
     }
   }
 
@@ -131,6 +212,20 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     this.resultHandler = resultHandler;
   }
 
+  /**
+   * Sets the profile of the execution, so that moving to the next row is timed as fetching.
+   */
+  public void setStatementProfile(StatementProfile profile) {
+    this.profile = profile;
+  }
+
+  /**
+   * Returns the top level rows mapped so far, including those passed to a result handler.
+   */
+  public long getRowsMapped() {
+    return rowsMapped;
+  }
+
   //
   // HANDLE OUTPUT PARAMETER
   //
@@ -160,7 +255,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     try {
       final String resultMapId = parameterMapping.getResultMapId();
       final ResultMap resultMap = configuration.getResultMap(resultMapId);
-      final ResultSetWrapper rsw = new ResultSetWrapper(rs, configuration);
+      final ResultSetWrapper rsw = new ResultSetWrapper(rs, mappedStatement);
       if (this.resultHandler == null) {
         final DefaultResultHandler resultHandler = new DefaultResultHandler(objectFactory);
         handleRowValues(rsw, resultMap, resultHandler, new RowBounds(), null);
@@ -212,6 +307,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       }
     }
 
+    final MetricsCollector metrics = configuration.getMetricsCollector();
+    if (metrics != null) {
+      metrics.recordRows(mappedStatement, rowsMapped);
+    }
     return collapseSingleResultList(multipleResults);
   }
 
@@ -230,6 +329,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
 
     ResultMap resultMap = resultMaps.get(0);
+    // the statement handler finishes the profile when the cursor is returned, its rows are not timed
+    profile = null;
     return new DefaultCursor<>(this, resultMap, rsw, rowBounds);
   }
 
@@ -247,7 +348,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
       }
     }
-    return rs != null ? new ResultSetWrapper(rs, configuration) : null;
+    return rs != null ? new ResultSetWrapper(rs, mappedStatement) : null;
   }
 
   private ResultSetWrapper getNextResultSet(Statement stmt) {
@@ -260,7 +361,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           if (rs == null) {
             return getNextResultSet(stmt);
           } else {
-            return new ResultSetWrapper(rs, configuration);
+            return new ResultSetWrapper(rs, mappedStatement);
           }
         }
       }
@@ -281,7 +382,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   }
 
   private void cleanUpAfterHandlingResultSet() {
-    nestedResultObjects.clear();
+    if (nestedResultObjects != null) {
+      nestedResultObjects.clear();
+    }
   }
 
   private void validateResultMapsCount(ResultSetWrapper rsw, int resultMapCount) {
@@ -295,6 +398,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     try {
       if (parentMapping != null) {
         handleRowValues(rsw, resultMap, null, RowBounds.DEFAULT, parentMapping);
+      } else if (ColumnarResult.class.equals(resultMap.getType())) {
+        handleColumnarResult(rsw, multipleResults);
       } else {
         if (resultHandler == null) {
           DefaultResultHandler defaultResultHandler = new DefaultResultHandler(objectFactory);
@@ -310,6 +415,38 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
   }
 
+  //
+  // HANDLE COLUMNAR RESULT
+  //
+
+  private void handleColumnarResult(ResultSetWrapper rsw, List<Object> multipleResults) throws SQLException {
+    final List<String> columnNames = rsw.getColumnNames();
+    final ResultSet resultSet = rsw.getResultSet();
+    final ResultSetMetaData metaData = resultSet.getMetaData();
+    final List<ColumnarResult.ColumnType> columnTypes = new ArrayList<>(columnNames.size());
+    final List<TypeHandler<?>> typeHandlers = new ArrayList<>(columnNames.size());
+    for (int i = 0; i < columnNames.size(); i++) {
+      final ColumnarResult.ColumnType columnType = ColumnarResult.columnTypeFor(rsw.getJdbcTypes().get(i),
+          metaData.getPrecision(i + 1), metaData.getScale(i + 1));
+      columnTypes.add(columnType);
+      typeHandlers.add(columnType == ColumnarResult.ColumnType.OBJECT ? rsw.getTypeHandler(Object.class, columnNames.get(i)) : null);
+    }
+    final ColumnarResult.Builder builder = new ColumnarResult.Builder(columnNames, columnTypes, typeHandlers);
+    skipRows(resultSet, rowBounds);
+    while (builder.getRowCount() < rowBounds.getLimit() && !resultSet.isClosed() && nextRow(resultSet)) {
+      builder.addRow(resultSet);
+    }
+    final ColumnarResult columnarResult = builder.build();
+    rowsMapped += columnarResult.getRowCount();
+    if (resultHandler == null) {
+      final List<Object> resultList = new ArrayList<>(1);
+      resultList.add(columnarResult);
+      multipleResults.add(resultList);
+    } else {
+      callResultHandler(resultHandler, new DefaultResultContext<>(), columnarResult);
+    }
+  }
+
   @SuppressWarnings("unchecked")
   private List<Object> collapseSingleResultList(List<Object> multipleResults) {
     return multipleResults.size() == 1 ? (List<Object>) multipleResults.get(0) : multipleResults;
@@ -349,7 +486,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     DefaultResultContext<Object> resultContext = new DefaultResultContext<>();
     ResultSet resultSet = rsw.getResultSet();
     skipRows(resultSet, rowBounds);
-    while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
+    while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && nextRow(resultSet)) {
       ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
       Object rowValue = getRowValue(rsw, discriminatedResultMap, null);
       storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
@@ -360,6 +497,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     if (parentMapping != null) {
       linkToParents(rs, parentMapping, rowValue);
     } else {
+      rowsMapped++;
       callResultHandler(resultHandler, resultContext, rowValue);
     }
   }
@@ -374,6 +512,19 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return !context.isStopped() && context.getResultCount() < rowBounds.getLimit();
   }
 
+  /**
+   * Moves to the next row, timing the move as fetching when the execution is profiled.
+   */
+  private boolean nextRow(ResultSet rs) throws SQLException {
+    if (profile == null) {
+      return rs.next();
+    }
+    profile.enter(Phase.FETCH);
+    final boolean hasRow = rs.next();
+    profile.enter(Phase.MAP);
+    return hasRow;
+  }
+
   private void skipRows(ResultSet rs, RowBounds rowBounds) throws SQLException {
     if (rs.getType() != ResultSet.TYPE_FORWARD_ONLY) {
       if (rowBounds.getOffset() != RowBounds.NO_ROW_OFFSET) {
@@ -381,7 +532,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       }
     } else {
       for (int i = 0; i < rowBounds.getOffset(); i++) {
-        if (!rs.next()) {
+        if (!nextRow(rs)) {
           break;
         }
       }
@@ -429,16 +580,31 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
     boolean foundValues = false;
     final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
-    for (ResultMapping propertyMapping : propertyMappings) {
+    final PropertyMappingSetters setters = getPropertyMappingSetters(resultMap, metaObject, columnPrefix);
+    final PrimitiveSetInvoker[] primitiveSetInvokers = setters.primitiveSetInvokers;
+    final int[] columnIndexes = rsw.getMappedColumnIndexes(resultMap, columnPrefix);
+    for (int i = 0; i < propertyMappings.size(); i++) {
+      final ResultMapping propertyMapping = propertyMappings.get(i);
       String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
       if (propertyMapping.getNestedResultMapId() != null) {
         // the user added a column attribute to a nested result map, ignore it
         column = null;
       }
+      // a resolved index means the column is both mapped and present in the result set
+      final int columnIndex = columnIndexes[i];
+      final boolean mappedColumn = columnIndex > 0
+          || (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH)));
+      if (primitiveSetInvokers[i] != null) {
+        if (mappedColumn) {
+          foundValues = applyPrimitiveValue(rsw.getResultSet(), column, columnIndex, (PrimitiveTypeHandler) propertyMapping.getTypeHandler(),
+              primitiveSetInvokers[i], metaObject.getOriginalObject()) || foundValues;
+        }
+        continue;
+      }
       if (propertyMapping.isCompositeResult()
-          || (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH)))
+          || mappedColumn
           || propertyMapping.getResultSet() != null) {
-        Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix);
+        Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix, columnIndex);
         // issue #541 make property optional
         final String property = propertyMapping.getProperty();
         if (property == null) {
@@ -450,17 +616,140 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         if (value != null) {
           foundValues = true;
         }
-        if (value != null || (configuration.isCallSettersOnNulls() && !metaObject.getSetterType(property).isPrimitive())) {
+        final PropertySetter propertySetter = setters.propertySetters[i];
+        if (value != null || (configuration.isCallSettersOnNulls()
+            && !(propertySetter != null ? propertySetter.getType() : metaObject.getSetterType(property)).isPrimitive())) {
           // gcode issue #377, call setter on nulls (value is not 'found')
-          metaObject.setValue(property, value);
+          if (propertySetter != null) {
+            propertySetter.set(metaObject.getOriginalObject(), value);
+          } else {
+            metaObject.setValue(property, value);
+          }
         }
       }
     }
     return foundValues;
   }
 
-  private Object getPropertyMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
-      throws SQLException {
+  private PropertyMappingSetters getPropertyMappingSetters(ResultMap resultMap, MetaObject metaObject, String columnPrefix) {
+    final String mapKey = resultMap.getId() + ":" + columnPrefix;
+    PropertyMappingSetters setters = propertyMappingSettersCache.get(mapKey);
+    if (setters == null) {
+      final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
+      final PrimitiveSetInvoker[] primitiveSetInvokers = new PrimitiveSetInvoker[propertyMappings.size()];
+      final PropertySetter[] propertySetters = new PropertySetter[propertyMappings.size()];
+      for (int i = 0; i < propertyMappings.size(); i++) {
+        final ResultMapping propertyMapping = propertyMappings.get(i);
+        if (propertyMapping.getNestedQueryId() == null && propertyMapping.getNestedResultMapId() == null
+            && propertyMapping.getResultSet() == null && !propertyMapping.isCompositeResult()
+            && propertyMapping.getColumn() != null && propertyMapping.getProperty() != null) {
+          primitiveSetInvokers[i] = resolvePrimitiveSetInvoker(resultMap, metaObject, propertyMapping.getProperty(), propertyMapping.getTypeHandler());
+          propertySetters[i] = resolvePropertySetter(resultMap, metaObject, propertyMapping.getProperty());
+        }
+      }
+      setters = new PropertyMappingSetters(primitiveSetInvokers, propertySetters);
+      propertyMappingSettersCache.put(mapKey, setters);
+    }
+    return setters;
+  }
+
+  /**
+   * Whether properties of the result object can be set with invokers resolved from the result map type, which holds
+   * when the MetaObject of the result object would use a BeanWrapper of that type.
+   */
+  private boolean canSetPropertiesDirectly(ResultMap resultMap, MetaObject metaObject) {
+    return metaObject.getObjectWrapper() instanceof BeanWrapper && resultMap.getType().isInstance(metaObject.getOriginalObject());
+  }
+
+  /**
+   * Returns a setter resolved once for the result map, or {@code null} when the property has to be set through
+   * the MetaObject of each result object.
+   */
+  private PropertySetter resolvePropertySetter(ResultMap resultMap, MetaObject metaObject, String property) {
+    if (!canSetPropertiesDirectly(resultMap, metaObject)
+        // objects on a nested path could get a custom wrapper
+        || (property.indexOf('.') >= 0 && !(configuration.getObjectWrapperFactory() instanceof DefaultObjectWrapperFactory))) {
+      return null;
+    }
+    return PropertySetter.forProperty(resultMap.getType(), property, reflectorFactory, objectFactory);
+  }
+
+  /**
+   * Returns a setter that can store the column value without boxing it, or {@code null} when the property is not
+   * a top level primitive bean property of the exact type read by the type handler.
+   */
+  private PrimitiveSetInvoker resolvePrimitiveSetInvoker(ResultMap resultMap, MetaObject metaObject, String property, TypeHandler<?> typeHandler) {
+    if (!(typeHandler instanceof PrimitiveTypeHandler) || !READS_PRIMITIVES_LIKE_NULLABLE_RESULT.get(typeHandler.getClass())
+        || property.indexOf('.') >= 0 || property.indexOf('[') >= 0 || !canSetPropertiesDirectly(resultMap, metaObject)) {
+      return null;
+    }
+    final PrimitiveSetInvoker invoker = reflectorFactory.findForClass(resultMap.getType()).getPrimitiveSetInvoker(property);
+    if (invoker == null || invoker.getType() != ((PrimitiveTypeHandler) typeHandler).getPrimitiveType()) {
+      return null;
+    }
+    return invoker;
+  }
+
+  /**
+   * Whether the primitive accessors of a type handler class are declared at or below the class declaring its
+   * {@code getNullableResult}, so that a subclass overriding only {@code getNullableResult} is not bypassed.
+   */
+  private static boolean readsPrimitivesLikeNullableResult(Class<?> type) {
+    for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+      boolean readsPrimitives = false;
+      boolean readsNullableResult = false;
+      for (Method method : current.getDeclaredMethods()) {
+        if (method.isBridge() || method.getParameterCount() != 2) {
+          continue;
+        }
+        String name = method.getName();
+        if ("getInt".equals(name) || "getLong".equals(name) || "getDouble".equals(name)) {
+          readsPrimitives = true;
+        } else if ("getNullableResult".equals(name)) {
+          readsNullableResult = true;
+        }
+      }
+      if (readsPrimitives) {
+        return true;
+      }
+      if (readsNullableResult) {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  private boolean applyPrimitiveValue(ResultSet rs, String column, int columnIndex, PrimitiveTypeHandler typeHandler, PrimitiveSetInvoker invoker,
+                                      Object target) throws SQLException {
+    final Class<?> type = invoker.getType();
+    try {
+      if (type == int.class) {
+        final int value = columnIndex > 0 ? typeHandler.getInt(rs, columnIndex) : typeHandler.getInt(rs, column);
+        if (rs.wasNull()) {
+          return false;
+        }
+        invoker.setInt(target, value);
+      } else if (type == long.class) {
+        final long value = columnIndex > 0 ? typeHandler.getLong(rs, columnIndex) : typeHandler.getLong(rs, column);
+        if (rs.wasNull()) {
+          return false;
+        }
+        invoker.setLong(target, value);
+      } else {
+        final double value = columnIndex > 0 ? typeHandler.getDouble(rs, columnIndex) : typeHandler.getDouble(rs, column);
+        if (rs.wasNull()) {
+          return false;
+        }
+        invoker.setDouble(target, value);
+      }
+    } catch (SQLException e) {
+      throw new ResultMapException("Error attempting to get column '" + column + "' from result set.  Cause: " + e, e);
+    }
+    return true;
+  }
+
+  private Object getPropertyMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix,
+                                         int columnIndex) throws SQLException {
     if (propertyMapping.getNestedQueryId() != null) {
       return getNestedQueryMappingValue(rs, metaResultObject, propertyMapping, lazyLoader, columnPrefix);
     } else if (propertyMapping.getResultSet() != null) {
@@ -468,6 +757,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       return DEFERRED;
     } else {
       final TypeHandler<?> typeHandler = propertyMapping.getTypeHandler();
+      if (columnIndex > 0) {
+        return typeHandler.getResult(rs, columnIndex);
+      }
       final String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
       return typeHandler.getResult(rs, column);
     }
@@ -498,7 +790,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           final Class<?> propertyType = metaObject.getSetterType(property);
           if (typeHandlerRegistry.hasTypeHandler(propertyType, rsw.getJdbcType(columnName))) {
             final TypeHandler<?> typeHandler = rsw.getTypeHandler(propertyType, columnName);
-            autoMapping.add(new UnMappedColumnAutoMapping(columnName, property, typeHandler, propertyType.isPrimitive()));
+            autoMapping.add(new UnMappedColumnAutoMapping(columnName, property, typeHandler, propertyType.isPrimitive(),
+                resolvePrimitiveSetInvoker(resultMap, metaObject, property, typeHandler), resolvePropertySetter(resultMap, metaObject, property)));
           } else {
             configuration.getAutoMappingUnknownColumnBehavior()
                 .doAction(mappedStatement, columnName, property, propertyType);
@@ -518,13 +811,25 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     boolean foundValues = false;
     if (!autoMapping.isEmpty()) {
       for (UnMappedColumnAutoMapping mapping : autoMapping) {
-        final Object value = mapping.typeHandler.getResult(rsw.getResultSet(), mapping.column);
+        final int columnIndex = mapping.getColumnIndex(rsw);
+        if (mapping.primitiveSetInvoker != null) {
+          foundValues = applyPrimitiveValue(rsw.getResultSet(), mapping.column, columnIndex, (PrimitiveTypeHandler) mapping.typeHandler,
+              mapping.primitiveSetInvoker, metaObject.getOriginalObject()) || foundValues;
+          continue;
+        }
+        final Object value = columnIndex > 0
+            ? mapping.typeHandler.getResult(rsw.getResultSet(), columnIndex)
+            : mapping.typeHandler.getResult(rsw.getResultSet(), mapping.column);
         if (value != null) {
           foundValues = true;
         }
         if (value != null || (configuration.isCallSettersOnNulls() && !mapping.primitive)) {
           // gcode issue #377, call setter on nulls (value is not 'found')
-          metaObject.setValue(mapping.property, value);
+          if (mapping.propertySetter != null) {
+            mapping.propertySetter.set(metaObject.getOriginalObject(), value);
+          } else {
+            metaObject.setValue(mapping.property, value);
+          }
         }
       }
     }
@@ -550,6 +855,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     PendingRelation deferLoad = new PendingRelation();
     deferLoad.metaObject = metaResultObject;
     deferLoad.propertyMapping = parentMapping;
+    if (pendingRelations.isEmpty()) {
+      pendingRelations = new HashMap<>();
+      nextResultMaps = new HashMap<>();
+    }
     List<PendingRelation> relations = pendingRelations.computeIfAbsent(cacheKey, k -> new ArrayList<>());
     // issue #255
     relations.add(deferLoad);
@@ -669,7 +978,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       Class<?> parameterType = constructor.getParameterTypes()[i];
       String columnName = rsw.getColumnNames().get(i);
       TypeHandler<?> typeHandler = rsw.getTypeHandler(parameterType, columnName);
-      Object value = typeHandler.getResult(rsw.getResultSet(), prependPrefix(columnName, columnPrefix));
+      // without a prefix the i-th column is read, which is exactly column i + 1
+      Object value = columnPrefix == null
+          ? typeHandler.getResult(rsw.getResultSet(), i + 1)
+          : typeHandler.getResult(rsw.getResultSet(), prependPrefix(columnName, columnPrefix));
       constructorArgTypes.add(parameterType);
       constructorArgs.add(value);
       foundValues = value != null || foundValues;
@@ -702,15 +1014,18 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private Object createPrimitiveResultObject(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix) throws SQLException {
     final Class<?> resultType = resultMap.getType();
     final String columnName;
+    final int columnIndex;
     if (!resultMap.getResultMappings().isEmpty()) {
       final List<ResultMapping> resultMappingList = resultMap.getResultMappings();
       final ResultMapping mapping = resultMappingList.get(0);
       columnName = prependPrefix(mapping.getColumn(), columnPrefix);
+      columnIndex = rsw.getColumnIndex(columnName);
     } else {
       columnName = rsw.getColumnNames().get(0);
+      columnIndex = 1;
     }
     final TypeHandler<?> typeHandler = rsw.getTypeHandler(resultType, columnName);
-    return typeHandler.getResult(rsw.getResultSet(), columnName);
+    return columnIndex > 0 ? typeHandler.getResult(rsw.getResultSet(), columnIndex) : typeHandler.getResult(rsw.getResultSet(), columnName);
   }
 
   //
@@ -848,11 +1163,16 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   //
 
   private void handleRowValuesForNestedResultMap(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler, RowBounds rowBounds, ResultMapping parentMapping) throws SQLException {
+    if (nestedResultObjects == null) {
+      nestedResultObjects = new HashMap<>();
+      ancestorObjects = new HashMap<>();
+      rowKeyColumnsCache = new HashMap<>();
+    }
     final DefaultResultContext<Object> resultContext = new DefaultResultContext<>();
     ResultSet resultSet = rsw.getResultSet();
     skipRows(resultSet, rowBounds);
     Object rowValue = previousRowValue;
-    while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
+    while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && nextRow(resultSet)) {
       final ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
       final CacheKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
       Object partialObject = nestedResultObjects.get(rowKey);
@@ -1005,15 +1325,13 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private CacheKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
     final CacheKey cacheKey = new CacheKey();
     cacheKey.update(resultMap.getId());
-    List<ResultMapping> resultMappings = getResultMappingsForRowKey(resultMap);
-    if (resultMappings.isEmpty()) {
-      if (Map.class.isAssignableFrom(resultMap.getType())) {
-        createRowKeyForMap(rsw, cacheKey);
-      } else {
-        createRowKeyForUnmappedProperties(resultMap, rsw, cacheKey, columnPrefix);
+    final ResultSet rs = rsw.getResultSet();
+    for (RowKeyColumn rowKeyColumn : getRowKeyColumns(resultMap, rsw, columnPrefix)) {
+      final Object value = rowKeyColumn.getValue(rs);
+      if (value != null || (rowKeyColumn.typeHandler != null && configuration.isReturnInstanceForEmptyRow())) {
+        cacheKey.update(rowKeyColumn.column);
+        cacheKey.update(value);
       }
-    } else {
-      createRowKeyForMappedProperties(resultMap, rsw, cacheKey, resultMappings, columnPrefix);
     }
     if (cacheKey.getUpdateCount() < 2) {
       return CacheKey.NULL_CACHE_KEY;
@@ -1035,6 +1353,35 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return CacheKey.NULL_CACHE_KEY;
   }
 
+  /**
+   * Returns the columns that identify a row of the result map. They only depend on the result map, the column
+   * prefix and the columns of the result set, so they are resolved once per result set instead of once per row.
+   */
+  private RowKeyColumn[] getRowKeyColumns(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
+    if (rowKeyColumnsResultSet != rsw) {
+      rowKeyColumnsCache.clear();
+      rowKeyColumnsResultSet = rsw;
+    }
+    final String mapKey = resultMap.getId() + ":" + columnPrefix;
+    RowKeyColumn[] rowKeyColumns = rowKeyColumnsCache.get(mapKey);
+    if (rowKeyColumns == null) {
+      final List<RowKeyColumn> columns = new ArrayList<>();
+      List<ResultMapping> resultMappings = getResultMappingsForRowKey(resultMap);
+      if (resultMappings.isEmpty()) {
+        if (Map.class.isAssignableFrom(resultMap.getType())) {
+          addRowKeyColumnsForMap(rsw, columns);
+        } else {
+          addRowKeyColumnsForUnmappedProperties(resultMap, rsw, columns, columnPrefix);
+        }
+      } else {
+        addRowKeyColumnsForMappedProperties(resultMap, rsw, columns, resultMappings, columnPrefix);
+      }
+      rowKeyColumns = columns.toArray(new RowKeyColumn[0]);
+      rowKeyColumnsCache.put(mapKey, rowKeyColumns);
+    }
+    return rowKeyColumns;
+  }
+
   private List<ResultMapping> getResultMappingsForRowKey(ResultMap resultMap) {
     List<ResultMapping> resultMappings = resultMap.getIdResultMappings();
     if (resultMappings.isEmpty()) {
@@ -1043,30 +1390,26 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return resultMappings;
   }
 
-  private void createRowKeyForMappedProperties(ResultMap resultMap, ResultSetWrapper rsw, CacheKey cacheKey, List<ResultMapping> resultMappings, String columnPrefix) throws SQLException {
+  private void addRowKeyColumnsForMappedProperties(ResultMap resultMap, ResultSetWrapper rsw, List<RowKeyColumn> rowKeyColumns, List<ResultMapping> resultMappings,
+                                                   String columnPrefix) throws SQLException {
     for (ResultMapping resultMapping : resultMappings) {
       if (resultMapping.getNestedResultMapId() != null && resultMapping.getResultSet() == null) {
         // Issue #392
         final ResultMap nestedResultMap = configuration.getResultMap(resultMapping.getNestedResultMapId());
-        createRowKeyForMappedProperties(nestedResultMap, rsw, cacheKey, nestedResultMap.getConstructorResultMappings(),
+        addRowKeyColumnsForMappedProperties(nestedResultMap, rsw, rowKeyColumns, nestedResultMap.getConstructorResultMappings(),
             prependPrefix(resultMapping.getColumnPrefix(), columnPrefix));
       } else if (resultMapping.getNestedQueryId() == null) {
         final String column = prependPrefix(resultMapping.getColumn(), columnPrefix);
-        final TypeHandler<?> th = resultMapping.getTypeHandler();
         List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
         // Issue #114
         if (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
-          final Object value = th.getResult(rsw.getResultSet(), column);
-          if (value != null || configuration.isReturnInstanceForEmptyRow()) {
-            cacheKey.update(column);
-            cacheKey.update(value);
-          }
+          rowKeyColumns.add(new RowKeyColumn(column, rsw.getColumnIndex(column), resultMapping.getTypeHandler()));
         }
       }
     }
   }
 
-  private void createRowKeyForUnmappedProperties(ResultMap resultMap, ResultSetWrapper rsw, CacheKey cacheKey, String columnPrefix) throws SQLException {
+  private void addRowKeyColumnsForUnmappedProperties(ResultMap resultMap, ResultSetWrapper rsw, List<RowKeyColumn> rowKeyColumns, String columnPrefix) throws SQLException {
     final MetaClass metaType = MetaClass.forClass(resultMap.getType(), reflectorFactory);
     List<String> unmappedColumnNames = rsw.getUnmappedColumnNames(resultMap, columnPrefix);
     for (String column : unmappedColumnNames) {
@@ -1080,23 +1423,14 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
       }
       if (metaType.findProperty(property, configuration.isMapUnderscoreToCamelCase()) != null) {
-        String value = rsw.getResultSet().getString(column);
-        if (value != null) {
-          cacheKey.update(column);
-          cacheKey.update(value);
-        }
+        rowKeyColumns.add(new RowKeyColumn(column, rsw.getColumnIndex(column), null));
       }
     }
   }
 
-  private void createRowKeyForMap(ResultSetWrapper rsw, CacheKey cacheKey) throws SQLException {
-    List<String> columnNames = rsw.getColumnNames();
-    for (String columnName : columnNames) {
-      final String value = rsw.getResultSet().getString(columnName);
-      if (value != null) {
-        cacheKey.update(columnName);
-        cacheKey.update(value);
-      }
+  private void addRowKeyColumnsForMap(ResultSetWrapper rsw, List<RowKeyColumn> rowKeyColumns) {
+    for (String columnName : rsw.getColumnNames()) {
+      rowKeyColumns.add(new RowKeyColumn(columnName, rsw.getColumnIndex(columnName), null));
     }
   }
 
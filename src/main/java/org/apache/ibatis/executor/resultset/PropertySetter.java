@@ -0,0 +1,142 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+
+/**
+ * Sets a property of a result object through invokers resolved once per result map, instead of parsing the
+ * property path and wrapping every object on the path for each row as {@code MetaObject#setValue} does.
+ * <p>
+ * Only plain bean paths are supported, like {@code name} or {@code author.address.city}: every object on the
+ * path has to be a bean that is neither a map, a collection nor an array, and no segment may be indexed.
+ * Missing objects on the path are instantiated the way {@code MetaObject} does, unless the value is null.
+ */
+final class PropertySetter {
+
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
+  private final String property;
+  private final Invoker[] pathGetters;
+  private final Invoker[] pathSetters;
+  private final Class<?>[] pathTypes;
+  private final Invoker setter;
+  private final Class<?> type;
+  private final ObjectFactory objectFactory;
+
+  private PropertySetter(String property, Invoker[] pathGetters, Invoker[] pathSetters, Class<?>[] pathTypes, Invoker setter,
+                         Class<?> type, ObjectFactory objectFactory) {
+    this.property = property;
+    this.pathGetters = pathGetters;
+    this.pathSetters = pathSetters;
+    this.pathTypes = pathTypes;
+    this.setter = setter;
+    this.type = type;
+    this.objectFactory = objectFactory;
+  }
+
+  /**
+   * Resolves the invokers of a property of a bean type.
+   *
+   * @return the setter, or {@code null} if the property is not a plain bean path
+   */
+  static PropertySetter forProperty(Class<?> beanType, String property, ReflectorFactory reflectorFactory, ObjectFactory objectFactory) {
+    if (property == null || property.indexOf('[') >= 0) {
+      return null;
+    }
+    final String[] names = property.split("\\.", -1);
+    final Invoker[] pathGetters = new Invoker[names.length - 1];
+    final Invoker[] pathSetters = new Invoker[names.length - 1];
+    final Class<?>[] pathTypes = new Class<?>[names.length - 1];
+    Class<?> ownerType = beanType;
+    for (int i = 0; i < names.length; i++) {
+      if (!isPlainBean(ownerType)) {
+        return null;
+      }
+      final Reflector reflector = reflectorFactory.findForClass(ownerType);
+      final String name = names[i];
+      if (name.isEmpty() || !reflector.hasSetter(name)) {
+        return null;
+      }
+      if (i == names.length - 1) {
+        return new PropertySetter(property, pathGetters, pathSetters, pathTypes, reflector.getSetInvoker(name),
+            reflector.getSetterType(name), objectFactory);
+      }
+      if (!reflector.hasGetter(name)) {
+        return null;
+      }
+      pathGetters[i] = reflector.getGetInvoker(name);
+      pathSetters[i] = reflector.getSetInvoker(name);
+      // MetaObject instantiates a missing object with the setter type and keeps walking with what the getter returns
+      pathTypes[i] = reflector.getSetterType(name);
+      ownerType = reflector.getGetterType(name);
+      if (ownerType != pathTypes[i]) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * A runtime object of this type is wrapped in a {@code BeanWrapper}, whatever its actual class.
+   */
+  private static boolean isPlainBean(Class<?> type) {
+    return type != Object.class && !type.isInterface() && !type.isArray() && !type.isPrimitive()
+        && !Map.class.isAssignableFrom(type) && !Collection.class.isAssignableFrom(type);
+  }
+
+  Class<?> getType() {
+    return type;
+  }
+
+  void set(Object target, Object value) {
+    Object owner = target;
+    for (int i = 0; i < pathGetters.length; i++) {
+      Object child = invoke(pathGetters[i], owner, NO_ARGUMENTS, value);
+      if (child == null) {
+        if (value == null) {
+          // don't instantiate child path if value is null
+          return;
+        }
+        child = objectFactory.create(pathTypes[i]);
+        invoke(pathSetters[i], owner, new Object[] {child}, child);
+      }
+      owner = child;
+    }
+    invoke(setter, owner, new Object[] {value}, value);
+  }
+
+  private Object invoke(Invoker invoker, Object owner, Object[] args, Object value) {
+    try {
+      try {
+        return invoker.invoke(owner, args);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    } catch (Throwable t) {
+      throw new ReflectionException("Could not set property '" + property + "' of '" + owner.getClass() + "' with value '" + value + "' Cause: " + t.toString(), t);
+    }
+  }
+
+}
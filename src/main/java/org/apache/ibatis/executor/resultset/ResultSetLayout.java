@@ -0,0 +1,350 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.ObjectTypeHandler;
+import org.apache.ibatis.type.TypeHandler;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.apache.ibatis.type.UnknownTypeHandler;
+
+/**
+ * The columns of a result set together with everything derived from them: column indexes, type handlers and the
+ * mapped and unmapped columns of each result map.
+ * <p>
+ * None of it depends on the rows, so a statement keeps the layouts of its result sets in a {@link Cache} and
+ * repeated executions reuse them. A layout is shared between threads once cached.
+ */
+public class ResultSetLayout {
+
+  private final TypeHandlerRegistry typeHandlerRegistry;
+  private final boolean useColumnLabel;
+  private final List<String> columnNames;
+  private final List<String> classNames;
+  private final List<JdbcType> jdbcTypes;
+  private final int[] columnTypes;
+  private final Map<String, Integer> columnIndexMap;
+  private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new ConcurrentHashMap<>();
+  private final Map<Class<?>, TypeHandler<?>> nullColumnTypeHandlers = new ConcurrentHashMap<>();
+  private final Map<String, List<String>> mappedColumnNamesMap = new ConcurrentHashMap<>();
+  private final Map<String, List<String>> unMappedColumnNamesMap = new ConcurrentHashMap<>();
+  private final Map<String, int[]> mappedColumnIndexesMap = new ConcurrentHashMap<>();
+
+  public ResultSetLayout(ResultSetMetaData metaData, Configuration configuration) throws SQLException {
+    this(configuration, readColumnNames(metaData, configuration.isUseColumnLabel()), readColumnTypes(metaData),
+        readClassNames(metaData));
+  }
+
+  private ResultSetLayout(Configuration configuration, String[] columnNames, int[] columnTypes, String[] classNames) {
+    this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+    this.useColumnLabel = configuration.isUseColumnLabel();
+    final int columnCount = columnNames.length;
+    final List<JdbcType> jdbcTypes = new ArrayList<>(columnCount);
+    for (int columnType : columnTypes) {
+      jdbcTypes.add(JdbcType.forCode(columnType));
+    }
+    this.columnNames = Collections.unmodifiableList(Arrays.asList(columnNames));
+    this.classNames = Collections.unmodifiableList(Arrays.asList(classNames));
+    this.jdbcTypes = Collections.unmodifiableList(jdbcTypes);
+    this.columnTypes = columnTypes;
+    this.columnIndexMap = new HashMap<>(columnCount * 4 / 3 + 1);
+    // Drivers resolve getXxx(String) by column label, so indexes are only equivalent when labels are used
+    if (useColumnLabel) {
+      for (int i = 0; i < columnCount; i++) {
+        final String columnName = columnNames[i];
+        if (columnName != null) {
+          // like ResultSet#findColumn, the first column with a given label wins
+          columnIndexMap.putIfAbsent(columnName.toUpperCase(Locale.ENGLISH), i + 1);
+        }
+      }
+    }
+  }
+
+  private static String[] readColumnNames(ResultSetMetaData metaData, boolean useColumnLabel) throws SQLException {
+    final String[] columnNames = new String[metaData.getColumnCount()];
+    for (int i = 1; i <= columnNames.length; i++) {
+      columnNames[i - 1] = useColumnLabel ? metaData.getColumnLabel(i) : metaData.getColumnName(i);
+    }
+    return columnNames;
+  }
+
+  private static int[] readColumnTypes(ResultSetMetaData metaData) throws SQLException {
+    final int[] columnTypes = new int[metaData.getColumnCount()];
+    for (int i = 1; i <= columnTypes.length; i++) {
+      columnTypes[i - 1] = metaData.getColumnType(i);
+    }
+    return columnTypes;
+  }
+
+  private static String[] readClassNames(ResultSetMetaData metaData) throws SQLException {
+    final String[] classNames = new String[metaData.getColumnCount()];
+    for (int i = 1; i <= classNames.length; i++) {
+      classNames[i - 1] = metaData.getColumnClassName(i);
+    }
+    return classNames;
+  }
+
+  private boolean hasColumnNames(String[] columnNames, boolean useColumnLabel) {
+    return this.useColumnLabel == useColumnLabel && this.columnNames.equals(Arrays.asList(columnNames));
+  }
+
+  /**
+   * The class names are part of the match since type handlers of columns without a more specific handler are
+   * resolved from them.
+   */
+  private boolean hasColumnTypes(int[] columnTypes, String[] classNames) {
+    return Arrays.equals(this.columnTypes, columnTypes) && this.classNames.equals(Arrays.asList(classNames));
+  }
+
+  public List<String> getColumnNames() {
+    return columnNames;
+  }
+
+  public List<String> getClassNames() {
+    return classNames;
+  }
+
+  public List<JdbcType> getJdbcTypes() {
+    return jdbcTypes;
+  }
+
+  public JdbcType getJdbcType(String columnName) {
+    for (int i = 0 ; i < columnNames.size(); i++) {
+      if (columnName == null ? columnNames.get(i) == null : columnName.equalsIgnoreCase(columnNames.get(i))) {
+        return jdbcTypes.get(i);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @see ResultSetWrapper#getTypeHandler(Class, String)
+   */
+  public TypeHandler<?> getTypeHandler(Class<?> propertyType, String columnName) {
+    // some drivers report null column labels, which a concurrent map cannot hold as a key
+    Map<Class<?>, TypeHandler<?>> columnHandlers = columnName == null
+        ? nullColumnTypeHandlers : typeHandlerMap.computeIfAbsent(columnName, k -> new ConcurrentHashMap<>());
+    TypeHandler<?> handler = columnHandlers.get(propertyType);
+    if (handler == null) {
+      JdbcType jdbcType = getJdbcType(columnName);
+      handler = typeHandlerRegistry.getTypeHandler(propertyType, jdbcType);
+      // Replicate logic of UnknownTypeHandler#resolveTypeHandler
+      // See issue #59 comment 10
+      if (handler == null || handler instanceof UnknownTypeHandler) {
+        final int index = columnNames.indexOf(columnName);
+        final Class<?> javaType = resolveClass(classNames.get(index));
+        if (javaType != null && jdbcType != null) {
+          handler = typeHandlerRegistry.getTypeHandler(javaType, jdbcType);
+        } else if (javaType != null) {
+          handler = typeHandlerRegistry.getTypeHandler(javaType);
+        } else if (jdbcType != null) {
+          handler = typeHandlerRegistry.getTypeHandler(jdbcType);
+        }
+      }
+      if (handler == null || handler instanceof UnknownTypeHandler) {
+        handler = new ObjectTypeHandler();
+      }
+      columnHandlers.put(propertyType, handler);
+    }
+    return handler;
+  }
+
+  private Class<?> resolveClass(String className) {
+    try {
+      // #699 className could be null
+      if (className != null) {
+        return Resources.classForName(className);
+      }
+    } catch (ClassNotFoundException e) {
+      // ignore
+    }
+    return null;
+  }
+
+  private void loadMappedAndUnmappedColumnNames(ResultMap resultMap, String columnPrefix) {
+    List<String> mappedColumnNames = new ArrayList<>();
+    List<String> unmappedColumnNames = new ArrayList<>();
+    final String upperColumnPrefix = columnPrefix == null ? null : columnPrefix.toUpperCase(Locale.ENGLISH);
+    final Set<String> mappedColumns = prependPrefixes(resultMap.getMappedColumns(), upperColumnPrefix);
+    for (String columnName : columnNames) {
+      final String upperColumnName = columnName.toUpperCase(Locale.ENGLISH);
+      if (mappedColumns.contains(upperColumnName)) {
+        mappedColumnNames.add(upperColumnName);
+      } else {
+        unmappedColumnNames.add(columnName);
+      }
+    }
+    // unmapped first, a thread finding the mapped names also finds the unmapped ones
+    unMappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), Collections.unmodifiableList(unmappedColumnNames));
+    mappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), Collections.unmodifiableList(mappedColumnNames));
+  }
+
+  public List<String> getMappedColumnNames(ResultMap resultMap, String columnPrefix) {
+    List<String> mappedColumnNames = mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
+    if (mappedColumnNames == null) {
+      loadMappedAndUnmappedColumnNames(resultMap, columnPrefix);
+      mappedColumnNames = mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
+    }
+    return mappedColumnNames;
+  }
+
+  public List<String> getUnmappedColumnNames(ResultMap resultMap, String columnPrefix) {
+    List<String> unMappedColumnNames = unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
+    if (unMappedColumnNames == null) {
+      loadMappedAndUnmappedColumnNames(resultMap, columnPrefix);
+      unMappedColumnNames = unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
+    }
+    return unMappedColumnNames;
+  }
+
+  /**
+   * @see ResultSetWrapper#getColumnIndex(String)
+   */
+  public int getColumnIndex(String columnName) {
+    if (columnName == null) {
+      return -1;
+    }
+    final Integer index = columnIndexMap.get(columnName.toUpperCase(Locale.ENGLISH));
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * @see ResultSetWrapper#getMappedColumnIndexes(ResultMap, String)
+   */
+  public int[] getMappedColumnIndexes(ResultMap resultMap, String columnPrefix) {
+    final String mapKey = getMapKey(resultMap, columnPrefix);
+    int[] columnIndexes = mappedColumnIndexesMap.get(mapKey);
+    if (columnIndexes == null) {
+      final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
+      columnIndexes = new int[propertyMappings.size()];
+      for (int i = 0; i < columnIndexes.length; i++) {
+        final ResultMapping propertyMapping = propertyMappings.get(i);
+        if (propertyMapping.getColumn() == null || propertyMapping.isCompositeResult()
+            || propertyMapping.getNestedResultMapId() != null) {
+          columnIndexes[i] = -1;
+        } else {
+          columnIndexes[i] = getColumnIndex(prependPrefix(propertyMapping.getColumn(), columnPrefix));
+        }
+      }
+      mappedColumnIndexesMap.put(mapKey, columnIndexes);
+    }
+    return columnIndexes;
+  }
+
+  private String prependPrefix(String columnName, String prefix) {
+    if (columnName == null || columnName.length() == 0 || prefix == null || prefix.length() == 0) {
+      return columnName;
+    }
+    return prefix + columnName;
+  }
+
+  private String getMapKey(ResultMap resultMap, String columnPrefix) {
+    return resultMap.getId() + ":" + columnPrefix;
+  }
+
+  private Set<String> prependPrefixes(Set<String> columnNames, String prefix) {
+    if (columnNames == null || columnNames.isEmpty() || prefix == null || prefix.length() == 0) {
+      return columnNames;
+    }
+    final Set<String> prefixed = new HashSet<>();
+    for (String columnName : columnNames) {
+      prefixed.add(prefix + columnName);
+    }
+    return prefixed;
+  }
+
+  /**
+   * The layouts of the result sets a statement returned so far, see {@link MappedStatement#getResultSetLayouts()}.
+   * Statements building their column list dynamically can return many layouts, only the first
+   * {@value #MAX_LAYOUTS} are kept.
+   */
+  public static class Cache {
+
+    static final int MAX_LAYOUTS = 8;
+
+    private final AtomicReference<ResultSetLayout[]> layouts = new AtomicReference<>(new ResultSetLayout[0]);
+
+    /**
+     * Returns the cached layout of a result set with the same columns or caches a new one. The column count and the
+     * column names are read once and pick the candidates, the JDBC types and class names are then only read for a
+     * layout with the same names, so a hit still reads them once per execution.
+     */
+    public ResultSetLayout getLayout(ResultSetMetaData metaData, Configuration configuration) throws SQLException {
+      ResultSetLayout[] current = layouts.get();
+      final boolean useColumnLabel = configuration.isUseColumnLabel();
+      final int columnCount = metaData.getColumnCount();
+      String[] columnNames = null;
+      int[] columnTypes = null;
+      String[] classNames = null;
+      for (ResultSetLayout layout : current) {
+        if (layout.columnTypes.length != columnCount) {
+          continue;
+        }
+        if (columnNames == null) {
+          columnNames = readColumnNames(metaData, useColumnLabel);
+        }
+        if (!layout.hasColumnNames(columnNames, useColumnLabel)) {
+          continue;
+        }
+        if (columnTypes == null) {
+          columnTypes = readColumnTypes(metaData);
+          classNames = readClassNames(metaData);
+        }
+        if (layout.hasColumnTypes(columnTypes, classNames)) {
+          return layout;
+        }
+      }
+      final ResultSetLayout layout = new ResultSetLayout(configuration,
+          columnNames != null ? columnNames : readColumnNames(metaData, useColumnLabel),
+          columnTypes != null ? columnTypes : readColumnTypes(metaData),
+          classNames != null ? classNames : readClassNames(metaData));
+      while (current.length < MAX_LAYOUTS) {
+        ResultSetLayout[] updated = new ResultSetLayout[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = layout;
+        if (layouts.compareAndSet(current, updated)) {
+          break;
+        }
+        current = layouts.get();
+      }
+      return layout;
+    }
+
+    public int size() {
+      return layouts.get().length;
+    }
+  }
+
+}
@@ -18,16 +18,23 @@ package org.apache.ibatis.executor.statement;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.List;
 
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.executor.statement.StatementProfile.Phase;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Plugin;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -38,6 +45,9 @@ import org.apache.ibatis.type.TypeHandlerRegistry;
  */
 public abstract class BaseStatementHandler implements StatementHandler {
 
+  private static final Log log = LogFactory.getLog(BaseStatementHandler.class);
+  private static volatile boolean degradedProfileWarned;
+
   protected final Configuration configuration;
   protected final ObjectFactory objectFactory;
   protected final TypeHandlerRegistry typeHandlerRegistry;
@@ -49,6 +59,12 @@ public abstract class BaseStatementHandler implements StatementHandler {
   protected final RowBounds rowBounds;
 
   protected BoundSql boundSql;
+  /**
+   * Times the phases of this execution, {@code null} when nothing consumes the timings.
+   */
+  protected final StatementProfile profile;
+  // the result set handler behind any plugin proxies, null for handlers of another type
+  private final DefaultResultSetHandler defaultResultSetHandler;
 
   protected BaseStatementHandler(Executor executor, MappedStatement mappedStatement, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) {
     this.configuration = mappedStatement.getConfiguration();
@@ -65,9 +81,40 @@ public abstract class BaseStatementHandler implements StatementHandler {
     }
 
     this.boundSql = boundSql;
+    this.profile = StatementProfile.start(mappedStatement, boundSql);
 
     this.parameterHandler = configuration.newParameterHandler(mappedStatement, parameterObject, boundSql);
     this.resultSetHandler = configuration.newResultSetHandler(executor, mappedStatement, rowBounds, parameterHandler, resultHandler, boundSql);
+    // plugins may have wrapped the handlers, the hooks are set on the handlers themselves
+    this.defaultResultSetHandler = unwrap(resultSetHandler, DefaultResultSetHandler.class);
+    if (profile != null) {
+      if (profile.isRecordingParameters()) {
+        DefaultParameterHandler defaultParameterHandler = unwrap(parameterHandler, DefaultParameterHandler.class);
+        if (defaultParameterHandler != null) {
+          defaultParameterHandler.setBoundValueListener(profile::recordParameter);
+        } else {
+          warnDegradedProfile(parameterHandler, "bound parameters are not recorded");
+        }
+      }
+      if (defaultResultSetHandler != null) {
+        defaultResultSetHandler.setStatementProfile(profile);
+      } else {
+        warnDegradedProfile(resultSetHandler, "fetching is not timed apart from mapping and rows mapped to a result handler are not counted");
+      }
+    }
+  }
+
+  private static <T> T unwrap(Object handler, Class<T> type) {
+    Object target = Plugin.unwrap(handler);
+    return type.isInstance(target) ? type.cast(target) : null;
+  }
+
+  private static void warnDegradedProfile(Object handler, String degradation) {
+    if (!degradedProfileWarned) {
+      degradedProfileWarned = true;
+      log.warn("Statement profiling cannot reach " + handler.getClass().getName() + ", " + degradation
+          + ". This is only logged once.");
+    }
   }
 
   @Override
@@ -84,17 +131,40 @@ public abstract class BaseStatementHandler implements StatementHandler {
   public Statement prepare(Connection connection, Integer transactionTimeout) throws SQLException {
     ErrorContext.instance().sql(boundSql.getSql());
     Statement statement = null;
+    if (profile != null) {
+      profile.enter(Phase.PREPARE);
+    }
+    Throwable error = null;
     try {
       statement = instantiateStatement(connection);
       setStatementTimeout(statement, transactionTimeout);
       setFetchSize(statement);
       return statement;
     } catch (SQLException e) {
+      error = e;
       closeStatement(statement);
       throw e;
     } catch (Exception e) {
+      error = e;
       closeStatement(statement);
       throw new ExecutorException("Error preparing statement.  Cause: " + e, e);
+    } finally {
+      exitPhase(error);
+    }
+  }
+
+  /**
+   * Ends the running phase of the profile, or finishes the profile when the phase failed, since the execution
+   * goes no further.
+   */
+  protected void exitPhase(Throwable error) {
+    if (profile == null) {
+      return;
+    }
+    if (error == null) {
+      profile.exit();
+    } else {
+      profile.finish(-1, error);
     }
   }
 
@@ -125,6 +195,16 @@ public abstract class BaseStatementHandler implements StatementHandler {
     }
   }
 
+  /**
+   * Returns the number of rows a query mapped, also when they went to a result handler.
+   */
+  protected long rowsMapped(List<?> results) {
+    if (defaultResultSetHandler != null) {
+      return defaultResultSetHandler.getRowsMapped();
+    }
+    return results.size();
+  }
+
   protected void closeStatement(Statement statement) {
     try {
       if (statement != null) {
@@ -26,6 +26,7 @@ import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
+import org.apache.ibatis.executor.statement.StatementProfile.Phase;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
@@ -47,37 +48,95 @@ public class CallableStatementHandler extends BaseStatementHandler {
   @Override
   public int update(Statement statement) throws SQLException {
     CallableStatement cs = (CallableStatement) statement;
-    cs.execute();
-    int rows = cs.getUpdateCount();
-    Object parameterObject = boundSql.getParameterObject();
-    KeyGenerator keyGenerator = mappedStatement.getKeyGenerator();
-    keyGenerator.processAfter(executor, mappedStatement, cs, parameterObject);
-    resultSetHandler.handleOutputParameters(cs);
-    return rows;
+    if (profile != null) {
+      profile.enter(Phase.EXECUTE);
+    }
+    int rows = -1;
+    Throwable error = null;
+    try {
+      cs.execute();
+      rows = cs.getUpdateCount();
+      Object parameterObject = boundSql.getParameterObject();
+      KeyGenerator keyGenerator = mappedStatement.getKeyGenerator();
+      keyGenerator.processAfter(executor, mappedStatement, cs, parameterObject);
+      if (profile != null) {
+        profile.enter(Phase.MAP);
+      }
+      resultSetHandler.handleOutputParameters(cs);
+      return rows;
+    } catch (Throwable t) {
+      error = t;
+      throw t;
+    } finally {
+      if (profile != null) {
+        profile.finish(rows, error);
+      }
+    }
   }
 
   @Override
   public void batch(Statement statement) throws SQLException {
     CallableStatement cs = (CallableStatement) statement;
-    cs.addBatch();
+    Throwable error = null;
+    try {
+      cs.addBatch();
+    } catch (Throwable t) {
+      error = t;
+      throw t;
+    } finally {
+      if (profile != null) {
+        profile.finish(-1, error);
+      }
+    }
   }
 
   @Override
   public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
     CallableStatement cs = (CallableStatement) statement;
-    cs.execute();
-    List<E> resultList = resultSetHandler.handleResultSets(cs);
-    resultSetHandler.handleOutputParameters(cs);
-    return resultList;
+    if (profile != null) {
+      profile.enter(Phase.EXECUTE);
+    }
+    List<E> resultList = null;
+    Throwable error = null;
+    try {
+      cs.execute();
+      if (profile != null) {
+        profile.enter(Phase.MAP);
+      }
+      resultList = resultSetHandler.handleResultSets(cs);
+      resultSetHandler.handleOutputParameters(cs);
+      return resultList;
+    } catch (Throwable t) {
+      error = t;
+      throw t;
+    } finally {
+      if (profile != null) {
+        profile.finish(error == null ? rowsMapped(resultList) : -1, error);
+      }
+    }
   }
 
   @Override
   public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
     CallableStatement cs = (CallableStatement) statement;
-    cs.execute();
-    Cursor<E> resultList = resultSetHandler.handleCursorResultSets(cs);
-    resultSetHandler.handleOutputParameters(cs);
-    return resultList;
+    if (profile != null) {
+      profile.enter(Phase.EXECUTE);
+    }
+    Throwable error = null;
+    try {
+      cs.execute();
+      Cursor<E> resultList = resultSetHandler.handleCursorResultSets(cs);
+      resultSetHandler.handleOutputParameters(cs);
+      return resultList;
+    } catch (Throwable t) {
+      error = t;
+      throw t;
+    } finally {
+      if (profile != null) {
+        // rows are mapped while the cursor is iterated
+        profile.finish(-1, error);
+      }
+    }
   }
 
   @Override
@@ -92,8 +151,19 @@ public class CallableStatementHandler extends BaseStatementHandler {
 
   @Override
   public void parameterize(Statement statement) throws SQLException {
-    registerOutputParameters((CallableStatement) statement);
-    parameterHandler.setParameters((CallableStatement) statement);
+    if (profile != null) {
+      profile.enter(Phase.BIND);
+    }
+    Throwable error = null;
+    try {
+      registerOutputParameters((CallableStatement) statement);
+      parameterHandler.setParameters((CallableStatement) statement);
+    } catch (Throwable t) {
+      error = t;
+      throw t;
+    } finally {
+      exitPhase(error);
+    }
   }
 
   private void registerOutputParameters(CallableStatement cs) throws SQLException {
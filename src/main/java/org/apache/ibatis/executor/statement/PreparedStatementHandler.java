@@ -26,6 +26,7 @@ import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
+import org.apache.ibatis.executor.statement.StatementProfile.Phase;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ResultSetType;
@@ -44,32 +45,88 @@ public class PreparedStatementHandler extends BaseStatementHandler {
   @Override
   public int update(Statement statement) throws SQLException {
     PreparedStatement ps = (PreparedStatement) statement;
-    ps.execute();
-    int rows = ps.getUpdateCount();
-    Object parameterObject = boundSql.getParameterObject();
-    KeyGenerator keyGenerator = mappedStatement.getKeyGenerator();
-    keyGenerator.processAfter(executor, mappedStatement, ps, parameterObject);
-    return rows;
+    if (profile != null) {
+      profile.enter(Phase.EXECUTE);
+    }
+    int rows = -1;
+    Throwable error = null;
+    try {
+      ps.execute();
+      rows = ps.getUpdateCount();
+      Object parameterObject = boundSql.getParameterObject();
+      KeyGenerator keyGenerator = mappedStatement.getKeyGenerator();
+      keyGenerator.processAfter(executor, mappedStatement, ps, parameterObject);
+      return rows;
+    } catch (Throwable t) {
+      error = t;
+      throw t;
+    } finally {
+      if (profile != null) {
+        profile.finish(rows, error);
+      }
+    }
   }
 
   @Override
   public void batch(Statement statement) throws SQLException {
     PreparedStatement ps = (PreparedStatement) statement;
-    ps.addBatch();
+    Throwable error = null;
+    try {
+      ps.addBatch();
+    } catch (Throwable t) {
+      error = t;
+      throw t;
+    } finally {
+      if (profile != null) {
+        profile.finish(-1, error);
+      }
+    }
   }
 
   @Override
   public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
     PreparedStatement ps = (PreparedStatement) statement;
-    ps.execute();
-    return resultSetHandler.handleResultSets(ps);
+    if (profile != null) {
+      profile.enter(Phase.EXECUTE);
+    }
+    List<E> results = null;
+    Throwable error = null;
+    try {
+      ps.execute();
+      if (profile != null) {
+        profile.enter(Phase.MAP);
+      }
+      results = resultSetHandler.handleResultSets(ps);
+      return results;
+    } catch (Throwable t) {
+      error = t;
+      throw t;
+    } finally {
+      if (profile != null) {
+        profile.finish(error == null ? rowsMapped(results) : -1, error);
+      }
+    }
   }
 
   @Override
   public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
     PreparedStatement ps = (PreparedStatement) statement;
-    ps.execute();
-    return resultSetHandler.handleCursorResultSets(ps);
+    if (profile != null) {
+      profile.enter(Phase.EXECUTE);
+    }
+    Throwable error = null;
+    try {
+      ps.execute();
+      return resultSetHandler.handleCursorResultSets(ps);
+    } catch (Throwable t) {
+      error = t;
+      throw t;
+    } finally {
+      if (profile != null) {
+        // rows are mapped while the cursor is iterated
+        profile.finish(-1, error);
+      }
+    }
   }
 
   @Override
@@ -91,7 +148,18 @@ public class PreparedStatementHandler extends BaseStatementHandler {
 
   @Override
   public void parameterize(Statement statement) throws SQLException {
-    parameterHandler.setParameters((PreparedStatement) statement);
+    if (profile != null) {
+      profile.enter(Phase.BIND);
+    }
+    Throwable error = null;
+    try {
+      parameterHandler.setParameters((PreparedStatement) statement);
+    } catch (Throwable t) {
+      error = t;
+      throw t;
+    } finally {
+      exitPhase(error);
+    }
   }
 
 }
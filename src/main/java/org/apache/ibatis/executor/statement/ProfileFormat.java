@@ -0,0 +1,57 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.statement;
+
+import java.util.Locale;
+import java.util.StringTokenizer;
+
+/**
+ * Formatting shared by the reports of statement profiles, so that slow statement reports and traces read alike.
+ */
+final class ProfileFormat {
+
+  private ProfileFormat() {
+    // NOP
+  }
+
+  /**
+   * Appends the SQL with each run of whitespace, line breaks included, replaced by a single space.
+   */
+  static StringBuilder appendSql(StringBuilder builder, String sql) {
+    final StringTokenizer tokenizer = new StringTokenizer(sql);
+    boolean first = true;
+    while (tokenizer.hasMoreTokens()) {
+      if (!first) {
+        builder.append(' ');
+      }
+      builder.append(tokenizer.nextToken());
+      first = false;
+    }
+    return builder;
+  }
+
+  static String collapseWhitespace(String sql) {
+    return appendSql(new StringBuilder(sql.length()), sql).toString();
+  }
+
+  /**
+   * Formats nanoseconds as milliseconds with three decimals, the same whatever the default locale.
+   */
+  static String millis(long nanos) {
+    return String.format(Locale.ENGLISH, "%.3f", nanos / 1_000_000.0);
+  }
+
+}
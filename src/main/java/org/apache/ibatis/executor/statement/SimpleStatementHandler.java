@@ -26,6 +26,7 @@ import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.SelectKeyGenerator;
+import org.apache.ibatis.executor.statement.StatementProfile.Phase;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ResultSetType;
@@ -46,41 +47,96 @@ public class SimpleStatementHandler extends BaseStatementHandler {
     String sql = boundSql.getSql();
     Object parameterObject = boundSql.getParameterObject();
     KeyGenerator keyGenerator = mappedStatement.getKeyGenerator();
-    int rows;
-    if (keyGenerator instanceof Jdbc3KeyGenerator) {
-      // 委托给Statement执行sql， Statement即为jdbc中的Statement，在执行sql前，mybatis做的操作到此结束
-      statement.execute(sql, Statement.RETURN_GENERATED_KEYS);
-      rows = statement.getUpdateCount();
-      keyGenerator.processAfter(executor, mappedStatement, statement, parameterObject);
-    } else if (keyGenerator instanceof SelectKeyGenerator) {
-      statement.execute(sql);
-      rows = statement.getUpdateCount();
-      keyGenerator.processAfter(executor, mappedStatement, statement, parameterObject);
-    } else {
-      statement.execute(sql);
-      rows = statement.getUpdateCount();
+    int rows = -1;
+    if (profile != null) {
+      profile.enter(Phase.EXECUTE);
+    }
+    Throwable error = null;
+    try {
+      if (keyGenerator instanceof Jdbc3KeyGenerator) {
+        // 委托给Statement执行sql， Statement即为jdbc中的Statement，在执行sql前，mybatis做的操作到此结束
+        statement.execute(sql, Statement.RETURN_GENERATED_KEYS);
+        rows = statement.getUpdateCount();
+        keyGenerator.processAfter(executor, mappedStatement, statement, parameterObject);
+      } else if (keyGenerator instanceof SelectKeyGenerator) {
+        statement.execute(sql);
+        rows = statement.getUpdateCount();
+        keyGenerator.processAfter(executor, mappedStatement, statement, parameterObject);
+      } else {
+        statement.execute(sql);
+        rows = statement.getUpdateCount();
+      }
+      return rows;
+    } catch (Throwable t) {
+      error = t;
+      throw t;
+    } finally {
+      if (profile != null) {
+        profile.finish(rows, error);
+      }
     }
-    return rows;
   }
 
   @Override
   public void batch(Statement statement) throws SQLException {
     String sql = boundSql.getSql();
-    statement.addBatch(sql);
+    Throwable error = null;
+    try {
+      statement.addBatch(sql);
+    } catch (Throwable t) {
+      error = t;
+      throw t;
+    } finally {
+      if (profile != null) {
+        profile.finish(-1, error);
+      }
+    }
   }
 
   @Override
   public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
     String sql = boundSql.getSql();
-    statement.execute(sql);
-    return resultSetHandler.handleResultSets(statement);
+    if (profile != null) {
+      profile.enter(Phase.EXECUTE);
+    }
+    List<E> results = null;
+    Throwable error = null;
+    try {
+      statement.execute(sql);
+      if (profile != null) {
+        profile.enter(Phase.MAP);
+      }
+      results = resultSetHandler.handleResultSets(statement);
+      return results;
+    } catch (Throwable t) {
+      error = t;
+      throw t;
+    } finally {
+      if (profile != null) {
+        profile.finish(error == null ? rowsMapped(results) : -1, error);
+      }
+    }
   }
 
   @Override
   public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
     String sql = boundSql.getSql();
-    statement.execute(sql);
-    return resultSetHandler.handleCursorResultSets(statement);
+    if (profile != null) {
+      profile.enter(Phase.EXECUTE);
+    }
+    Throwable error = null;
+    try {
+      statement.execute(sql);
+      return resultSetHandler.handleCursorResultSets(statement);
+    } catch (Throwable t) {
+      error = t;
+      throw t;
+    } finally {
+      if (profile != null) {
+        // rows are mapped while the cursor is iterated
+        profile.finish(-1, error);
+      }
+    }
   }
 
   @Override
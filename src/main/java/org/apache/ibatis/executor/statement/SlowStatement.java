@@ -0,0 +1,244 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.statement;
+
+import static org.apache.ibatis.executor.statement.ProfileFormat.collapseWhitespace;
+import static org.apache.ibatis.executor.statement.ProfileFormat.millis;
+
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.ibatis.executor.statement.StatementProfile.Phase;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * The context of a statement execution that exceeded the slow statement threshold.
+ * <p>
+ * Parameter values are not reported, only fingerprints made of their type, their size for strings, collections
+ * and arrays, and a keyed hash of their hash code, enough to tell whether slow executions share their parameters.
+ * The key is drawn at random once per JVM, so fingerprints can only be compared within one process and do not
+ * reveal the values. The fingerprints are taken from the values the parameter handler bound.
+ */
+public class SlowStatement {
+
+  private static final String[] LIBRARY_PACKAGES = {"org.apache.ibatis.binding.", "org.apache.ibatis.session."};
+  private static final String FINGERPRINT_ALGORITHM = "HmacSHA256";
+  private static final SecretKeySpec FINGERPRINT_KEY = newFingerprintKey();
+
+  private final String id;
+  private final String sql;
+  private final List<String> parameterFingerprints;
+  private final long rows;
+  private final String error;
+  private final Integer fetchSize;
+  private final long prepareNanos;
+  private final long bindNanos;
+  private final long executeNanos;
+  private final long fetchNanos;
+  private final long mapNanos;
+  private final long totalNanos;
+  private final String caller;
+
+  public SlowStatement(StatementProfile profile) {
+    final MappedStatement ms = profile.getMappedStatement();
+    final Configuration configuration = ms.getConfiguration();
+    this.id = ms.getId();
+    this.sql = collapseWhitespace(profile.getBoundSql().getSql());
+    this.parameterFingerprints = fingerprintParameters(profile.getParameters());
+    this.rows = profile.getRows();
+    this.error = profile.getError() == null ? null : profile.getError().getClass().getName();
+    this.fetchSize = ms.getFetchSize() != null ? ms.getFetchSize() : configuration.getDefaultFetchSize();
+    this.prepareNanos = profile.getNanos(Phase.PREPARE);
+    this.bindNanos = profile.getNanos(Phase.BIND);
+    this.executeNanos = profile.getNanos(Phase.EXECUTE);
+    this.fetchNanos = profile.getNanos(Phase.FETCH);
+    this.mapNanos = profile.getNanos(Phase.MAP);
+    this.totalNanos = profile.getTotalNanos();
+    this.caller = findCaller(new Throwable().getStackTrace());
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getSql() {
+    return sql;
+  }
+
+  public List<String> getParameterFingerprints() {
+    return parameterFingerprints;
+  }
+
+  public long getRows() {
+    return rows;
+  }
+
+  /**
+   * Returns the class name of the exception the execution failed with, {@code null} if it succeeded.
+   */
+  public String getError() {
+    return error;
+  }
+
+  /**
+   * Returns the fetch size set on the statement, {@code null} for the driver default.
+   */
+  public Integer getFetchSize() {
+    return fetchSize;
+  }
+
+  public long getPrepareNanos() {
+    return prepareNanos;
+  }
+
+  public long getBindNanos() {
+    return bindNanos;
+  }
+
+  public long getExecuteNanos() {
+    return executeNanos;
+  }
+
+  public long getFetchNanos() {
+    return fetchNanos;
+  }
+
+  public long getMapNanos() {
+    return mapNanos;
+  }
+
+  public long getTotalNanos() {
+    return totalNanos;
+  }
+
+  /**
+   * Returns the stack frame that called the mapper or the session, {@code null} if it could not be found.
+   */
+  public String getCaller() {
+    return caller;
+  }
+
+  @Override
+  public String toString() {
+    return "Slow statement " + id + " took " + millis(totalNanos) + " ms"
+        + " (prepare " + millis(prepareNanos) + " ms, bind " + millis(bindNanos) + " ms, execute " + millis(executeNanos)
+        + " ms, fetch " + millis(fetchNanos) + " ms, map " + millis(mapNanos) + " ms)"
+        + ", rows: " + rows
+        + (error == null ? "" : ", failed with: " + error)
+        + ", fetch size: " + (fetchSize == null ? "default" : fetchSize)
+        + ", caller: " + caller
+        + ", parameters: " + parameterFingerprints
+        + ", sql: " + sql;
+  }
+
+  private static List<String> fingerprintParameters(List<Object> parameters) {
+    if (parameters.isEmpty()) {
+      return Collections.emptyList();
+    }
+    final Mac mac = newFingerprintMac();
+    final List<String> fingerprints = new ArrayList<>(parameters.size());
+    for (Object value : parameters) {
+      fingerprints.add(fingerprint(mac, value));
+    }
+    return Collections.unmodifiableList(fingerprints);
+  }
+
+  static String fingerprint(Mac mac, Object value) {
+    if (value == null) {
+      return "null";
+    }
+    final StringBuilder fingerprint = new StringBuilder(value.getClass().getSimpleName());
+    if (value instanceof CharSequence) {
+      fingerprint.append('(').append(((CharSequence) value).length()).append(')');
+    } else if (value instanceof Collection) {
+      fingerprint.append('(').append(((Collection<?>) value).size()).append(')');
+    } else if (value instanceof Map) {
+      fingerprint.append('(').append(((Map<?, ?>) value).size()).append(')');
+    } else if (value.getClass().isArray()) {
+      fingerprint.append('(').append(Array.getLength(value)).append(')');
+      return fingerprint.toString();
+    }
+    final byte[] hash = mac.doFinal(ByteBuffer.allocate(4).putInt(value.hashCode()).array());
+    fingerprint.append('#');
+    // four bytes are plenty to tell the values of one process apart
+    for (int i = 0; i < 4; i++) {
+      fingerprint.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+    }
+    return fingerprint.toString();
+  }
+
+  static Mac newFingerprintMac() {
+    try {
+      final Mac mac = Mac.getInstance(FINGERPRINT_ALGORITHM);
+      mac.init(FINGERPRINT_KEY);
+      return mac;
+    } catch (GeneralSecurityException e) {
+      // every Java platform supports HmacSHA256
+      throw new IllegalStateException("Could not create the " + FINGERPRINT_ALGORITHM + " parameter fingerprint. Cause: " + e, e);
+    }
+  }
+
+  private static SecretKeySpec newFingerprintKey() {
+    final byte[] key = new byte[32];
+    new SecureRandom().nextBytes(key);
+    return new SecretKeySpec(key, FINGERPRINT_ALGORITHM);
+  }
+
+  /**
+   * Returns the first frame after the last session or mapper proxy frame, skipping generated proxies and
+   * reflection.
+   */
+  static String findCaller(StackTraceElement[] stackTrace) {
+    int lastLibraryFrame = -1;
+    for (int i = 0; i < stackTrace.length; i++) {
+      if (isLibraryFrame(stackTrace[i].getClassName())) {
+        lastLibraryFrame = i;
+      }
+    }
+    if (lastLibraryFrame < 0) {
+      return null;
+    }
+    for (int i = lastLibraryFrame + 1; i < stackTrace.length; i++) {
+      final String className = stackTrace[i].getClassName();
+      if (!className.contains("$Proxy") && !className.startsWith("java.lang.reflect.")
+          && !className.startsWith("jdk.internal.reflect.") && !className.startsWith("sun.reflect.")) {
+        return stackTrace[i].toString();
+      }
+    }
+    return null;
+  }
+
+  private static boolean isLibraryFrame(String className) {
+    for (String libraryPackage : LIBRARY_PACKAGES) {
+      if (className.startsWith(libraryPackage)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
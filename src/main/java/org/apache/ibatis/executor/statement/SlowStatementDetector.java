@@ -0,0 +1,60 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.statement;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Reports statement executions taking at least a threshold, as a warning of the
+ * {@code org.apache.ibatis.executor.statement.SlowStatementDetector} log.
+ * <p>
+ * The context of a slow statement is only gathered once it is known to be slow, so executions under the threshold
+ * cost no more than reading the clock between their phases. Override {@link #report(SlowStatement)} to send the
+ * reports elsewhere.
+ */
+public class SlowStatementDetector {
+
+  private static final Log log = LogFactory.getLog(SlowStatementDetector.class);
+
+  private final long thresholdMillis;
+  private final long thresholdNanos;
+
+  public SlowStatementDetector(long thresholdMillis) {
+    if (thresholdMillis < 0) {
+      throw new IllegalArgumentException("The slow statement threshold must not be negative, but was " + thresholdMillis);
+    }
+    this.thresholdMillis = thresholdMillis;
+    this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+  }
+
+  public long getThresholdMillis() {
+    return thresholdMillis;
+  }
+
+  public void check(StatementProfile profile) {
+    if (profile.getTotalNanos() >= thresholdNanos) {
+      report(new SlowStatement(profile));
+    }
+  }
+
+  protected void report(SlowStatement slowStatement) {
+    log.warn(slowStatement.toString());
+  }
+
+}
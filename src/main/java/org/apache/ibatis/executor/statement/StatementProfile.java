@@ -0,0 +1,205 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.statement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Times the phases of one statement execution, for the statement handler running it.
+ * <p>
+ * The handler enters each phase as it gets to it, which ends the phase before, and finishes the profile once the
+ * results are mapped or the execution failed. A profile is only created when something on the configuration
+ * consumes it: statement phase timing into the metrics collector, a slow statement detector, or a statement tracer
+ * sampling the execution.
+ * Handlers check for {@code null} before timing anything.
+ */
+public final class StatementProfile {
+
+  public enum Phase {
+    /** Creating the JDBC statement, {@code StatementHandler.prepare}. */
+    PREPARE,
+    /** Setting the parameters on the JDBC statement, {@code StatementHandler.parameterize}. */
+    BIND,
+    /** Executing the JDBC statement. */
+    EXECUTE,
+    /** Moving the result sets to their next row. */
+    FETCH,
+    /** Mapping the results, fetching rows excluded. */
+    MAP
+  }
+
+  private final Configuration configuration;
+  private final MappedStatement mappedStatement;
+  private final BoundSql boundSql;
+  private final boolean traced;
+  private final boolean recordingParameters;
+  private final List<Object> parameters;
+  private final long[] phaseNanos = new long[Phase.values().length];
+  private Phase currentPhase;
+  private long phaseStart;
+  private long rows = -1;
+  private Throwable error;
+  private boolean finished;
+
+  private StatementProfile(MappedStatement mappedStatement, BoundSql boundSql, boolean traced) {
+    this.configuration = mappedStatement.getConfiguration();
+    this.mappedStatement = mappedStatement;
+    this.boundSql = boundSql;
+    this.traced = traced;
+    // the slow statement detector only knows whether it needs them once the execution is over
+    this.recordingParameters = traced || configuration.getSlowStatementDetector() != null;
+    this.parameters = recordingParameters ? new ArrayList<>() : Collections.emptyList();
+  }
+
+  /**
+   * Returns a new profile, or {@code null} if nothing consumes statement profiles.
+   */
+  public static StatementProfile start(MappedStatement mappedStatement, BoundSql boundSql) {
+    final Configuration configuration = mappedStatement.getConfiguration();
+    final StatementTracer statementTracer = configuration.getStatementTracer();
+    final boolean traced = statementTracer != null && statementTracer.sample(mappedStatement);
+    if (!traced && configuration.getSlowStatementDetector() == null && !isPhaseTiming(configuration)) {
+      return null;
+    }
+    return new StatementProfile(mappedStatement, boundSql, traced);
+  }
+
+  private static boolean isPhaseTiming(Configuration configuration) {
+    return configuration.isStatementPhaseTiming() && configuration.getMetricsCollector() != null;
+  }
+
+  /**
+   * Ends the running phase, if any, and starts the given one. Does nothing once the profile is finished, the
+   * rows of a cursor are fetched and mapped after that.
+   */
+  public void enter(Phase phase) {
+    if (finished) {
+      return;
+    }
+    final long now = System.nanoTime();
+    if (currentPhase != null) {
+      phaseNanos[currentPhase.ordinal()] += now - phaseStart;
+    }
+    currentPhase = phase;
+    phaseStart = now;
+  }
+
+  /**
+   * Ends the running phase, if any.
+   */
+  public void exit() {
+    if (currentPhase != null) {
+      phaseNanos[currentPhase.ordinal()] += System.nanoTime() - phaseStart;
+      currentPhase = null;
+    }
+  }
+
+  /**
+   * Ends the running phase and hands the profile to its consumers, whether the execution succeeded or not.
+   *
+   * @param rows the rows mapped by a query or affected by an update, {@code -1} when unknown
+   * @param error what the execution failed with, {@code null} if it succeeded
+   */
+  public void finish(long rows, Throwable error) {
+    exit();
+    this.rows = rows;
+    this.error = error;
+    finished = true;
+    final SlowStatementDetector slowStatementDetector = configuration.getSlowStatementDetector();
+    if (isPhaseTiming(configuration)) {
+      configuration.getMetricsCollector().recordPhases(mappedStatement, this);
+    }
+    if (slowStatementDetector != null) {
+      slowStatementDetector.check(this);
+    }
+    if (traced) {
+      final StatementTracer statementTracer = configuration.getStatementTracer();
+      if (statementTracer != null) {
+        statementTracer.trace(this);
+      }
+    }
+  }
+
+  /**
+   * Whether the execution was sampled for tracing.
+   */
+  public boolean isTraced() {
+    return traced;
+  }
+
+  /**
+   * Whether the bound parameters are recorded, for a tracer sampling the execution or a slow statement detector.
+   */
+  public boolean isRecordingParameters() {
+    return recordingParameters;
+  }
+
+  /**
+   * Records a bound parameter value, meant to be passed to the parameter handler as its bound value listener.
+   */
+  public void recordParameter(int parameterIndex, ParameterMapping parameterMapping, Object value) {
+    parameters.add(value);
+  }
+
+  /**
+   * Returns the bound parameter values in binding order, empty unless the parameters are recorded.
+   */
+  public List<Object> getParameters() {
+    return parameters;
+  }
+
+  public MappedStatement getMappedStatement() {
+    return mappedStatement;
+  }
+
+  public BoundSql getBoundSql() {
+    return boundSql;
+  }
+
+  public long getNanos(Phase phase) {
+    return phaseNanos[phase.ordinal()];
+  }
+
+  public long getTotalNanos() {
+    long total = 0;
+    for (long nanos : phaseNanos) {
+      total += nanos;
+    }
+    return total;
+  }
+
+  /**
+   * Returns the rows mapped or affected, {@code -1} until the profile is finished.
+   */
+  public long getRows() {
+    return rows;
+  }
+
+  /**
+   * Returns what the execution failed with, {@code null} if it succeeded or is not finished.
+   */
+  public Throwable getError() {
+    return error;
+  }
+
+}
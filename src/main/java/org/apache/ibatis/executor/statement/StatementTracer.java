@@ -0,0 +1,106 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.statement;
+
+import static org.apache.ibatis.executor.statement.ProfileFormat.appendSql;
+import static org.apache.ibatis.executor.statement.ProfileFormat.millis;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.ibatis.executor.statement.StatementProfile.Phase;
+import org.apache.ibatis.mapping.MappedStatement;
+
+/**
+ * Writes one debug line per sampled statement execution to the statement log, in place of the JDBC logging
+ * proxies.
+ * <p>
+ * While a tracer is set, connections are no longer wrapped in a {@code ConnectionLogger}. The parameters are
+ * taken from the parameter handler as they are bound, and the row count from the result set handler, so
+ * executions that are not sampled run exactly as without logging. Result rows are never formatted. A failed
+ * execution is traced too, with the phases it got through and the exception it failed with.
+ */
+public class StatementTracer {
+
+  private final double sampleRate;
+
+  /**
+   * @param sampleRate the fraction of executions to trace, {@code 1.0} traces every execution
+   */
+  public StatementTracer(double sampleRate) {
+    if (!(sampleRate >= 0.0 && sampleRate <= 1.0)) {
+      throw new IllegalArgumentException("The statement trace sample rate must be between 0 and 1, but was " + sampleRate);
+    }
+    this.sampleRate = sampleRate;
+  }
+
+  public double getSampleRate() {
+    return sampleRate;
+  }
+
+  /**
+   * Decides whether to trace an execution of the statement, only executions of statements whose log is
+   * debug enabled are traced.
+   */
+  public boolean sample(MappedStatement ms) {
+    if (sampleRate == 0.0 || !ms.getStatementLog().isDebugEnabled()) {
+      return false;
+    }
+    return sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+  }
+
+  public void trace(StatementProfile profile) {
+    final StringBuilder message = new StringBuilder("==> ");
+    appendSql(message, profile.getBoundSql().getSql());
+    message.append(" | Parameters: ");
+    appendParameters(message, profile.getParameters());
+    message.append(" | Rows: ");
+    if (profile.getRows() < 0) {
+      message.append("-");
+    } else {
+      message.append(profile.getRows());
+    }
+    message.append(" | Time: ").append(millis(profile.getTotalNanos())).append(" ms (prepare ")
+        .append(millis(profile.getNanos(Phase.PREPARE))).append(", bind ")
+        .append(millis(profile.getNanos(Phase.BIND))).append(", execute ")
+        .append(millis(profile.getNanos(Phase.EXECUTE))).append(", fetch ")
+        .append(millis(profile.getNanos(Phase.FETCH))).append(", map ")
+        .append(millis(profile.getNanos(Phase.MAP))).append(')');
+    if (profile.getError() != null) {
+      message.append(" | Error: ").append(profile.getError());
+    }
+    emit(profile.getMappedStatement(), message.toString());
+  }
+
+  protected void emit(MappedStatement ms, String message) {
+    ms.getStatementLog().debug(message);
+  }
+
+  private static void appendParameters(StringBuilder message, List<Object> parameters) {
+    for (int i = 0; i < parameters.size(); i++) {
+      if (i > 0) {
+        message.append(", ");
+      }
+      final Object value = parameters.get(i);
+      if (value == null) {
+        message.append("null");
+      } else {
+        message.append(value).append('(').append(value.getClass().getSimpleName()).append(')');
+      }
+    }
+  }
+
+}
@@ -0,0 +1,136 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The classes of a package and its sub-packages as listed by an index generated at build time by
+ * {@link ClassIndexProcessor}, found under {@value #INDEX_LOCATION} followed by the package name. Scanning one
+ * of its sub-packages does not use the index, the sub-package is listed through {@link VFS}.
+ * <p>
+ * Each line of an index file holds the binary name of a class followed by the binary names of all its super
+ * types, separated by spaces, then the names of its annotations prefixed with {@code @}. That is enough to
+ * evaluate {@link ResolverUtil.IsA} and {@link ResolverUtil.AnnotatedWith} without loading the class.
+ */
+final class ClassIndex {
+
+  static final String INDEX_LOCATION = "META-INF/mybatis/index/";
+
+  private final List<Entry> entries;
+
+  private ClassIndex(List<Entry> entries) {
+    this.entries = entries;
+  }
+
+  /**
+   * Looks up the index of the package. An index is only used if it was written for exactly this package and every
+   * class path root holding the package has one, otherwise classes of the package in other roots, or in
+   * sub-packages indexed on their own, would be missed.
+   *
+   * @return the index of the classes within the package, or {@code null} if the package has to be scanned
+   */
+  static ClassIndex find(ClassLoader classLoader, String packageName) throws IOException {
+    final String indexName = INDEX_LOCATION + packageName;
+    final List<URL> indexUrls = Collections.list(classLoader.getResources(indexName));
+    if (indexUrls.isEmpty()) {
+      return null;
+    }
+    final Set<String> indexedRoots = new HashSet<>();
+    for (URL url : indexUrls) {
+      indexedRoots.add(rootOf(url, indexName));
+    }
+    final String packagePath = packageName.replace('.', '/');
+    for (URL url : Collections.list(classLoader.getResources(packagePath))) {
+      if (!indexedRoots.contains(rootOf(url, packagePath))) {
+        return null;
+      }
+    }
+    final List<Entry> entries = new ArrayList<>();
+    for (URL url : indexUrls) {
+      read(url, packageName, entries);
+    }
+    return new ClassIndex(entries);
+  }
+
+  /**
+   * Returns the class path root a resource was found in, the URL without the resource name.
+   */
+  private static String rootOf(URL url, String resourceName) {
+    String externalForm = url.toExternalForm();
+    if (externalForm.endsWith("/")) {
+      externalForm = externalForm.substring(0, externalForm.length() - 1);
+    }
+    return externalForm.endsWith(resourceName)
+        ? externalForm.substring(0, externalForm.length() - resourceName.length()) : externalForm;
+  }
+
+  private static void read(URL url, String packageName, List<Entry> entries) throws IOException {
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        final String[] names = line.split(" +");
+        final String className = names[0];
+        if (className.startsWith(packageName + ".")) {
+          entries.add(new Entry(className, new HashSet<>(Arrays.asList(names).subList(1, names.length))));
+        }
+      }
+    }
+  }
+
+  List<Entry> getEntries() {
+    return Collections.unmodifiableList(entries);
+  }
+
+  static class Entry {
+    private final String className;
+    private final Set<String> typeNames;
+
+    private Entry(String className, Set<String> typeNames) {
+      this.className = className;
+      this.typeNames = typeNames;
+    }
+
+    String getClassName() {
+      return className;
+    }
+
+    /**
+     * Whether the class is, extends or implements the type.
+     */
+    boolean isA(Class<?> type) {
+      return type == Object.class || className.equals(type.getName()) || typeNames.contains(type.getName());
+    }
+
+    boolean isAnnotatedWith(Class<?> annotation) {
+      return typeNames.contains("@" + annotation.getName());
+    }
+  }
+
+}
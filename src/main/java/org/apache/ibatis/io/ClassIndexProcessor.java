@@ -0,0 +1,157 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.io;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Writes the class indexes read by {@link ResolverUtil}, so that {@code <package>} elements of mappers, type
+ * aliases and type handlers do not scan the class path at runtime.
+ * <p>
+ * The processor is not registered as a service, it has to be enabled explicitly, e.g. with
+ * {@code -processor org.apache.ibatis.io.ClassIndexProcessor}. The packages to index are given with the
+ * {@value #PACKAGES_OPTION} option, e.g. {@code -Amybatis.index.packages=com.example.mapper,com.example.domain}.
+ * Every class compiled within one of these packages or their sub-packages is listed in the index of the
+ * package. Indexes are only complete when all classes of a package are compiled in the same run. An index is read
+ * when exactly its package is scanned and every class path root holding the package has an index, so the packages
+ * given here should be the ones named in the configuration.
+ */
+public class ClassIndexProcessor extends AbstractProcessor {
+
+  public static final String PACKAGES_OPTION = "mybatis.index.packages";
+
+  private final Map<String, Map<String, String>> indexes = new TreeMap<>();
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return Collections.singleton("*");
+  }
+
+  @Override
+  public Set<String> getSupportedOptions() {
+    return Collections.singleton(PACKAGES_OPTION);
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    final List<String> packages = getIndexedPackages();
+    if (roundEnv.processingOver()) {
+      writeIndexes();
+    } else if (!packages.isEmpty()) {
+      for (Element element : roundEnv.getRootElements()) {
+        if (element instanceof TypeElement) {
+          addType((TypeElement) element, packages);
+        }
+      }
+    }
+    return false;
+  }
+
+  private List<String> getIndexedPackages() {
+    final String option = processingEnv.getOptions().get(PACKAGES_OPTION);
+    return option == null || option.trim().isEmpty() ? Collections.emptyList() : Arrays.asList(option.trim().split("\\s*,\\s*"));
+  }
+
+  private void addType(TypeElement type, List<String> packages) {
+    final String className = processingEnv.getElementUtils().getBinaryName(type).toString();
+    for (String packageName : packages) {
+      if (className.startsWith(packageName + ".")) {
+        indexes.computeIfAbsent(packageName, k -> new TreeMap<>()).put(className, describe(className, type));
+      }
+    }
+    // ResolverUtil also examines nested classes
+    for (Element enclosed : type.getEnclosedElements()) {
+      if (enclosed instanceof TypeElement) {
+        addType((TypeElement) enclosed, packages);
+      }
+    }
+  }
+
+  private String describe(String className, TypeElement type) {
+    final Set<String> names = new LinkedHashSet<>();
+    addSuperTypes(type.asType(), names);
+    names.remove(className);
+    for (AnnotationMirror annotation : processingEnv.getElementUtils().getAllAnnotationMirrors(type)) {
+      names.add("@" + binaryName(annotation.getAnnotationType()));
+    }
+    final StringBuilder line = new StringBuilder(className);
+    for (String name : names) {
+      line.append(' ').append(name);
+    }
+    return line.toString();
+  }
+
+  private void addSuperTypes(TypeMirror type, Set<String> names) {
+    for (TypeMirror superType : processingEnv.getTypeUtils().directSupertypes(type)) {
+      if (superType.getKind() == TypeKind.DECLARED && names.add(binaryName((DeclaredType) superType))) {
+        addSuperTypes(superType, names);
+      }
+    }
+  }
+
+  private String binaryName(DeclaredType type) {
+    return processingEnv.getElementUtils().getBinaryName((TypeElement) type.asElement()).toString();
+  }
+
+  private void writeIndexes() {
+    for (Map.Entry<String, Map<String, String>> index : indexes.entrySet()) {
+      try {
+        final FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+            ClassIndex.INDEX_LOCATION + index.getKey());
+        try (Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8);
+            PrintWriter out = new PrintWriter(writer)) {
+          out.println("# Generated by " + ClassIndexProcessor.class.getName());
+          for (String line : index.getValue().values()) {
+            out.println(line);
+          }
+        }
+      } catch (IOException e) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+            "Could not write the class index of package " + index.getKey() + ": " + e);
+      }
+    }
+  }
+
+}
@@ -211,6 +211,18 @@ public class ResolverUtil<T> {
     String path = getPackagePath(packageName);
 
     try {
+      // 包含该包的每个classpath根目录都有编译时由ClassIndexProcessor生成的该包索引时，直接读取索引，
+      // 不需要遍历classpath，也不需要加载明显不符合条件的类
+      ClassIndex index = packageName == null ? null : ClassIndex.find(getClassLoader(), packageName);
+      if (index != null) {
+        for (ClassIndex.Entry entry : index.getEntries()) {
+          if (mayMatch(test, entry)) {
+            addIfMatching(test, entry.getClassName().replace('.', '/') + ".class");
+          }
+        }
+        return this;
+      }
+
       // 通过VFS.list()查找packageName包下的所有资源
       List<String> children = VFS.getInstance().list(path);
       for (String child : children) {
@@ -226,6 +238,19 @@ public class ResolverUtil<T> {
     return this;
   }
 
+  /**
+   * Whether a class listed in an index may pass the test. Only {@link IsA} and {@link AnnotatedWith} can be
+   * decided from the index, the classes are loaded for any other test, including subclasses of these two.
+   */
+  private static boolean mayMatch(Test test, ClassIndex.Entry entry) {
+    if (test.getClass() == IsA.class && ((IsA) test).parent != null) {
+      return entry.isA(((IsA) test).parent);
+    } else if (test.getClass() == AnnotatedWith.class && ((AnnotatedWith) test).annotation != null) {
+      return entry.isAnnotatedWith(((AnnotatedWith) test).annotation);
+    }
+    return true;
+  }
+
   /**
    * Converts a Java package name to a path that can be looked up with a call to
    * {@link ClassLoader#getResources(String)}.
@@ -23,9 +23,11 @@ import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.executor.resultset.ResultSetLayout;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.scripting.LanguageDriver;
+import org.apache.ibatis.scripting.defaults.ParameterBindingPlan;
 import org.apache.ibatis.session.Configuration;
 
 /**
@@ -65,6 +67,14 @@ public final class MappedStatement {
   private Log statementLog;
   private LanguageDriver lang;
   private String[] resultSets;
+  /**
+   * 执行过程中遇到的结果集列布局,相同列的结果集无需重新解析元数据
+   */
+  private final ResultSetLayout.Cache resultSetLayouts = new ResultSetLayout.Cache();
+  /**
+   * 按参数类型预先编译的参数绑定方案,避免每次执行都通过MetaObject解析参数属性
+   */
+  private final ParameterBindingPlan.Cache parameterBindingPlans = new ParameterBindingPlan.Cache();
 
   MappedStatement() {
     // constructor disabled
@@ -292,6 +302,14 @@ public final class MappedStatement {
     return resultSets;
   }
 
+  public ResultSetLayout.Cache getResultSetLayouts() {
+    return resultSetLayouts;
+  }
+
+  public ParameterBindingPlan.Cache getParameterBindingPlans() {
+    return parameterBindingPlans;
+  }
+
   /** @deprecated Use {@link #getResultSets()} */
   @Deprecated
   public String[] getResulSets() {
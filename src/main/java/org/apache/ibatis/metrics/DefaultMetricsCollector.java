@@ -0,0 +1,99 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.executor.statement.StatementProfile;
+import org.apache.ibatis.mapping.MappedStatement;
+
+/**
+ * Aggregates the measurements in memory, per mapped statement id.
+ */
+public class DefaultMetricsCollector implements MetricsCollector {
+
+  private final Map<String, StatementMetrics> statements = new ConcurrentHashMap<>();
+  private final LatencyHistogram poolWait = new LatencyHistogram();
+
+  @Override
+  public void recordExecution(MappedStatement ms, long elapsedNanos) {
+    metricsOf(ms).getLatency().record(elapsedNanos);
+  }
+
+  @Override
+  public void recordPhases(MappedStatement ms, StatementProfile profile) {
+    metricsOf(ms).getPhases().add(profile);
+  }
+
+  @Override
+  public void recordRows(MappedStatement ms, long rows) {
+    metricsOf(ms).addRows(rows);
+  }
+
+  @Override
+  public void recordBytesBound(MappedStatement ms, long bytes) {
+    metricsOf(ms).addBytesBound(bytes);
+  }
+
+  @Override
+  public void recordLocalCacheAccess(MappedStatement ms, boolean hit) {
+    metricsOf(ms).countLocalCacheAccess(hit);
+  }
+
+  @Override
+  public void recordSecondLevelCacheAccess(MappedStatement ms, boolean hit) {
+    metricsOf(ms).countSecondLevelCacheAccess(hit);
+  }
+
+  @Override
+  public void recordPoolWait(long elapsedNanos) {
+    poolWait.record(elapsedNanos);
+  }
+
+  /**
+   * Returns the metrics of the statement, or {@code null} if nothing was recorded for it.
+   */
+  public StatementMetrics getStatementMetrics(String id) {
+    return statements.get(id);
+  }
+
+  public Collection<StatementMetrics> getStatementMetrics() {
+    return Collections.unmodifiableCollection(new ArrayList<>(statements.values()));
+  }
+
+  public LatencyHistogram getPoolWait() {
+    return poolWait;
+  }
+
+  public void export(MetricsExporter exporter) {
+    exporter.export(getStatementMetrics(), poolWait);
+  }
+
+  private StatementMetrics metricsOf(MappedStatement ms) {
+    final String id = ms.getId();
+    // get first, computeIfAbsent may lock the bin even when the key is present
+    StatementMetrics metrics = statements.get(id);
+    if (metrics == null) {
+      metrics = statements.computeIfAbsent(id, StatementMetrics::new);
+    }
+    return metrics;
+  }
+
+}
@@ -0,0 +1,41 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+import java.util.Collection;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Writes one debug line per statement and one for the connection pool to the MyBatis log.
+ */
+public class LogMetricsExporter implements MetricsExporter {
+
+  private static final Log log = LogFactory.getLog(LogMetricsExporter.class);
+
+  @Override
+  public void export(Collection<StatementMetrics> statements, LatencyHistogram poolWait) {
+    if (!log.isDebugEnabled()) {
+      return;
+    }
+    for (StatementMetrics statement : statements) {
+      log.debug(statement.toString());
+    }
+    log.debug("Pool wait(ns): " + poolWait);
+  }
+
+}
@@ -0,0 +1,59 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+import org.apache.ibatis.executor.statement.StatementProfile;
+import org.apache.ibatis.mapping.MappedStatement;
+
+/**
+ * Receives execution measurements from the executors, the result set handler, the parameter handler and the
+ * pooled data source.
+ * <p>
+ * Implementations are called on the statement execution path of every thread, so they must be thread safe and
+ * cheap. Nothing is measured while no collector is set on the configuration.
+ */
+public interface MetricsCollector {
+
+  /**
+   * Called after a statement was executed against the database, including the mapping of its results.
+   */
+  void recordExecution(MappedStatement ms, long elapsedNanos);
+
+  /**
+   * Called with the phases of a finished execution, while the {@code statementPhaseTiming} setting is enabled.
+   */
+  void recordPhases(MappedStatement ms, StatementProfile profile);
+
+  /**
+   * Called with the number of rows mapped by a query, or the number of rows affected by an update.
+   */
+  void recordRows(MappedStatement ms, long rows);
+
+  /**
+   * Called with the estimated size of the parameter values bound to a statement.
+   */
+  void recordBytesBound(MappedStatement ms, long bytes);
+
+  void recordLocalCacheAccess(MappedStatement ms, boolean hit);
+
+  void recordSecondLevelCacheAccess(MappedStatement ms, boolean hit);
+
+  /**
+   * Called with the time spent checking a connection out of a pooled data source.
+   */
+  void recordPoolWait(long elapsedNanos);
+
+}
@@ -0,0 +1,88 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ibatis.executor.statement.StatementProfile;
+import org.apache.ibatis.executor.statement.StatementProfile.Phase;
+
+/**
+ * Elapsed nanoseconds per phase summed over the profiled executions of one statement, recorded while the
+ * {@code statementPhaseTiming} setting is enabled.
+ * <p>
+ * Executions add their profile when they finish, failed executions included. Reading is not atomic across phases:
+ * a snapshot taken while statements run may include an execution in some phases only.
+ * <p>
+ * With the {@link DefaultMetricsCollector}, the timings of a statement are available from
+ * {@link org.apache.ibatis.session.Configuration#getStatementPhaseTimings(String)}.
+ */
+public class PhaseTimings {
+
+  private final LongAdder executions = new LongAdder();
+  private final LongAdder[] phaseNanos = new LongAdder[Phase.values().length];
+
+  public PhaseTimings() {
+    for (int i = 0; i < phaseNanos.length; i++) {
+      phaseNanos[i] = new LongAdder();
+    }
+  }
+
+  void add(StatementProfile profile) {
+    for (Phase phase : Phase.values()) {
+      final long nanos = profile.getNanos(phase);
+      if (nanos != 0) {
+        phaseNanos[phase.ordinal()].add(nanos);
+      }
+    }
+    executions.increment();
+  }
+
+  public long getExecutions() {
+    return executions.sum();
+  }
+
+  public long getNanos(Phase phase) {
+    return phaseNanos[phase.ordinal()].sum();
+  }
+
+  /**
+   * Returns the mean nanoseconds per execution spent in the phase, {@code 0} before the first execution.
+   */
+  public long getMeanNanos(Phase phase) {
+    final long count = executions.sum();
+    return count == 0 ? 0 : getNanos(phase) / count;
+  }
+
+  public long getTotalNanos() {
+    long total = 0;
+    for (LongAdder nanos : phaseNanos) {
+      total += nanos.sum();
+    }
+    return total;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder builder = new StringBuilder("executions=").append(getExecutions());
+    for (Phase phase : Phase.values()) {
+      builder.append(", ").append(phase.name().toLowerCase(Locale.ENGLISH)).append('=').append(getNanos(phase));
+    }
+    return builder.toString();
+  }
+
+}
@@ -0,0 +1,124 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics recorded for one mapped statement by a {@link DefaultMetricsCollector}.
+ */
+public class StatementMetrics {
+
+  private final String id;
+  private final LatencyHistogram latency = new LatencyHistogram();
+  private final PhaseTimings phases = new PhaseTimings();
+  private final LongAdder rows = new LongAdder();
+  private final LongAdder bytesBound = new LongAdder();
+  private final LongAdder localCacheHits = new LongAdder();
+  private final LongAdder localCacheMisses = new LongAdder();
+  private final LongAdder secondLevelCacheHits = new LongAdder();
+  private final LongAdder secondLevelCacheMisses = new LongAdder();
+
+  public StatementMetrics(String id) {
+    this.id = id;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Returns the nanoseconds spent on each database execution of the statement.
+   */
+  public LatencyHistogram getLatency() {
+    return latency;
+  }
+
+  /**
+   * Returns the nanoseconds spent in each phase of the executions, only recorded while the
+   * {@code statementPhaseTiming} setting is enabled.
+   */
+  public PhaseTimings getPhases() {
+    return phases;
+  }
+
+  /**
+   * Returns the rows mapped by a query or affected by an update, over all executions.
+   */
+  public long getRows() {
+    return rows.sum();
+  }
+
+  public long getBytesBound() {
+    return bytesBound.sum();
+  }
+
+  public long getLocalCacheHits() {
+    return localCacheHits.sum();
+  }
+
+  public long getLocalCacheMisses() {
+    return localCacheMisses.sum();
+  }
+
+  public double getLocalCacheHitRatio() {
+    return ratio(getLocalCacheHits(), getLocalCacheMisses());
+  }
+
+  public long getSecondLevelCacheHits() {
+    return secondLevelCacheHits.sum();
+  }
+
+  public long getSecondLevelCacheMisses() {
+    return secondLevelCacheMisses.sum();
+  }
+
+  public double getSecondLevelCacheHitRatio() {
+    return ratio(getSecondLevelCacheHits(), getSecondLevelCacheMisses());
+  }
+
+  void addRows(long count) {
+    rows.add(count);
+  }
+
+  void addBytesBound(long bytes) {
+    bytesBound.add(bytes);
+  }
+
+  void countLocalCacheAccess(boolean hit) {
+    (hit ? localCacheHits : localCacheMisses).increment();
+  }
+
+  void countSecondLevelCacheAccess(boolean hit) {
+    (hit ? secondLevelCacheHits : secondLevelCacheMisses).increment();
+  }
+
+  private static double ratio(long hits, long misses) {
+    final long requests = hits + misses;
+    return requests == 0 ? 0.0 : (double) hits / requests;
+  }
+
+  @Override
+  public String toString() {
+    return id + " [latency(ns): " + latency
+        + (phases.getExecutions() == 0 ? "" : ", phases(ns): " + phases)
+        + ", rows=" + getRows()
+        + ", bytesBound=" + getBytesBound()
+        + ", localCacheHitRatio=" + getLocalCacheHitRatio()
+        + ", secondLevelCacheHitRatio=" + getSecondLevelCacheHitRatio() + "]";
+  }
+
+}
@@ -0,0 +1,276 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.parsing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.EntityResolver;
+
+/**
+ * Keeps binary snapshots of parsed XML documents in a directory, so that an unchanged document is restored
+ * without parsing, validating it against its DTD and resolving entities again.
+ * <p>
+ * A snapshot is keyed by a SHA-256 checksum of the XML bytes and of the validation flag: any change of the
+ * source yields another key, and stale snapshots are simply never read again. The snapshot holds the element
+ * tree as the validating parser built it, including attributes defaulted by the DTD, with text and CDATA
+ * sections kept apart. Property placeholders are not part of it, they are still replaced while the document is
+ * read. Snapshots that cannot be read or written are ignored and the document is parsed as usual.
+ */
+public class DocumentSnapshotStore {
+
+  private static final Log log = LogFactory.getLog(DocumentSnapshotStore.class);
+
+  private static final int MAGIC = 0x4d425853;
+  private static final int VERSION = 1;
+  private static final String SUFFIX = ".xsnap";
+
+  private static final byte ELEMENT = 1;
+  private static final byte TEXT = 2;
+  private static final byte CDATA = 3;
+  private static final byte END = 0;
+
+  private final Path directory;
+
+  public DocumentSnapshotStore(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Creates a parser of the document, restoring it from its snapshot when there is one and storing a snapshot
+   * of it otherwise.
+   */
+  public XPathParser newParser(InputStream inputStream, boolean validation, Properties variables, EntityResolver entityResolver) {
+    final byte[] xml = readFully(inputStream);
+    final Path snapshot = directory.resolve(checksum(xml, validation) + SUFFIX);
+    final Document document = readSnapshot(snapshot);
+    if (document != null) {
+      return new XPathParser(document, validation, variables, entityResolver);
+    }
+    final XPathParser parser = new XPathParser(new ByteArrayInputStream(xml), validation, variables, entityResolver);
+    writeSnapshot(snapshot, parser.getDocument());
+    return parser;
+  }
+
+  private Document readSnapshot(Path snapshot) {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+      return decode(in);
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException | RuntimeException e) {
+      log.debug("Ignoring unreadable document snapshot " + snapshot + ". Cause: " + e);
+      return null;
+    }
+  }
+
+  private void writeSnapshot(Path snapshot, Document document) {
+    try {
+      Files.createDirectories(directory);
+      // written to a temporary file first, concurrent readers never see a partial snapshot
+      final Path temp = Files.createTempFile(directory, "snapshot", ".tmp");
+      try {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+          encode(document, out);
+        }
+        Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    } catch (IOException | RuntimeException e) {
+      log.debug("Could not write document snapshot " + snapshot + ". Cause: " + e);
+    }
+  }
+
+  /**
+   * Writes the element tree of a document. Names and attribute values are written once and referenced by
+   * index afterwards.
+   */
+  static void encode(Document document, OutputStream outputStream) throws IOException {
+    final DataOutputStream out = new DataOutputStream(outputStream);
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    encodeNode(document.getDocumentElement(), out, new HashMap<>());
+    out.flush();
+  }
+
+  private static void encodeNode(Node node, DataOutputStream out, Map<String, Integer> strings) throws IOException {
+    switch (node.getNodeType()) {
+      case Node.ELEMENT_NODE:
+        out.writeByte(ELEMENT);
+        writeString(node.getNodeName(), out, strings);
+        final NamedNodeMap attributes = node.getAttributes();
+        out.writeInt(attributes.getLength());
+        for (int i = 0; i < attributes.getLength(); i++) {
+          final Attr attribute = (Attr) attributes.item(i);
+          writeString(attribute.getName(), out, strings);
+          writeString(attribute.getValue(), out, strings);
+        }
+        final NodeList children = node.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+          encodeNode(children.item(i), out, strings);
+        }
+        out.writeByte(END);
+        break;
+      case Node.TEXT_NODE:
+        out.writeByte(TEXT);
+        writeText(node.getNodeValue(), out);
+        break;
+      case Node.CDATA_SECTION_NODE:
+        out.writeByte(CDATA);
+        writeText(node.getNodeValue(), out);
+        break;
+      default:
+        // comments are ignored and entity references expanded by the parser, nothing else is read from a document
+    }
+  }
+
+  static Document decode(InputStream inputStream) throws IOException {
+    final DataInputStream in = inputStream instanceof DataInputStream ? (DataInputStream) inputStream : new DataInputStream(inputStream);
+    if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+      throw new IOException("Not a document snapshot of version " + VERSION);
+    }
+    final Document document;
+    try {
+      document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+    } catch (ParserConfigurationException e) {
+      throw new BuilderException("Error creating document instance.  Cause: " + e, e);
+    }
+    if (in.readByte() != ELEMENT) {
+      throw new IOException("Document snapshot does not start with an element");
+    }
+    document.appendChild(decodeElement(document, in, new ArrayList<>()));
+    return document;
+  }
+
+  private static Element decodeElement(Document document, DataInputStream in, List<String> strings) throws IOException {
+    final Element element = document.createElement(readString(in, strings));
+    final int attributeCount = in.readInt();
+    for (int i = 0; i < attributeCount; i++) {
+      element.setAttribute(readString(in, strings), readString(in, strings));
+    }
+    for (byte type = in.readByte(); type != END; type = in.readByte()) {
+      switch (type) {
+        case ELEMENT:
+          element.appendChild(decodeElement(document, in, strings));
+          break;
+        case TEXT:
+          element.appendChild(document.createTextNode(readText(in)));
+          break;
+        case CDATA:
+          element.appendChild(document.createCDATASection(readText(in)));
+          break;
+        default:
+          throw new IOException("Unknown node type " + type + " in document snapshot");
+      }
+    }
+    return element;
+  }
+
+  private static void writeString(String value, DataOutputStream out, Map<String, Integer> strings) throws IOException {
+    final Integer index = strings.get(value);
+    if (index != null) {
+      out.writeInt(index);
+    } else {
+      strings.put(value, strings.size());
+      out.writeInt(-1);
+      writeText(value, out);
+    }
+  }
+
+  private static String readString(DataInputStream in, List<String> strings) throws IOException {
+    final int index = in.readInt();
+    if (index >= 0) {
+      return strings.get(index);
+    }
+    final String value = readText(in);
+    strings.add(value);
+    return value;
+  }
+
+  private static void writeText(String value, DataOutputStream out) throws IOException {
+    // DataOutputStream#writeUTF is limited to 64K, statements can be longer
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readText(DataInputStream in) throws IOException {
+    final byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static String checksum(byte[] xml, boolean validation) {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update((byte) VERSION);
+      digest.update((byte) (validation ? 1 : 0));
+      final StringBuilder checksum = new StringBuilder();
+      for (byte b : digest.digest(xml)) {
+        checksum.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+      }
+      return checksum.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new BuilderException("SHA-256 is not available. Cause: " + e, e);
+    }
+  }
+
+  private static byte[] readFully(InputStream inputStream) {
+    try {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[8192];
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) {
+        bytes.write(buffer, 0, read);
+      }
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new BuilderException("Error reading document.  Cause: " + e, e);
+    }
+  }
+
+}
@@ -0,0 +1,135 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.parsing;
+
+import java.io.InputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.Text;
+
+/**
+ * Builds the element tree of a document in a single pass over a StAX stream reader.
+ * <p>
+ * Unlike the validating DOM parser used by {@link XPathParser}, the document type declaration is neither loaded
+ * nor checked, so only documents that do not rely on it for entities or defaulted attributes may be read this
+ * way. Comments and processing instructions are dropped, text and CDATA sections are kept apart just like the
+ * DOM parser does.
+ */
+public final class StreamingDocumentBuilder {
+
+  private static final String REPORT_CDATA = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+  private static final XMLInputFactory INPUT_FACTORY = newInputFactory();
+  private static final DocumentBuilderFactory DOCUMENT_FACTORY = DocumentBuilderFactory.newInstance();
+
+  private StreamingDocumentBuilder() {
+    // Prevent Instantiation of Static Class
+  }
+
+  public static Document parse(InputStream inputStream) {
+    XMLStreamReader reader = null;
+    try {
+      final Document document;
+      synchronized (DOCUMENT_FACTORY) {
+        document = DOCUMENT_FACTORY.newDocumentBuilder().newDocument();
+      }
+      // factories are not required to be thread safe, readers are created one at a time for parallel mapper parsing
+      synchronized (INPUT_FACTORY) {
+        reader = INPUT_FACTORY.createXMLStreamReader(inputStream);
+      }
+      Node current = document;
+      while (reader.hasNext()) {
+        switch (reader.next()) {
+          case XMLStreamConstants.START_ELEMENT:
+            current = current.appendChild(createElement(document, reader));
+            break;
+          case XMLStreamConstants.END_ELEMENT:
+            current = current.getParentNode();
+            break;
+          case XMLStreamConstants.CHARACTERS:
+          case XMLStreamConstants.SPACE:
+            if (current != document) {
+              appendText(document, current, reader.getText(), Node.TEXT_NODE);
+            }
+            break;
+          case XMLStreamConstants.CDATA:
+            appendText(document, current, reader.getText(), Node.CDATA_SECTION_NODE);
+            break;
+          default:
+            // document type declaration, comments and processing instructions are not part of the tree
+        }
+      }
+      return document;
+    } catch (Exception e) {
+      throw new BuilderException("Error creating document instance.  Cause: " + e, e);
+    } finally {
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (XMLStreamException e) {
+          // ignore
+        }
+      }
+    }
+  }
+
+  private static Element createElement(Document document, XMLStreamReader reader) {
+    final Element element = document.createElement(qualifiedName(reader.getPrefix(), reader.getLocalName()));
+    for (int i = 0; i < reader.getAttributeCount(); i++) {
+      element.setAttribute(qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)), reader.getAttributeValue(i));
+    }
+    return element;
+  }
+
+  private static String qualifiedName(String prefix, String localName) {
+    return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+  }
+
+  /**
+   * The reader may split long text into several events, they are joined into one node as the DOM parser does.
+   */
+  private static void appendText(Document document, Node parent, String text, short nodeType) {
+    final Node last = parent.getLastChild();
+    if (last != null && last.getNodeType() == nodeType) {
+      ((Text) last).appendData(text);
+    } else {
+      parent.appendChild(nodeType == Node.CDATA_SECTION_NODE ? document.createCDATASection(text) : document.createTextNode(text));
+    }
+  }
+
+  private static XMLInputFactory newInputFactory() {
+    final XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+    factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, true);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    // the JDK reader reports CDATA sections as characters unless asked otherwise
+    if (factory.isPropertySupported(REPORT_CDATA)) {
+      factory.setProperty(REPORT_CDATA, true);
+    }
+    return factory;
+  }
+
+}
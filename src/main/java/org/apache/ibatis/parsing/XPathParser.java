@@ -19,8 +19,16 @@ import java.io.InputStream;
 import java.io.Reader;
 import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilder;
@@ -147,6 +155,10 @@ public class XPathParser {
     this.document = document;
   }
 
+  public Document getDocument() {
+    return document;
+  }
+
   public void setVariables(Properties variables) {
     this.variables = variables;
   }
@@ -215,6 +227,12 @@ public class XPathParser {
 
   public List<XNode> evalNodes(Object root, String expression) {
     List<XNode> xnodes = new ArrayList<>();
+    ChildPath path = ChildPath.of(expression);
+    if (path != null && root instanceof Node) {
+      // 只由元素名组成的路径直接遍历子节点, 不经过XPath
+      path.select((Node) root, false, node -> xnodes.add(new XNode(this, node, variables)));
+      return xnodes;
+    }
     NodeList nodes = (NodeList) evaluate(expression, root, XPathConstants.NODESET);
     for (int i = 0; i < nodes.getLength(); i++) {
       xnodes.add(new XNode(this, nodes.item(i), variables));
@@ -227,7 +245,15 @@ public class XPathParser {
   }
 
   public XNode evalNode(Object root, String expression) {
-    Node node = (Node) evaluate(expression, root, XPathConstants.NODE);
+    ChildPath path = ChildPath.of(expression);
+    Node node;
+    if (path != null && root instanceof Node) {
+      List<Node> nodes = new ArrayList<>(1);
+      path.select((Node) root, true, nodes::add);
+      node = nodes.isEmpty() ? null : nodes.get(0);
+    } else {
+      node = (Node) evaluate(expression, root, XPathConstants.NODE);
+    }
     if (node == null) {
       return null;
     }
@@ -287,4 +313,77 @@ public class XPathParser {
     this.xpath = factory.newXPath();
   }
 
+  /**
+   * A location path made of element names only, e.g. {@code /mapper/resultMap} or {@code select|insert}.
+   * Alternatives are only accepted as a single relative step, so that walking the children once yields the
+   * nodes in document order as XPath does.
+   */
+  private static final class ChildPath {
+
+    private static final Pattern NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_.\\-]*");
+    private static final ChildPath NONE = new ChildPath(false, new String[0], Collections.emptySet());
+    private static final Map<String, ChildPath> PATHS = new ConcurrentHashMap<>();
+
+    private final boolean absolute;
+    private final String[] steps;
+    private final Set<String> lastStep;
+
+    private ChildPath(boolean absolute, String[] steps, Set<String> lastStep) {
+      this.absolute = absolute;
+      this.steps = steps;
+      this.lastStep = lastStep;
+    }
+
+    static ChildPath of(String expression) {
+      ChildPath path = PATHS.computeIfAbsent(expression, ChildPath::parse);
+      return path == NONE ? null : path;
+    }
+
+    private static ChildPath parse(String expression) {
+      String[] alternatives = expression.split("\\|", -1);
+      if (alternatives.length > 1) {
+        Set<String> names = new HashSet<>();
+        for (String alternative : alternatives) {
+          if (!NAME.matcher(alternative).matches()) {
+            return NONE;
+          }
+          names.add(alternative);
+        }
+        return new ChildPath(false, new String[0], names);
+      }
+      boolean absolute = expression.startsWith("/");
+      String[] steps = (absolute ? expression.substring(1) : expression).split("/", -1);
+      for (String step : steps) {
+        if (!NAME.matcher(step).matches()) {
+          return NONE;
+        }
+      }
+      return new ChildPath(absolute, Arrays.copyOf(steps, steps.length - 1), Collections.singleton(steps[steps.length - 1]));
+    }
+
+    void select(Node root, boolean first, Consumer<Node> consumer) {
+      Node start = absolute && root.getNodeType() != Node.DOCUMENT_NODE ? root.getOwnerDocument() : root;
+      select(start, 0, first, consumer);
+    }
+
+    private boolean select(Node parent, int step, boolean first, Consumer<Node> consumer) {
+      for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+        if (child.getNodeType() != Node.ELEMENT_NODE) {
+          continue;
+        }
+        if (step < steps.length) {
+          if (steps[step].equals(child.getNodeName()) && select(child, step + 1, first, consumer)) {
+            return true;
+          }
+        } else if (lastStep.contains(child.getNodeName())) {
+          consumer.accept(child);
+          if (first) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+  }
+
 }
@@ -24,7 +24,15 @@ public interface Interceptor {
 
   Object intercept(Invocation invocation) throws Throwable;
 
-  Object plugin(Object target);
+  /**
+   * Wraps the target in a proxy calling {@link #intercept(Invocation)}.
+   * <p>
+   * Interceptors keeping this default are applied by the {@link InterceptorChain} together with their neighbours
+   * through a single proxy, instead of one proxy per interceptor.
+   */
+  default Object plugin(Object target) {
+    return Plugin.wrap(target, this);
+  }
 
   void setProperties(Properties properties);
 
@@ -17,7 +17,12 @@ package org.apache.ibatis.plugin;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Clinton Begin
@@ -25,20 +30,110 @@ import java.util.List;
 public class InterceptorChain {
 
   private final List<Interceptor> interceptors = new ArrayList<>();
+  /**
+   * The interceptors in registration order: either a {@link PluginChain} grouping consecutive interceptors that use
+   * the default {@link Interceptor#plugin(Object)}, or an interceptor with its own plugin method.
+   */
+  private final List<Object> stages = new ArrayList<>();
+  private final Map<Class<?>, Integer> interceptorCounts = new HashMap<>();
+  private final Map<Class<?>, Boolean> interceptedTypes = new ConcurrentHashMap<>();
+  private boolean customPluginRegistered;
 
   public Object pluginAll(Object target) {
-    for (Interceptor interceptor : interceptors) {
-      target = interceptor.plugin(target);
+    if (stages.isEmpty() || !isIntercepted(target.getClass())) {
+      return target;
+    }
+    for (Object stage : stages) {
+      if (stage instanceof PluginChain) {
+        target = ((PluginChain) stage).wrap(target);
+      } else {
+        target = ((Interceptor) stage).plugin(target);
+      }
     }
     return target;
   }
 
   public void addInterceptor(Interceptor interceptor) {
+    if (usesDefaultPlugin(interceptor)) {
+      Object last = stages.isEmpty() ? null : stages.get(stages.size() - 1);
+      PluginChain chain = last instanceof PluginChain ? (PluginChain) last : new PluginChain();
+      // resolves the signature map, failing here rather than on the first query
+      chain.addInterceptor(interceptor);
+      if (chain != last) {
+        stages.add(chain);
+      }
+    } else {
+      stages.add(interceptor);
+      customPluginRegistered = true;
+    }
     interceptors.add(interceptor);
+    countSignatureTypes(interceptor);
+    interceptedTypes.clear();
+  }
+
+  /**
+   * Returns the number of registered interceptors declaring a {@link Signature} on the type.
+   */
+  public int getInterceptorCount(Class<?> type) {
+    return interceptorCounts.getOrDefault(type, 0);
+  }
+
+  /**
+   * Returns the number of registered interceptors per type declared in their {@link Signature}s.
+   */
+  public Map<Class<?>, Integer> getInterceptorCounts() {
+    return Collections.unmodifiableMap(interceptorCounts);
+  }
+
+  /**
+   * Whether instances of the type have to go through the interceptors. Without an interceptor overriding
+   * {@link Interceptor#plugin(Object)}, only the interfaces listed in signatures can be proxied, the same way
+   * {@link Plugin#wrap(Object, Interceptor)} selects them.
+   */
+  private boolean isIntercepted(Class<?> type) {
+    if (customPluginRegistered) {
+      // there is no telling what its plugin method wraps
+      return true;
+    }
+    return interceptedTypes.computeIfAbsent(type, this::implementsInterceptedInterface);
+  }
+
+  private boolean implementsInterceptedInterface(Class<?> type) {
+    while (type != null) {
+      for (Class<?> c : type.getInterfaces()) {
+        if (interceptorCounts.containsKey(c)) {
+          return true;
+        }
+      }
+      type = type.getSuperclass();
+    }
+    return false;
+  }
+
+  private void countSignatureTypes(Interceptor interceptor) {
+    Intercepts interceptsAnnotation = interceptor.getClass().getAnnotation(Intercepts.class);
+    if (interceptsAnnotation == null) {
+      return;
+    }
+    Set<Class<?>> types = new HashSet<>();
+    for (Signature signature : interceptsAnnotation.value()) {
+      types.add(signature.type());
+    }
+    for (Class<?> type : types) {
+      interceptorCounts.merge(type, 1, Integer::sum);
+    }
   }
 
   public List<Interceptor> getInterceptors() {
     return Collections.unmodifiableList(interceptors);
   }
 
+  private static boolean usesDefaultPlugin(Interceptor interceptor) {
+    try {
+      return interceptor.getClass().getMethod("plugin", Object.class).getDeclaringClass() == Interceptor.class;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
 }
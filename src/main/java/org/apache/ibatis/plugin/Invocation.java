@@ -18,6 +18,8 @@ package org.apache.ibatis.plugin;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
+import org.apache.ibatis.reflection.ExceptionUtil;
+
 /**
  * @author Clinton Begin
  */
@@ -26,15 +28,45 @@ public class Invocation {
   private final Object target;
   private final Method method;
   private final Object[] args;
+  private final PluginChain.Handler handler;
+  private final PluginChain.Chain chain;
+  private final int index;
+  private Object chainTarget;
 
   public Invocation(Object target, Method method, Object[] args) {
     this.target = target;
     this.method = method;
     this.args = args;
+    this.handler = null;
+    this.chain = null;
+    this.index = 0;
+  }
+
+  /**
+   * Creates the invocation of {@code chain.get(index)}, proceeding calls the next interceptor of the chain before
+   * reaching the target.
+   */
+  Invocation(PluginChain.Handler handler, Method method, Object[] args, PluginChain.Chain chain, int index) {
+    this.target = handler.getTarget();
+    this.method = method;
+    this.args = args;
+    this.handler = handler;
+    this.chain = chain;
+    this.index = index;
   }
 
+  /**
+   * Returns the object the intercepted call was made on. Within a chain of interceptors this is the target as seen
+   * through the interceptors inside the current one, as with stacked plugin proxies.
+   */
   public Object getTarget() {
-    return target;
+    if (handler == null) {
+      return target;
+    }
+    if (chainTarget == null) {
+      chainTarget = handler.targetInside(chain.levelOf(index));
+    }
+    return chainTarget;
   }
 
   public Method getMethod() {
@@ -46,6 +78,14 @@ public class Invocation {
   }
 
   public Object proceed() throws InvocationTargetException, IllegalAccessException {
+    if (chain != null && index + 1 < chain.size()) {
+      try {
+        return chain.get(index + 1).intercept(new Invocation(handler, method, args, chain, index + 1));
+      } catch (Throwable t) {
+        // same exception an inner plugin proxy reached through reflection would raise
+        throw new InvocationTargetException(ExceptionUtil.unwrapThrowable(t));
+      }
+    }
     return method.invoke(target, args);
   }
 
@@ -18,6 +18,7 @@ package org.apache.ibatis.plugin;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -30,6 +31,14 @@ import org.apache.ibatis.reflection.ExceptionUtil;
  */
 public class Plugin implements InvocationHandler {
 
+  // a ClassValue does not keep the class loader of an interceptor class reachable
+  private static final ClassValue<Map<Class<?>, Set<Method>>> signatureMaps = new ClassValue<Map<Class<?>, Set<Method>>>() {
+    @Override
+    protected Map<Class<?>, Set<Method>> computeValue(Class<?> interceptorType) {
+      return resolveSignatureMap(interceptorType);
+    }
+  };
+
   private final Object target;
   private final Interceptor interceptor;
   private final Map<Class<?>, Set<Method>> signatureMap;
@@ -53,6 +62,24 @@ public class Plugin implements InvocationHandler {
     return target;
   }
 
+  /**
+   * Returns the object wrapped by the plugin proxies of this package, or the object itself when it is not one of
+   * them. Proxies created by other means are not unwrapped.
+   */
+  public static Object unwrap(Object object) {
+    while (object != null && Proxy.isProxyClass(object.getClass())) {
+      InvocationHandler handler = Proxy.getInvocationHandler(object);
+      if (handler instanceof Plugin) {
+        object = ((Plugin) handler).target;
+      } else if (handler instanceof PluginChain.Handler) {
+        object = ((PluginChain.Handler) handler).getTarget();
+      } else {
+        break;
+      }
+    }
+    return object;
+  }
+
   @Override
   public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
     try {
@@ -66,11 +93,19 @@ public class Plugin implements InvocationHandler {
     }
   }
 
-  private static Map<Class<?>, Set<Method>> getSignatureMap(Interceptor interceptor) {
-    Intercepts interceptsAnnotation = interceptor.getClass().getAnnotation(Intercepts.class);
+  /**
+   * Returns the methods intercepted by the interceptor, grouped by the type declaring them. The annotation is only
+   * read the first time an interceptor class is seen.
+   */
+  static Map<Class<?>, Set<Method>> getSignatureMap(Interceptor interceptor) {
+    return signatureMaps.get(interceptor.getClass());
+  }
+
+  private static Map<Class<?>, Set<Method>> resolveSignatureMap(Class<?> interceptorType) {
+    Intercepts interceptsAnnotation = interceptorType.getAnnotation(Intercepts.class);
     // issue #251
     if (interceptsAnnotation == null) {
-      throw new PluginException("No @Intercepts annotation was found in interceptor " + interceptor.getClass().getName());
+      throw new PluginException("No @Intercepts annotation was found in interceptor " + interceptorType.getName());
     }
     Signature[] sigs = interceptsAnnotation.value();
     Map<Class<?>, Set<Method>> signatureMap = new HashMap<>();
@@ -83,10 +118,13 @@ public class Plugin implements InvocationHandler {
         throw new PluginException("Could not find method on " + sig.type() + " named " + sig.method() + ". Cause: " + e, e);
       }
     }
-    return signatureMap;
+    for (Map.Entry<Class<?>, Set<Method>> entry : signatureMap.entrySet()) {
+      entry.setValue(Collections.unmodifiableSet(entry.getValue()));
+    }
+    return Collections.unmodifiableMap(signatureMap);
   }
 
-  private static Class<?>[] getAllInterfaces(Class<?> type, Map<Class<?>, Set<Method>> signatureMap) {
+  static Class<?>[] getAllInterfaces(Class<?> type, Map<Class<?>, Set<Method>> signatureMap) {
     Set<Class<?>> interfaces = new HashSet<>();
     while (type != null) {
       for (Class<?> c : type.getInterfaces()) {
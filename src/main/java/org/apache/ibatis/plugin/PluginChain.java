@@ -0,0 +1,199 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.plugin;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * Consecutive interceptors that rely on the default {@link Interceptor#plugin(Object)}, applied with a single proxy.
+ * <p>
+ * Stacking {@link Plugin#wrap(Object, Interceptor)} creates one proxy per interceptor, so a call passes through every
+ * proxy of the stack. Here the interceptors of each method are resolved once per target class, together with the
+ * proxy constructor, and a call is dispatched straight to the interceptors of its method in the order the stacked
+ * proxies would have called them: the last registered interceptor first.
+ * <p>
+ * Each interceptor keeps the level its proxy would have had in the stack. {@link Invocation#getTarget()} of an
+ * interceptor with inner levels returns a view of the target through those levels only, like the inner proxy it would
+ * have been given, so calling the target from an interceptor still runs the interceptors inside it.
+ */
+final class PluginChain {
+
+  private static final Dispatch NO_DISPATCH = new Dispatch(null, Collections.emptyMap(), -1);
+
+  private final List<Interceptor> interceptors = new ArrayList<>();
+  private final List<Map<Class<?>, Set<Method>>> signatureMaps = new ArrayList<>();
+  private final Map<Class<?>, Dispatch> dispatches = new ConcurrentHashMap<>();
+
+  void addInterceptor(Interceptor interceptor) {
+    signatureMaps.add(Plugin.getSignatureMap(interceptor));
+    interceptors.add(interceptor);
+    dispatches.clear();
+  }
+
+  Object wrap(Object target) {
+    Dispatch dispatch = dispatches.computeIfAbsent(target.getClass(), this::compile);
+    if (dispatch.proxyConstructor == null) {
+      return target;
+    }
+    return dispatch.newProxy(target, 0);
+  }
+
+  private Dispatch compile(Class<?> type) {
+    Set<Class<?>> interfaces = new LinkedHashSet<>();
+    Map<Method, List<Integer>> levelsByMethod = new HashMap<>();
+    int innermostLevel = -1;
+    // the last registered interceptor is the outermost proxy of a stack, level 0, so it runs first
+    for (int i = interceptors.size() - 1; i >= 0; i--) {
+      int level = interceptors.size() - 1 - i;
+      Map<Class<?>, Set<Method>> signatureMap = signatureMaps.get(i);
+      for (Class<?> targetInterface : Plugin.getAllInterfaces(type, signatureMap)) {
+        interfaces.add(targetInterface);
+        innermostLevel = level;
+        for (Method method : signatureMap.get(targetInterface)) {
+          // Plugin matches on the declaring type of the invoked method
+          if (method.getDeclaringClass() == targetInterface) {
+            levelsByMethod.computeIfAbsent(method, k -> new ArrayList<>()).add(level);
+          }
+        }
+      }
+    }
+    if (interfaces.isEmpty()) {
+      return NO_DISPATCH;
+    }
+    Map<Method, Chain> chains = new HashMap<>();
+    for (Map.Entry<Method, List<Integer>> entry : levelsByMethod.entrySet()) {
+      List<Integer> levels = entry.getValue();
+      Interceptor[] chain = new Interceptor[levels.size()];
+      int[] chainLevels = new int[levels.size()];
+      for (int j = 0; j < chain.length; j++) {
+        chainLevels[j] = levels.get(j);
+        chain[j] = interceptors.get(interceptors.size() - 1 - chainLevels[j]);
+      }
+      chains.put(entry.getKey(), new Chain(chain, chainLevels));
+    }
+    try {
+      @SuppressWarnings("deprecation")
+      Class<?> proxyType = Proxy.getProxyClass(type.getClassLoader(), interfaces.toArray(new Class<?>[0]));
+      return new Dispatch(proxyType.getConstructor(InvocationHandler.class), chains, innermostLevel);
+    } catch (NoSuchMethodException e) {
+      throw new PluginException("Could not create plugin proxy class for " + type.getName() + ". Cause: " + e, e);
+    }
+  }
+
+  private static final class Dispatch {
+    private final Constructor<?> proxyConstructor;
+    private final Map<Method, Chain> chains;
+    private final int innermostLevel;
+
+    private Dispatch(Constructor<?> proxyConstructor, Map<Method, Chain> chains, int innermostLevel) {
+      this.proxyConstructor = proxyConstructor;
+      this.chains = chains;
+      this.innermostLevel = innermostLevel;
+    }
+
+    private Object newProxy(Object target, int fromLevel) {
+      try {
+        return proxyConstructor.newInstance(new Handler(target, this, fromLevel));
+      } catch (Exception e) {
+        throw new PluginException("Could not create plugin proxy for " + target.getClass().getName() + ". Cause: " + e, e);
+      }
+    }
+  }
+
+  /**
+   * The interceptors of one method, outermost first, with their levels in the stack.
+   */
+  static final class Chain {
+    private final Interceptor[] interceptors;
+    private final int[] levels;
+
+    private Chain(Interceptor[] interceptors, int[] levels) {
+      this.interceptors = interceptors;
+      this.levels = levels;
+    }
+
+    int size() {
+      return interceptors.length;
+    }
+
+    Interceptor get(int index) {
+      return interceptors[index];
+    }
+
+    int levelOf(int index) {
+      return levels[index];
+    }
+  }
+
+  static final class Handler implements InvocationHandler {
+    // named like the field of Plugin so that code unwrapping proxies through "h.target" keeps working
+    private final Object target;
+    private final Dispatch dispatch;
+    // interceptors above this level are outside the proxy of this handler
+    private final int fromLevel;
+
+    private Handler(Object target, Dispatch dispatch, int fromLevel) {
+      this.target = target;
+      this.dispatch = dispatch;
+      this.fromLevel = fromLevel;
+    }
+
+    Object getTarget() {
+      return target;
+    }
+
+    /**
+     * Returns what the stacked proxy of the interceptor at the level would have wrapped: the target itself when
+     * no interceptor is inside it, otherwise a view of the target through the inner levels.
+     */
+    Object targetInside(int level) {
+      return level >= dispatch.innermostLevel ? target : dispatch.newProxy(target, level + 1);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      try {
+        Chain chain = dispatch.chains.get(method);
+        if (chain != null) {
+          int index = 0;
+          while (index < chain.levels.length && chain.levels[index] < fromLevel) {
+            index++;
+          }
+          if (index < chain.levels.length) {
+            return chain.interceptors[index].intercept(new Invocation(this, method, args, chain, index));
+          }
+        }
+        return method.invoke(target, args);
+      } catch (Exception e) {
+        throw ExceptionUtil.unwrapThrowable(e);
+      }
+    }
+  }
+
+}
@@ -18,6 +18,7 @@ package org.apache.ibatis.reflection;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
@@ -49,6 +50,12 @@ public class ParamNameResolver {
    */
   private boolean hasParamAnnotation;
 
+  /**
+   * 多个参数时ParamMap中的参数名称(包括param1,param2等通用名称)以及对应的实参位置,在构造方法中计算一次
+   */
+  private final String[] paramMapNames;
+  private final int[] paramMapArgIndexes;
+
   public ParamNameResolver(Configuration config, Method method) {
     // 获得参数的类型和注解
     final Class<?>[] paramTypes = method.getParameterTypes();
@@ -86,6 +93,22 @@ public class ParamNameResolver {
     }
     // 初始化names集合
     names = Collections.unmodifiableSortedMap(map);
+    // 与HashMap的put一致,同名的参数以后面的为准
+    final Map<String, Integer> paramMapEntries = new LinkedHashMap<>();
+    int i = 0;
+    for (Map.Entry<Integer, String> entry : names.entrySet()) {
+      paramMapEntries.put(entry.getValue(), entry.getKey());
+      final String genericParamName = GENERIC_NAME_PREFIX + String.valueOf(i + 1);
+      if (!names.containsValue(genericParamName)) {
+        paramMapEntries.put(genericParamName, entry.getKey());
+      }
+      i++;
+    }
+    paramMapNames = paramMapEntries.keySet().toArray(new String[0]);
+    paramMapArgIndexes = new int[paramMapNames.length];
+    for (int j = 0; j < paramMapNames.length; j++) {
+      paramMapArgIndexes[j] = paramMapEntries.get(paramMapNames[j]);
+    }
   }
 
   private String getActualParamName(Method method, int paramIndex) {
@@ -126,19 +149,8 @@ public class ParamNameResolver {
       return args[names.firstKey()];
     } else {
       // 处理使用@Param注解指定了参数名称或有多个参数的情况
-      final Map<String, Object> param = new ParamMap<>();
-      int i = 0;
-      for (Map.Entry<Integer, String> entry : names.entrySet()) {
-        // 将参数名与实参对应关系记录到parameter中
-        param.put(entry.getValue(), args[entry.getKey()]);
-        // 下面是为参数创建"param+索引"格式的默认参数名称，如 param1， param2等，并添加到param集合
-        final String genericParamName = GENERIC_NAME_PREFIX + String.valueOf(i + 1);
-        // 如果@Param注解指定的参数名称就是"param+索引"的格式,则不需要再添加
-        if (!names.containsValue(genericParamName)) {
-          param.put(genericParamName, args[entry.getKey()]);
-        }
-        i++;
-      }
+      // 参数名称和"param+索引"格式的通用名称都已在构造方法中算好,ParamMap直接引用args数组
+      final Map<String, Object> param = new ParamMap<>(paramMapNames, paramMapArgIndexes, args);
       return param;
     }
   }
@@ -35,6 +35,7 @@ import java.util.Map.Entry;
 import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
 import org.apache.ibatis.reflection.invoker.Invoker;
 import org.apache.ibatis.reflection.invoker.MethodInvoker;
+import org.apache.ibatis.reflection.invoker.PrimitiveSetInvoker;
 import org.apache.ibatis.reflection.invoker.SetFieldInvoker;
 import org.apache.ibatis.reflection.property.PropertyNamer;
 
@@ -60,6 +61,10 @@ public class Reflector {
    * setter方法的缓存,key是属性名称,value是setter方法对应的Method对象的封装Invoker
    */
   private final Map<String, Invoker> setMethods = new HashMap<>();
+  /**
+   * 类型为基本类型的可写属性,通过PrimitiveSetInvoker赋值时不需要装箱
+   */
+  private final Map<String, PrimitiveSetInvoker> primitiveSetInvokers = new HashMap<>();
   /**
    * getter方法的缓存,key是属性名称,value是getter方法对应的Method对象的封装Invoker
    */
@@ -282,6 +287,11 @@ public class Reflector {
   private void addSetMethod(String name, Method method) {
     if (isValidPropertyName(name)) {
       setMethods.put(name, new MethodInvoker(method));
+      if (method.getParameterTypes()[0].isPrimitive()) {
+        primitiveSetInvokers.put(name, new PrimitiveSetInvoker(method));
+      } else {
+        primitiveSetInvokers.remove(name);
+      }
       Type[] paramTypes = TypeParameterResolver.resolveParamTypes(method, type);
       setTypes.put(name, typeToClass(paramTypes[0]));
     }
@@ -334,6 +344,9 @@ public class Reflector {
   private void addSetField(Field field) {
     if (isValidPropertyName(field.getName())) {
       setMethods.put(field.getName(), new SetFieldInvoker(field));
+      if (field.getType().isPrimitive() && !Modifier.isFinal(field.getModifiers())) {
+        primitiveSetInvokers.put(field.getName(), new PrimitiveSetInvoker(field));
+      }
       Type fieldType = TypeParameterResolver.resolveFieldType(field, type);
       setTypes.put(field.getName(), typeToClass(fieldType));
     }
@@ -465,6 +478,16 @@ public class Reflector {
     return method;
   }
 
+  /**
+   * Gets the invoker that sets a primitive property without boxing.
+   *
+   * @param propertyName the property name
+   * @return the invoker, or {@code null} if the property is not writable or not primitive
+   */
+  public PrimitiveSetInvoker getPrimitiveSetInvoker(String propertyName) {
+    return primitiveSetInvokers.get(propertyName);
+  }
+
   public Invoker getGetInvoker(String propertyName) {
     Invoker method = getMethods.get(propertyName);
     if (method == null) {
@@ -0,0 +1,117 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+
+import org.apache.ibatis.lang.UsesJava7;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
+
+/**
+ * Sets a primitive property (through its setter method or field) without boxing the value.
+ * The underlying {@link MethodHandle} is resolved on first use. Its signature polymorphic invocations have no
+ * entry in the Java 8 API signature, hence the {@link UsesJava7} markers on the methods calling it.
+ */
+public class PrimitiveSetInvoker implements Invoker {
+
+  private final Member member;
+  private final Class<?> type;
+  private volatile MethodHandle handle;
+
+  public PrimitiveSetInvoker(Method method) {
+    this.member = method;
+    this.type = method.getParameterTypes()[0];
+  }
+
+  public PrimitiveSetInvoker(Field field) {
+    this.member = field;
+    this.type = field.getType();
+  }
+
+  @UsesJava7
+  public void setInt(Object target, int value) {
+    try {
+      handle().invokeExact(target, value);
+    } catch (Throwable t) {
+      throw wrap(t);
+    }
+  }
+
+  @UsesJava7
+  public void setLong(Object target, long value) {
+    try {
+      handle().invokeExact(target, value);
+    } catch (Throwable t) {
+      throw wrap(t);
+    }
+  }
+
+  @UsesJava7
+  public void setDouble(Object target, double value) {
+    try {
+      handle().invokeExact(target, value);
+    } catch (Throwable t) {
+      throw wrap(t);
+    }
+  }
+
+  @UsesJava7
+  @Override
+  public Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException {
+    try {
+      handle().invoke(target, args[0]);
+    } catch (IllegalAccessException | InvocationTargetException | RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new InvocationTargetException(t);
+    }
+    return null;
+  }
+
+  @Override
+  public Class<?> getType() {
+    return type;
+  }
+
+  private MethodHandle handle() throws IllegalAccessException {
+    MethodHandle result = handle;
+    if (result == null) {
+      if (Reflector.canControlMemberAccessible()) {
+        ((AccessibleObject) member).setAccessible(true);
+      }
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      result = member instanceof Method ? lookup.unreflect((Method) member) : lookup.unreflectSetter((Field) member);
+      result = result.asType(MethodType.methodType(void.class, Object.class, type));
+      handle = result;
+    }
+    return result;
+  }
+
+  private RuntimeException wrap(Throwable t) {
+    if (t instanceof RuntimeException) {
+      return (RuntimeException) t;
+    }
+    return new ReflectionException("Could not set property '" + member.getName() + "' of '" + member.getDeclaringClass() + "'. Cause: " + t, t);
+  }
+}
@@ -15,22 +15,17 @@
  */
 package org.apache.ibatis.scripting.defaults;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.sql.PreparedStatement;
-import java.sql.SQLException;
-import java.util.List;
 
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
-import org.apache.ibatis.mapping.ParameterMode;
-import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.metrics.MetricsCollector;
 import org.apache.ibatis.session.Configuration;
-import org.apache.ibatis.type.JdbcType;
-import org.apache.ibatis.type.TypeException;
-import org.apache.ibatis.type.TypeHandler;
-import org.apache.ibatis.type.TypeHandlerRegistry;
 
 /**
  * @author Clinton Begin
@@ -38,17 +33,15 @@ import org.apache.ibatis.type.TypeHandlerRegistry;
  */
 public class DefaultParameterHandler implements ParameterHandler {
 
-  private final TypeHandlerRegistry typeHandlerRegistry;
-
   private final MappedStatement mappedStatement;
   private final Object parameterObject;
   private final BoundSql boundSql;
   private final Configuration configuration;
+  private ParameterBindingPlan.BoundValueListener boundValueListener;
 
   public DefaultParameterHandler(MappedStatement mappedStatement, Object parameterObject, BoundSql boundSql) {
     this.mappedStatement = mappedStatement;
     this.configuration = mappedStatement.getConfiguration();
-    this.typeHandlerRegistry = mappedStatement.getConfiguration().getTypeHandlerRegistry();
     this.parameterObject = parameterObject;
     this.boundSql = boundSql;
   }
@@ -61,37 +54,68 @@ public class DefaultParameterHandler implements ParameterHandler {
   @Override
   public void setParameters(PreparedStatement ps) {
     ErrorContext.instance().activity("setting parameters").object(mappedStatement.getParameterMap().getId());
-    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
-    if (parameterMappings != null) {
-      for (int i = 0; i < parameterMappings.size(); i++) {
-        ParameterMapping parameterMapping = parameterMappings.get(i);
-        if (parameterMapping.getMode() != ParameterMode.OUT) {
-          Object value;
-          String propertyName = parameterMapping.getProperty();
-          if (boundSql.hasAdditionalParameter(propertyName)) { // issue #448 ask first for additional params
-            value = boundSql.getAdditionalParameter(propertyName);
-          } else if (parameterObject == null) {
-            value = null;
-          } else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
-            value = parameterObject;
-          } else {
-            MetaObject metaObject = configuration.newMetaObject(parameterObject);
-            value = metaObject.getValue(propertyName);
-          }
-          TypeHandler typeHandler = parameterMapping.getTypeHandler();
-          JdbcType jdbcType = parameterMapping.getJdbcType();
-          if (value == null && jdbcType == null) {
-            jdbcType = configuration.getJdbcTypeForNull();
-          }
-          try {
-            typeHandler.setParameter(ps, i + 1, value, jdbcType);
-          } catch (TypeException e) {
-            throw new TypeException("Could not set parameters for mapping: " + parameterMapping + ". Cause: " + e, e);
-          } catch (SQLException e) {
-            throw new TypeException("Could not set parameters for mapping: " + parameterMapping + ". Cause: " + e, e);
-          }
-        }
+    if (boundSql.getParameterMappings() != null) {
+      final ParameterBindingPlan plan = mappedStatement.getParameterBindingPlans().getPlan(configuration, boundSql, parameterObject);
+      final MetricsCollector metrics = configuration.getMetricsCollector();
+      if (metrics == null) {
+        plan.setParameters(ps, boundSql, parameterObject, boundValueListener);
+      } else {
+        final BoundBytes boundBytes = new BoundBytes(boundValueListener);
+        plan.setParameters(ps, boundSql, parameterObject, boundBytes);
+        metrics.recordBytesBound(mappedStatement, boundBytes.total);
+      }
+    }
+  }
+
+  /**
+   * Sets a listener receiving the parameter values as they are bound, e.g. to trace them.
+   */
+  public void setBoundValueListener(ParameterBindingPlan.BoundValueListener boundValueListener) {
+    this.boundValueListener = boundValueListener;
+  }
+
+  /**
+   * Adds up the approximate size of the bound values.
+   */
+  private static class BoundBytes implements ParameterBindingPlan.BoundValueListener {
+
+    private final ParameterBindingPlan.BoundValueListener next;
+    private long total;
+
+    BoundBytes(ParameterBindingPlan.BoundValueListener next) {
+      this.next = next;
+    }
+
+    @Override
+    public void valueBound(int parameterIndex, ParameterMapping parameterMapping, Object value) {
+      total += estimateSize(value);
+      if (next != null) {
+        next.valueBound(parameterIndex, parameterMapping, value);
+      }
+    }
+
+    static long estimateSize(Object value) {
+      if (value == null) {
+        return 0;
+      } else if (value instanceof CharSequence) {
+        return ((CharSequence) value).length();
+      } else if (value instanceof byte[]) {
+        return ((byte[]) value).length;
+      } else if (value instanceof char[]) {
+        return ((char[]) value).length;
+      } else if (value instanceof Boolean || value instanceof Byte) {
+        return 1;
+      } else if (value instanceof Short) {
+        return 2;
+      } else if (value instanceof Integer || value instanceof Float) {
+        return 4;
+      } else if (value instanceof BigDecimal) {
+        return ((BigDecimal) value).unscaledValue().bitLength() / 8 + 1;
+      } else if (value instanceof BigInteger) {
+        return ((BigInteger) value).bitLength() / 8 + 1;
       }
+      // longs, doubles, dates and anything else
+      return 8;
     }
   }
 
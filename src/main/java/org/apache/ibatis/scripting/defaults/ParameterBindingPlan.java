@@ -0,0 +1,301 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.defaults;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapper;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.TypeException;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * How the parameter mappings of a statement read their values from a parameter object of a given type.
+ * <p>
+ * {@link DefaultParameterHandler} used to decide per parameter and per execution whether the value is the
+ * parameter object itself or one of its properties, and to read properties through a new {@code MetaObject}.
+ * A plan makes those decisions once: simple map keys are read with {@link Map#get(Object)} and plain bean paths
+ * through the getter invokers of each segment. Anything else is still read through a {@code MetaObject}.
+ * <p>
+ * Plans are kept in a {@link Cache} by parameter type and shared between threads. A plan only depends on the
+ * property and mode of each mapping, so dynamic SQL, which builds a new mapping list per execution, reuses the plan
+ * of an earlier execution that produced the same properties.
+ */
+public class ParameterBindingPlan {
+
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
+  private final Configuration configuration;
+  private final List<ParameterMapping> parameterMappings;
+  private final String[] properties;
+  private final ParameterMode[] modes;
+  private final ValueReader[] valueReaders;
+
+  private ParameterBindingPlan(Configuration configuration, List<ParameterMapping> parameterMappings, Class<?> parameterType) {
+    this.configuration = configuration;
+    this.parameterMappings = parameterMappings;
+    this.properties = new String[parameterMappings.size()];
+    this.modes = new ParameterMode[parameterMappings.size()];
+    this.valueReaders = new ValueReader[parameterMappings.size()];
+    final boolean wholeParameter = parameterType != null && configuration.getTypeHandlerRegistry().hasTypeHandler(parameterType);
+    for (int i = 0; i < valueReaders.length; i++) {
+      final ParameterMapping parameterMapping = parameterMappings.get(i);
+      properties[i] = parameterMapping.getProperty();
+      modes[i] = parameterMapping.getMode();
+      if (parameterMapping.getMode() == ParameterMode.OUT) {
+        continue;
+      }
+      if (parameterType == null) {
+        valueReaders[i] = parameterObject -> null;
+      } else if (wholeParameter) {
+        valueReaders[i] = parameterObject -> parameterObject;
+      } else {
+        valueReaders[i] = compileReader(parameterType, parameterMapping.getProperty());
+      }
+    }
+  }
+
+  /**
+   * Compiles a plan for the parameter mappings of a bound SQL.
+   *
+   * @param parameterType the class of the parameter object, {@code null} for a null parameter object
+   */
+  public static ParameterBindingPlan compile(Configuration configuration, List<ParameterMapping> parameterMappings, Class<?> parameterType) {
+    return new ParameterBindingPlan(configuration, parameterMappings, parameterType);
+  }
+
+  /**
+   * Whether the plan reads the values of these parameter mappings. Static SQL sources return the same mapping list
+   * on every execution, dynamic ones build a new list each time which applies if it maps the same properties with
+   * the same modes.
+   */
+  public boolean appliesTo(BoundSql boundSql) {
+    final List<ParameterMapping> mappings = boundSql.getParameterMappings();
+    if (mappings == parameterMappings) {
+      return true;
+    }
+    if (mappings.size() != properties.length) {
+      return false;
+    }
+    for (int i = 0; i < properties.length; i++) {
+      final ParameterMapping mapping = mappings.get(i);
+      if (mapping.getMode() != modes[i] || !Objects.equals(mapping.getProperty(), properties[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public void setParameters(PreparedStatement ps, BoundSql boundSql, Object parameterObject) {
+    setParameters(ps, boundSql, parameterObject, null);
+  }
+
+  /**
+   * Binds the parameters, passing each bound value to the listener.
+   *
+   * @param listener receives the bound values, may be {@code null}
+   */
+  public void setParameters(PreparedStatement ps, BoundSql boundSql, Object parameterObject, BoundValueListener listener) {
+    // type handlers and JDBC types are taken from the bound SQL, the plan may have been compiled for another list
+    final List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    final boolean additionalParameters = boundSql.hasAdditionalParameters();
+    for (int i = 0; i < valueReaders.length; i++) {
+      final ValueReader valueReader = valueReaders[i];
+      if (valueReader == null) {
+        continue;
+      }
+      final ParameterMapping parameterMapping = parameterMappings.get(i);
+      final Object value;
+      final String propertyName = parameterMapping.getProperty();
+      if (additionalParameters && boundSql.hasAdditionalParameter(propertyName)) { // issue #448 ask first for additional params
+        value = boundSql.getAdditionalParameter(propertyName);
+      } else {
+        value = valueReader.read(parameterObject);
+      }
+      TypeHandler typeHandler = parameterMapping.getTypeHandler();
+      JdbcType jdbcType = parameterMapping.getJdbcType();
+      if (value == null && jdbcType == null) {
+        jdbcType = configuration.getJdbcTypeForNull();
+      }
+      try {
+        typeHandler.setParameter(ps, i + 1, value, jdbcType);
+      } catch (TypeException | SQLException e) {
+        throw new TypeException("Could not set parameters for mapping: " + parameterMapping + ". Cause: " + e, e);
+      }
+      if (listener != null) {
+        listener.valueBound(i + 1, parameterMapping, value);
+      }
+    }
+  }
+
+  private ValueReader compileReader(Class<?> parameterType, String property) {
+    if (property != null && property.indexOf('[') < 0 && !ObjectWrapper.class.isAssignableFrom(parameterType)
+        && configuration.getObjectWrapperFactory() instanceof DefaultObjectWrapperFactory) {
+      if (Map.class.isAssignableFrom(parameterType)) {
+        if (property.indexOf('.') < 0) {
+          return parameterObject -> ((Map<?, ?>) parameterObject).get(property);
+        }
+      } else {
+        final Invoker[] getters = resolveGetters(parameterType, property, configuration.getReflectorFactory());
+        if (getters != null) {
+          return parameterObject -> readPath(getters, parameterObject, property);
+        }
+      }
+    }
+    return parameterObject -> configuration.newMetaObject(parameterObject).getValue(property);
+  }
+
+  /**
+   * Resolves the getters of a plain bean path, where every object on the path is wrapped in a {@code BeanWrapper}.
+   *
+   * @return the getters, or {@code null} if the path has to be read through a {@code MetaObject}
+   */
+  private static Invoker[] resolveGetters(Class<?> beanType, String property, ReflectorFactory reflectorFactory) {
+    final String[] names = property.split("\\.", -1);
+    final Invoker[] getters = new Invoker[names.length];
+    Class<?> ownerType = beanType;
+    for (int i = 0; i < names.length; i++) {
+      if (!isPlainBean(ownerType)) {
+        return null;
+      }
+      final Reflector reflector = reflectorFactory.findForClass(ownerType);
+      if (names[i].isEmpty() || !reflector.hasGetter(names[i])) {
+        return null;
+      }
+      getters[i] = reflector.getGetInvoker(names[i]);
+      ownerType = reflector.getGetterType(names[i]);
+    }
+    return getters;
+  }
+
+  private static boolean isPlainBean(Class<?> type) {
+    return type != Object.class && !type.isInterface() && !type.isArray() && !type.isPrimitive()
+        && !Map.class.isAssignableFrom(type) && !Collection.class.isAssignableFrom(type)
+        && !ObjectWrapper.class.isAssignableFrom(type);
+  }
+
+  private static Object readPath(Invoker[] getters, Object parameterObject, String property) {
+    Object value = parameterObject;
+    for (Invoker getter : getters) {
+      if (value == null) {
+        // like MetaObject, a null object on the path reads as null
+        return null;
+      }
+      value = readProperty(getter, value, property);
+    }
+    return value;
+  }
+
+  private static Object readProperty(Invoker getter, Object owner, String property) {
+    try {
+      try {
+        return getter.invoke(owner, NO_ARGUMENTS);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new ReflectionException("Could not get property '" + property + "' from " + owner.getClass() + ".  Cause: " + t.toString(), t);
+    }
+  }
+
+  /**
+   * Receives the parameter values of a statement as they are bound.
+   */
+  @FunctionalInterface
+  public interface BoundValueListener {
+    void valueBound(int parameterIndex, ParameterMapping parameterMapping, Object value);
+  }
+
+  @FunctionalInterface
+  private interface ValueReader {
+    Object read(Object parameterObject);
+  }
+
+  /**
+   * The plans of a statement by parameter type, and per type by the properties of the parameter mappings.
+   */
+  public static class Cache {
+
+    static final int MAX_PLANS = 8;
+    static final int MAX_PLANS_PER_TYPE = 8;
+
+    // a null parameter object has no class, void.class never is the class of an object
+    private static final Class<?> NULL_PARAMETER = void.class;
+
+    private final Map<Class<?>, ParameterBindingPlan[]> plans = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the plan for binding the parameter object to the bound SQL, compiling it if needed. Up to
+     * {@value #MAX_PLANS_PER_TYPE} plans are cached per parameter type, one for each distinct list of mapped
+     * properties such as the branches of a dynamic statement or the sizes of a {@code foreach}.
+     */
+    public ParameterBindingPlan getPlan(Configuration configuration, BoundSql boundSql, Object parameterObject) {
+      final Class<?> parameterType = parameterObject == null ? null : parameterObject.getClass();
+      final Class<?> key = parameterType == null ? NULL_PARAMETER : parameterType;
+      final ParameterBindingPlan[] typePlans = plans.get(key);
+      if (typePlans != null) {
+        for (ParameterBindingPlan plan : typePlans) {
+          if (plan.appliesTo(boundSql)) {
+            return plan;
+          }
+        }
+      }
+      final ParameterBindingPlan compiled = compile(configuration, boundSql.getParameterMappings(), parameterType);
+      if (typePlans == null ? plans.size() < MAX_PLANS : typePlans.length < MAX_PLANS_PER_TYPE) {
+        plans.merge(key, new ParameterBindingPlan[] { compiled }, (cached, added) -> {
+          if (cached.length >= MAX_PLANS_PER_TYPE) {
+            return cached;
+          }
+          final ParameterBindingPlan[] merged = Arrays.copyOf(cached, cached.length + 1);
+          merged[cached.length] = compiled;
+          return merged;
+        });
+      }
+      return compiled;
+    }
+
+    /**
+     * Returns the number of cached plans.
+     */
+    public int size() {
+      int size = 0;
+      for (ParameterBindingPlan[] typePlans : plans.values()) {
+        size += typePlans.length;
+      }
+      return size;
+    }
+  }
+
+}
@@ -15,22 +15,29 @@
  */
 package org.apache.ibatis.session;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiFunction;
+import java.util.function.Predicate;
 
 import org.apache.ibatis.binding.MapperRegistry;
 import org.apache.ibatis.builder.CacheRefResolver;
 import org.apache.ibatis.builder.IncompleteElementException;
 import org.apache.ibatis.builder.ResultMapResolver;
+import org.apache.ibatis.builder.StartupReport;
 import org.apache.ibatis.builder.annotation.MethodResolver;
 import org.apache.ibatis.builder.xml.XMLStatementBuilder;
 import org.apache.ibatis.cache.Cache;
@@ -40,6 +47,7 @@ import org.apache.ibatis.cache.decorators.SoftCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
 import org.apache.ibatis.executor.BatchExecutor;
@@ -55,7 +63,9 @@ import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.executor.statement.RoutingStatementHandler;
+import org.apache.ibatis.executor.statement.SlowStatementDetector;
 import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.executor.statement.StatementTracer;
 import org.apache.ibatis.io.VFS;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
@@ -72,6 +82,10 @@ import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMap;
 import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.mapping.VendorDatabaseIdProvider;
+import org.apache.ibatis.metrics.DefaultMetricsCollector;
+import org.apache.ibatis.metrics.MetricsCollector;
+import org.apache.ibatis.metrics.PhaseTimings;
+import org.apache.ibatis.metrics.StatementMetrics;
 import org.apache.ibatis.parsing.XNode;
 import org.apache.ibatis.plugin.Interceptor;
 import org.apache.ibatis.plugin.InterceptorChain;
@@ -117,6 +131,47 @@ public class Configuration {
   protected boolean returnInstanceForEmptyRow;
 
   protected String logPrefix;
+  /**
+   * 保存映射文件解析结果快照的目录,为null时不使用快照,每次启动都重新解析映射文件
+   */
+  protected String mapperSnapshotDirectory;
+  /**
+   * 是否并行解析映射文件,解析结果仍按声明顺序加载
+   */
+  protected boolean parallelMapperParsing;
+  /**
+   * 是否使用StAX流式解析映射文件
+   */
+  protected boolean streamingMapperParsing;
+  /**
+   * 是否延迟到第一次使用时才编译映射语句
+   */
+  protected boolean lazyStatementCompilation;
+  /**
+   * 延迟编译模式下,加载完映射文件后立即编译的语句id或命名空间
+   */
+  protected Set<String> warmUpStatements = new HashSet<>();
+  /**
+   * 开启startupProfiling时记录构建Configuration各阶段的耗时,未开启时为null
+   */
+  protected StartupReport startupReport;
+  /**
+   * 记录各语句执行耗时,行数,缓存命中等指标,为null时不做任何统计
+   */
+  protected MetricsCollector metricsCollector;
+  /**
+   * 记录执行耗时超过阈值的语句,为null时不检测
+   */
+  protected SlowStatementDetector slowStatementDetector;
+  /**
+   * 按采样率记录语句执行的跟踪日志,设置后不再通过JDBC日志代理记录语句,为null时不跟踪
+   */
+  protected StatementTracer statementTracer;
+  /**
+   * 是否统计prepare,parameterize,execute,取行及结果映射各阶段的耗时,交给metricsCollector按语句id累计。
+   * 开启时还没有metricsCollector则使用DefaultMetricsCollector,之后移除metricsCollector时不再统计
+   */
+  protected boolean statementPhaseTiming;
   protected Class <? extends Log> logImpl;
   protected Class <? extends VFS> vfsImpl;
   protected LocalCacheScope localCacheScope = LocalCacheScope.SESSION;
@@ -166,6 +221,26 @@ public class Configuration {
   protected final Collection<CacheRefResolver> incompleteCacheRefs = new LinkedList<>();
   protected final Collection<ResultMapResolver> incompleteResultMaps = new LinkedList<>();
   protected final Collection<MethodResolver> incompleteMethods = new LinkedList<>();
+  /**
+   * 等待编译的语句,key为语句的完整id,value为按登记顺序执行的编译动作(同一id可能对应多个databaseId)
+   */
+  protected final Map<String, List<Runnable>> lazyStatements = new ConcurrentHashMap<>();
+  /**
+   * 登记过的延迟编译语句的id和databaseId,用于在加载阶段发现重复的语句
+   */
+  protected final Set<String> lazyStatementKeys = new HashSet<>();
+  /**
+   * 登记过的延迟编译语句的短名称,不含该短名称的id不必加锁就可以确定没有等待编译的语句
+   */
+  protected final Set<String> lazyStatementShortNames = ConcurrentHashMap.newKeySet();
+  /**
+   * 正在编译的语句id,已经不在lazyStatements中但还没有加入mappedStatements
+   */
+  protected final Set<String> compilingLazyStatements = ConcurrentHashMap.newKeySet();
+  /**
+   * 编译延迟编译的语句时持有的锁
+   */
+  protected final ReentrantLock lazyStatementLock = new ReentrantLock();
 
   /*
    * A map holds cache-ref relationship. The key is the namespace that
@@ -198,6 +273,8 @@ public class Configuration {
     typeAliasRegistry.registerAlias("XML", XMLLanguageDriver.class);
     typeAliasRegistry.registerAlias("RAW", RawLanguageDriver.class);
 
+    typeAliasRegistry.registerAlias("METRICS", DefaultMetricsCollector.class);
+
     typeAliasRegistry.registerAlias("SLF4J", Slf4jImpl.class);
     typeAliasRegistry.registerAlias("COMMONS_LOGGING", JakartaCommonsLoggingImpl.class);
     typeAliasRegistry.registerAlias("LOG4J", Log4jImpl.class);
@@ -221,6 +298,166 @@ public class Configuration {
     this.logPrefix = logPrefix;
   }
 
+  public String getMapperSnapshotDirectory() {
+    return mapperSnapshotDirectory;
+  }
+
+  /**
+   * 设置后,映射文件的解析结果会以二进制快照的形式保存在该目录中,内容未改变的映射文件在下次启动时直接从快照恢复
+   */
+  public void setMapperSnapshotDirectory(String mapperSnapshotDirectory) {
+    this.mapperSnapshotDirectory = mapperSnapshotDirectory;
+  }
+
+  public boolean isParallelMapperParsing() {
+    return parallelMapperParsing;
+  }
+
+  /**
+   * 开启后,mappers中通过resource和url指定的映射文件会在ForkJoinPool中并行解析(读取、校验并生成DOM),
+   * 之后再按声明的顺序逐个加载到Configuration中,所以冲突检测和报错与顺序解析时一致
+   */
+  public void setParallelMapperParsing(boolean parallelMapperParsing) {
+    this.parallelMapperParsing = parallelMapperParsing;
+  }
+
+  public boolean isStreamingMapperParsing() {
+    return streamingMapperParsing;
+  }
+
+  /**
+   * 开启后,映射文件通过StAX单次读取直接生成节点树,不再加载和校验DTD,用于减少解析时间和内存占用。
+   * 设置了mapperSnapshotDirectory时,快照优先
+   */
+  public void setStreamingMapperParsing(boolean streamingMapperParsing) {
+    this.streamingMapperParsing = streamingMapperParsing;
+  }
+
+  public boolean isLazyStatementCompilation() {
+    return lazyStatementCompilation;
+  }
+
+  /**
+   * 开启后,映射文件和Mapper接口中的语句只登记编译动作,在第一次通过getMappedStatement()或hasStatement()访问时
+   * 才生成MappedStatement。resultMap、sql片段和缓存仍在加载时处理,所以编译时依赖的元素都已存在。
+   * <p>
+   * 加载阶段只检查重复的语句id,语句本身的错误(如不存在的resultMap、错误的参数表达式)要到第一次访问该语句时才会抛出,
+   * 需要在启动时发现这类错误的语句可以列在warmUpStatements中
+   */
+  public void setLazyStatementCompilation(boolean lazyStatementCompilation) {
+    this.lazyStatementCompilation = lazyStatementCompilation;
+  }
+
+  public Set<String> getWarmUpStatements() {
+    return warmUpStatements;
+  }
+
+  public void setWarmUpStatements(Set<String> warmUpStatements) {
+    this.warmUpStatements = warmUpStatements;
+  }
+
+  public boolean isStartupProfiling() {
+    return startupReport != null;
+  }
+
+  /**
+   * 开启后,解析配置文件、映射文件、扫描包以及处理未完成元素的耗时和内存分配会记录到getStartupReport()中
+   */
+  public void setStartupProfiling(boolean startupProfiling) {
+    if (!startupProfiling) {
+      this.startupReport = null;
+    } else if (this.startupReport == null) {
+      this.startupReport = new StartupReport();
+    }
+  }
+
+  public StartupReport getStartupReport() {
+    return startupReport;
+  }
+
+  public void setStartupReport(StartupReport startupReport) {
+    this.startupReport = startupReport;
+  }
+
+  public MetricsCollector getMetricsCollector() {
+    return metricsCollector;
+  }
+
+  public void setMetricsCollector(MetricsCollector metricsCollector) {
+    this.metricsCollector = metricsCollector;
+    bindPoolMetrics();
+  }
+
+  /**
+   * 将指标收集器关联到PooledDataSource,统计获取连接的等待耗时
+   */
+  private void bindPoolMetrics() {
+    if (environment != null && environment.getDataSource() instanceof PooledDataSource) {
+      ((PooledDataSource) environment.getDataSource()).setMetricsCollector(metricsCollector);
+    }
+  }
+
+  public SlowStatementDetector getSlowStatementDetector() {
+    return slowStatementDetector;
+  }
+
+  public void setSlowStatementDetector(SlowStatementDetector slowStatementDetector) {
+    this.slowStatementDetector = slowStatementDetector;
+  }
+
+  /**
+   * 慢语句阈值,单位毫秒,未开启检测时返回null
+   */
+  public Long getSlowStatementThreshold() {
+    return slowStatementDetector == null ? null : slowStatementDetector.getThresholdMillis();
+  }
+
+  public void setSlowStatementThreshold(Long thresholdMillis) {
+    this.slowStatementDetector = thresholdMillis == null ? null : new SlowStatementDetector(thresholdMillis);
+  }
+
+  public StatementTracer getStatementTracer() {
+    return statementTracer;
+  }
+
+  public void setStatementTracer(StatementTracer statementTracer) {
+    this.statementTracer = statementTracer;
+  }
+
+  /**
+   * 语句跟踪的采样率,取值0到1,未开启跟踪时返回null
+   */
+  public Double getStatementTraceSampleRate() {
+    return statementTracer == null ? null : statementTracer.getSampleRate();
+  }
+
+  public void setStatementTraceSampleRate(Double sampleRate) {
+    this.statementTracer = sampleRate == null ? null : new StatementTracer(sampleRate);
+  }
+
+  public boolean isStatementPhaseTiming() {
+    return statementPhaseTiming;
+  }
+
+  public void setStatementPhaseTiming(boolean statementPhaseTiming) {
+    this.statementPhaseTiming = statementPhaseTiming;
+    if (statementPhaseTiming && metricsCollector == null) {
+      setMetricsCollector(new DefaultMetricsCollector());
+    }
+  }
+
+  /**
+   * 语句各阶段的累计耗时,metricsCollector为DefaultMetricsCollector时可用;其他实现自行保存recordPhases收到的耗时,
+   * 这里返回null。该语句还没有执行过时也返回null
+   */
+  public PhaseTimings getStatementPhaseTimings(String statementId) {
+    if (!(metricsCollector instanceof DefaultMetricsCollector)) {
+      return null;
+    }
+    final StatementMetrics metrics = ((DefaultMetricsCollector) metricsCollector).getStatementMetrics(statementId);
+    return metrics == null ? null : metrics.getPhases();
+  }
+
   public Class<? extends Log> getLogImpl() {
     return logImpl;
   }
@@ -321,6 +558,9 @@ public class Configuration {
 
   public void setEnvironment(Environment environment) {
     this.environment = environment;
+    if (metricsCollector != null) {
+      bindPoolMetrics();
+    }
   }
 
   public AutoMappingBehavior getAutoMappingBehavior() {
@@ -524,6 +764,13 @@ public class Configuration {
     return interceptorChain.getInterceptors();
   }
 
+  /**
+   * Returns the number of interceptors declaring a signature on the type, e.g. {@code StatementHandler.class}.
+   */
+  public int getInterceptorCount(Class<?> type) {
+    return interceptorChain.getInterceptorCount(type);
+  }
+
   public LanguageDriverRegistry getLanguageRegistry() {
     return languageRegistry;
   }
@@ -679,14 +926,61 @@ public class Configuration {
 
   public Collection<String> getMappedStatementNames() {
     buildAllStatements();
+    compileLazyStatements();
     return mappedStatements.keySet();
   }
 
   public Collection<MappedStatement> getMappedStatements() {
     buildAllStatements();
+    compileLazyStatements();
     return mappedStatements.values();
   }
 
+  /**
+   * 尚未编译的语句id
+   */
+  public Collection<String> getLazyStatementNames() {
+    return Collections.unmodifiableSet(lazyStatements.keySet());
+  }
+
+  /**
+   * 登记一个延迟编译的语句,第一次访问该id时执行compiler。同一个id和databaseId重复登记时立即报错,
+   * 与非延迟编译时一样在加载阶段发现重复的语句
+   */
+  public void addLazyStatement(String id, String databaseId, Runnable compiler) {
+    lazyStatementLock.lock();
+    try {
+      final boolean compiled = mappedStatements.containsKey(id)
+          && Objects.equals(mappedStatements.get(id).getDatabaseId(), databaseId);
+      if (compiled || !lazyStatementKeys.add(databaseId == null ? id : id + "!" + databaseId)) {
+        throw new IllegalArgumentException("Mapped Statements collection already contains value for " + id
+            + (databaseId == null ? "" : " with databaseId " + databaseId));
+      }
+      lazyStatementShortNames.add(id.substring(id.lastIndexOf('.') + 1));
+      lazyStatements.computeIfAbsent(id, k -> new ArrayList<>()).add(compiler);
+    } finally {
+      lazyStatementLock.unlock();
+    }
+  }
+
+  /**
+   * 编译warmUpStatements中列出的语句,列出的是命名空间时编译该命名空间下所有的语句
+   */
+  public void compileWarmUpStatements() {
+    for (String name : warmUpStatements) {
+      name = name.trim();
+      if (name.isEmpty()) {
+        continue;
+      }
+      if (lazyStatements.containsKey(name)) {
+        compileLazyStatement(name);
+      } else {
+        final String prefix = name + ".";
+        compileLazyStatements(id -> id.startsWith(prefix) && id.indexOf('.', prefix.length()) < 0);
+      }
+    }
+  }
+
   public Collection<XMLStatementBuilder> getIncompleteStatements() {
     return incompleteStatements;
   }
@@ -727,6 +1021,9 @@ public class Configuration {
     if (validateIncompleteStatements) {
       buildAllStatements();
     }
+    if (!lazyStatements.isEmpty() && !mappedStatements.containsKey(id)) {
+      compileLazyStatement(id);
+    }
     return mappedStatements.get(id);
   }
 
@@ -766,6 +1063,9 @@ public class Configuration {
     if (validateIncompleteStatements) {
       buildAllStatements();
     }
+    if (!lazyStatements.isEmpty() && !mappedStatements.containsKey(statementName)) {
+      compileLazyStatement(statementName);
+    }
     return mappedStatements.containsKey(statementName);
   }
 
@@ -803,6 +1103,68 @@ public class Configuration {
     }
   }
 
+  /**
+   * 编译一个延迟编译的语句,id也可以是不含命名空间的短名称
+   */
+  private void compileLazyStatement(String id) {
+    final boolean shortName = id.indexOf('.') < 0;
+    // 既不等待编译也不在编译中的id不会出现,不必加锁
+    if (shortName ? !lazyStatementShortNames.contains(id)
+        : !lazyStatements.containsKey(id) && !compilingLazyStatements.contains(id)) {
+      return;
+    }
+    // 在锁内判断,其他线程正在编译的语句要等编译完成后再返回
+    lazyStatementLock.lock();
+    try {
+      if (lazyStatements.containsKey(id)) {
+        compileLazyStatements(id::equals);
+      } else if (shortName) {
+        final String suffix = "." + id;
+        compileLazyStatements(name -> name.endsWith(suffix));
+      }
+    } finally {
+      lazyStatementLock.unlock();
+    }
+  }
+
+  private void compileLazyStatements() {
+    if (!lazyStatements.isEmpty()) {
+      compileLazyStatements(id -> true);
+    }
+  }
+
+  /*
+   * Statements are compiled while holding the lock, so that each one is built exactly once and the map it is
+   * added to is never written concurrently by two compilations.
+   */
+  private void compileLazyStatements(Predicate<String> filter) {
+    lazyStatementLock.lock();
+    try {
+      for (String id : new ArrayList<>(lazyStatements.keySet())) {
+        if (!filter.test(id)) {
+          continue;
+        }
+        compilingLazyStatements.add(id);
+        final List<Runnable> compilers = lazyStatements.remove(id);
+        try {
+          for (int i = 0; i < compilers.size(); i++) {
+            try {
+              compilers.get(i).run();
+            } catch (RuntimeException e) {
+              // keep the failed compilation, the next access reports the same error
+              lazyStatements.put(id, new ArrayList<>(compilers.subList(i, compilers.size())));
+              throw e;
+            }
+          }
+        } finally {
+          compilingLazyStatements.remove(id);
+        }
+      }
+    } finally {
+      lazyStatementLock.unlock();
+    }
+  }
+
   private void parsePendingResultMaps() {
     if (incompleteResultMaps.isEmpty()) {
       return;
@@ -875,7 +1237,12 @@ public class Configuration {
     }
   }
 
-  protected static class StrictMap<V> extends HashMap<String, V> {
+  /**
+   * 继承ConcurrentHashMap,延迟编译的语句在启动之后加入时,并发读取的线程也能看到完整的对象。
+   * ConcurrentHashMap的containsKey()、getOrDefault()和equals()内部会调用get(),
+   * 这里都改为直接读取,与原来继承HashMap时的行为一致,不会因为key不存在而抛出异常
+   */
+  protected static class StrictMap<V> extends ConcurrentHashMap<String, V> {
 
     private static final long serialVersionUID = -4950446264854982944L;
     private final String name;
@@ -940,7 +1307,7 @@ public class Configuration {
      * get时如果value为空或者有二义性,则抛出异常
      */
     public V get(Object key) {
-      V value = super.get(key);
+      V value = key == null ? null : super.get(key);
       if (value == null) {
         throw new IllegalArgumentException(name + " does not contain value for " + key);
       }
@@ -951,6 +1318,46 @@ public class Configuration {
       return value;
     }
 
+    /**
+     * ConcurrentHashMap implements containsKey through get, which throws for missing keys here.
+     * Unlike ConcurrentHashMap, a null key is simply not contained.
+     */
+    @Override
+    public boolean containsKey(Object key) {
+      return key != null && super.get(key) != null;
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+      final V value = key == null ? null : super.get(key);
+      return value == null ? defaultValue : value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o == this) {
+        return true;
+      }
+      if (!(o instanceof Map)) {
+        return false;
+      }
+      final Map<?, ?> map = (Map<?, ?>) o;
+      if (map.size() != size()) {
+        return false;
+      }
+      for (Map.Entry<String, V> entry : entrySet()) {
+        if (!map.containsKey(entry.getKey()) || !entry.getValue().equals(map.get(entry.getKey()))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return super.hashCode();
+    }
+
     private String getShortName(String key) {
       final String[] keyParts = key.split("\\.");
       return keyParts[keyParts.length - 1];
@@ -20,6 +20,7 @@ import java.io.InputStream;
 import java.io.Reader;
 import java.util.Properties;
 
+import org.apache.ibatis.builder.StartupReport;
 import org.apache.ibatis.builder.xml.XMLConfigBuilder;
 import org.apache.ibatis.exceptions.ExceptionFactory;
 import org.apache.ibatis.executor.ErrorContext;
@@ -48,9 +49,13 @@ public class SqlSessionFactoryBuilder {
    */
   public SqlSessionFactory build(Reader reader, String environment, Properties properties) {
     try {
+      final long startNanos = System.nanoTime();
       XMLConfigBuilder parser = new XMLConfigBuilder(reader, environment, properties);
+      final long documentNanos = System.nanoTime();
       // 关键代码是parser.parse()，这个方法负责解析配置文件
-      return build(parser.parse());
+      Configuration config = parser.parse();
+      recordStartup(config, startNanos, documentNanos);
+      return build(config);
     } catch (Exception e) {
       throw ExceptionFactory.wrapException("Error building SqlSession.", e);
     } finally {
@@ -77,8 +82,12 @@ public class SqlSessionFactoryBuilder {
 
   public SqlSessionFactory build(InputStream inputStream, String environment, Properties properties) {
     try {
+      final long startNanos = System.nanoTime();
       XMLConfigBuilder parser = new XMLConfigBuilder(inputStream, environment, properties);
-      return build(parser.parse());
+      final long documentNanos = System.nanoTime();
+      Configuration config = parser.parse();
+      recordStartup(config, startNanos, documentNanos);
+      return build(config);
     } catch (Exception e) {
       throw ExceptionFactory.wrapException("Error building SqlSession.", e);
     } finally {
@@ -95,4 +104,16 @@ public class SqlSessionFactoryBuilder {
     return new DefaultSqlSessionFactory(config);
   }
 
+  /**
+   * 开启startupProfiling时,记录解析配置文件本身和整个构建过程的耗时
+   * 这两个阶段开始时还没有读取settings,为了不开启时不做多余的统计,只记录耗时,不记录内存分配
+   */
+  private void recordStartup(Configuration config, long startNanos, long documentNanos) {
+    final StartupReport report = config.getStartupReport();
+    if (report != null) {
+      report.record(StartupReport.CONFIGURATION, "document", documentNanos - startNanos, -1);
+      report.record(StartupReport.CONFIGURATION, "total", System.nanoTime() - startNanos, -1);
+    }
+  }
+
 }
@@ -0,0 +1,60 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Optional contract of type handlers that can read a column as a primitive value without boxing it.
+ * <p>
+ * The result mapping engine uses it when the target property has the same primitive type as
+ * {@link #getPrimitiveType()}. As with plain JDBC, callers must check {@link ResultSet#wasNull()} after each read.
+ * The primitive accessors are only used when they are declared by the class declaring {@code getNullableResult}
+ * or by a subclass of it, so a subclass that overrides {@code getNullableResult} alone is still read through it.
+ */
+public interface PrimitiveTypeHandler {
+
+  /**
+   * @return {@code int.class}, {@code long.class} or {@code double.class}
+   */
+  Class<?> getPrimitiveType();
+
+  default int getInt(ResultSet rs, String columnName) throws SQLException {
+    throw new TypeException(getClass().getName() + " does not support reading int values.");
+  }
+
+  default int getInt(ResultSet rs, int columnIndex) throws SQLException {
+    throw new TypeException(getClass().getName() + " does not support reading int values.");
+  }
+
+  default long getLong(ResultSet rs, String columnName) throws SQLException {
+    throw new TypeException(getClass().getName() + " does not support reading long values.");
+  }
+
+  default long getLong(ResultSet rs, int columnIndex) throws SQLException {
+    throw new TypeException(getClass().getName() + " does not support reading long values.");
+  }
+
+  default double getDouble(ResultSet rs, String columnName) throws SQLException {
+    throw new TypeException(getClass().getName() + " does not support reading double values.");
+  }
+
+  default double getDouble(ResultSet rs, int columnIndex) throws SQLException {
+    throw new TypeException(getClass().getName() + " does not support reading double values.");
+  }
+
+}
@@ -616,6 +616,20 @@ public class BindingTest {
     }
   }
 
+  @Test
+  public void shouldCreateMapperProxiesOfTheSameClass() {
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      final MapperProxyFactory<BoundBlogMapper> mapperProxyFactory = new MapperProxyFactory<>(BoundBlogMapper.class);
+      final BoundBlogMapper mapper = mapperProxyFactory.newInstance(session);
+      final BoundBlogMapper otherMapper = mapperProxyFactory.newInstance(session);
+      assertNotSame(mapper, otherMapper);
+      assertSame(mapper.getClass(), otherMapper.getClass());
+      assertSame(java.lang.reflect.Proxy.getProxyClass(BoundBlogMapper.class.getClassLoader(), BoundBlogMapper.class), mapper.getClass());
+      assertTrue(java.lang.reflect.Proxy.getInvocationHandler(mapper) instanceof MapperProxy);
+      assertEquals(1, mapper.selectBlog(1).getId());
+    }
+  }
+
   @Test
   public void shouldGetBlogsWithAuthorsAndPosts() {
     try (SqlSession session = sqlSessionFactory.openSession()) {
@@ -19,7 +19,10 @@ import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.binding.MapperMethod.ParamMap;
 import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.reflection.ParamNameResolver;
+import org.apache.ibatis.reflection.SystemMetaObject;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
@@ -30,9 +33,17 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
 
 import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Method;
 import java.util.HashMap;
+import java.util.Map;
 
 public class MapperMethodParamTest {
 
@@ -70,6 +81,52 @@ public class MapperMethodParamTest {
     }
   }
 
+  @Test
+  public void shouldResolveNamedAndGenericParamsInDynamicSql() {
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      Mapper mapper = session.getMapper(Mapper.class);
+      mapper.insert("bar", 42L);
+      assertThat(mapper.selectSizeIfMatches("bar", 42L)).isEqualTo(42L);
+      assertThat(mapper.selectSizeIfMatches("bar", null)).isEqualTo(42L);
+      assertThat(mapper.selectSizeIfMatches("bar", 41L)).isNull();
+    }
+  }
+
+  @Test
+  public void shouldReadParamMapFromArgumentsUntilModified() throws Exception {
+    Method method = Mapper.class.getMethod("insert", String.class, long.class);
+    Object[] args = {"foo", 1L};
+    @SuppressWarnings("unchecked")
+    Map<String, Object> params = (Map<String, Object>) new ParamNameResolver(new Configuration(), method).getNamedParams(args);
+
+    assertThat(params).isInstanceOf(ParamMap.class).hasSize(4);
+    assertThat(params.get("id")).isEqualTo("foo");
+    assertThat(params.get("param2")).isEqualTo(1L);
+    assertThat(params.containsKey("param3")).isFalse();
+    assertThatThrownBy(() -> params.get("param3")).isInstanceOf(BindingException.class)
+        .hasMessageContaining("Parameter 'param3' not found");
+    assertThat(SystemMetaObject.forObject(params).getValue("size")).isEqualTo(1L);
+
+    params.put("extra", "value");
+    assertThat(params).containsOnly(entry("id", "foo"), entry("size", 1L), entry("param1", "foo"),
+        entry("param2", 1L), entry("extra", "value"));
+    assertThat(params.get("extra")).isEqualTo("value");
+  }
+
+  @Test
+  public void shouldSerializeParamMapWithItsParameters() throws Exception {
+    Method method = Mapper.class.getMethod("insert", String.class, long.class);
+    Object params = new ParamNameResolver(new Configuration(), method).getNamedParams(new Object[] {"foo", 1L});
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(params);
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      assertThat(in.readObject()).isInstanceOf(ParamMap.class).isEqualTo(params);
+    }
+  }
+
   interface Mapper {
     @Insert("insert into param_test (id, size) values(#{id}, #{size})")
     void insert(@Param("id") String id, @Param("size") long size);
@@ -79,6 +136,9 @@ public class MapperMethodParamTest {
 
     @Select("select size from param_test where id = #{id}")
     long selectSize(@Param("id") String id);
+
+    @Select("<script>select size from param_test where id = #{param1}<if test='size != null'> and size = #{param2}</if></script>")
+    Long selectSizeIfMatches(@Param("id") String id, @Param("size") Long size);
   }
 
 }
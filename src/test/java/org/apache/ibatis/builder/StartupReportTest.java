@@ -0,0 +1,81 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.ibatis.builder.xml.XMLConfigBuilder;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.Test;
+
+public class StartupReportTest {
+
+  @Test
+  public void shouldRecordPhasesWhenProfiling() {
+    Configuration configuration = new SqlSessionFactoryBuilder().build(new StringReader(config(true))).getConfiguration();
+
+    StartupReport report = configuration.getStartupReport();
+    assertThat(configuration.isStartupProfiling()).isTrue();
+    assertThat(names(report, StartupReport.CONFIGURATION))
+        .contains("document", "properties", "settings", "typeAliases", "mappers", "total");
+    assertThat(names(report, StartupReport.SCAN))
+        .containsExactlyInAnyOrder("org.apache.ibatis.domain.blog", "org.apache.ibatis.builder.mapper");
+    assertThat(names(report, StartupReport.MAPPER_PARSE)).containsExactly("org/apache/ibatis/builder/AuthorMapper.xml");
+    assertThat(names(report, StartupReport.MAPPER_BUILD)).containsExactly("org/apache/ibatis/builder/AuthorMapper.xml");
+    assertThat(names(report, StartupReport.MAPPER_ANNOTATIONS)).contains("org.apache.ibatis.builder.mapper.CustomMapper");
+    assertThat(names(report, StartupReport.PENDING)).contains("org/apache/ibatis/builder/AuthorMapper.xml");
+
+    StartupReport.Entry total = report.getEntries(StartupReport.CONFIGURATION).stream()
+        .filter(entry -> entry.getName().equals("total")).findFirst().get();
+    assertThat(total.getAllocatedBytes()).isEqualTo(-1);
+    assertThat(total.getNanos()).isGreaterThanOrEqualTo(report.getTotalNanos(StartupReport.MAPPER_PARSE));
+    assertThat(report.toString()).startsWith("Startup report").contains("mapper.parse");
+  }
+
+  @Test
+  public void shouldNotRecordWhenProfilingIsDisabled() {
+    Configuration configuration = new XMLConfigBuilder(new StringReader(config(false))).parse();
+    assertThat(configuration.isStartupProfiling()).isFalse();
+    assertThat(configuration.getStartupReport()).isNull();
+  }
+
+  private static List<String> names(StartupReport report, String category) {
+    return report.getEntries(category).stream().map(StartupReport.Entry::getName).collect(Collectors.toList());
+  }
+
+  private static String config(boolean profiling) {
+    return "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+        + "<!DOCTYPE configuration PUBLIC \"-//mybatis.org//DTD Config 3.0//EN\" \"http://mybatis.org/dtd/mybatis-3-config.dtd\">\n"
+        + "<configuration>\n"
+        + "  <settings>\n"
+        + "    <setting name=\"startupProfiling\" value=\"" + profiling + "\"/>\n"
+        + "  </settings>\n"
+        + "  <typeAliases>\n"
+        + "    <package name=\"org.apache.ibatis.domain.blog\"/>\n"
+        + "  </typeAliases>\n"
+        + "  <mappers>\n"
+        + "    <mapper resource=\"org/apache/ibatis/builder/AuthorMapper.xml\"/>\n"
+        + "    <package name=\"org.apache.ibatis.builder.mapper\"/>\n"
+        + "  </mappers>\n"
+        + "</configuration>\n";
+  }
+
+}
@@ -42,6 +42,7 @@ import org.apache.ibatis.io.JBoss6VFS;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.logging.slf4j.Slf4jImpl;
 import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.metrics.DefaultMetricsCollector;
 import org.apache.ibatis.scripting.defaults.RawLanguageDriver;
 import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
 import org.apache.ibatis.session.AutoMappingBehavior;
@@ -98,6 +99,13 @@ public class XmlConfigBuilderTest {
       assertNull(config.getLogPrefix());
       assertNull(config.getLogImpl());
       assertNull(config.getConfigurationFactory());
+      assertThat(config.isParallelMapperParsing()).isFalse();
+      assertThat(config.isStreamingMapperParsing()).isFalse();
+      assertThat(config.isLazyStatementCompilation()).isFalse();
+      assertThat(config.getMetricsCollector()).isNull();
+      assertThat(config.getSlowStatementDetector()).isNull();
+      assertThat(config.getStatementTracer()).isNull();
+      assertThat(config.isStatementPhaseTiming()).isFalse();
       assertThat(config.getTypeHandlerRegistry().getTypeHandler(RoundingMode.class)).isInstanceOf(EnumTypeHandler.class);
     }
   }
@@ -192,6 +200,14 @@ public class XmlConfigBuilderTest {
         assertThat(config.getLogImpl().getName()).isEqualTo(Slf4jImpl.class.getName());
         assertThat(config.getVfsImpl().getName()).isEqualTo(JBoss6VFS.class.getName());
         assertThat(config.getConfigurationFactory().getName()).isEqualTo(String.class.getName());
+        assertThat(config.isParallelMapperParsing()).isTrue();
+        assertThat(config.isStreamingMapperParsing()).isTrue();
+        assertThat(config.isLazyStatementCompilation()).isTrue();
+        assertThat(config.getWarmUpStatements()).containsExactlyInAnyOrder("org.apache.ibatis.domain.blog.mappers.BlogMapper", "selectAllPosts");
+        assertThat(config.getMetricsCollector()).isInstanceOf(DefaultMetricsCollector.class);
+        assertThat(config.getSlowStatementThreshold()).isEqualTo(250L);
+        assertThat(config.getStatementTraceSampleRate()).isEqualTo(0.25);
+        assertThat(config.isStatementPhaseTiming()).isTrue();
 
         assertTrue(config.getTypeAliasRegistry().getTypeAliases().get("blogauthor").equals(Author.class));
         assertTrue(config.getTypeAliasRegistry().getTypeAliases().get("blog").equals(Blog.class));
@@ -300,4 +316,42 @@ public class XmlConfigBuilderTest {
       .hasMessageContaining("The properties element cannot specify both a URL and a resource based property file reference.  Please specify one or the other.");
   }
 
+  @Test
+  public void shouldLoadMappersParsedInParallelInDeclarationOrder() throws Exception {
+    Configuration sequential = parseMappers(false,
+        "org/apache/ibatis/builder/AuthorMapper.xml", "org/apache/ibatis/builder/BlogMapper.xml", "org/apache/ibatis/builder/PostMapper.xml");
+    Configuration parallel = parseMappers(true,
+        "org/apache/ibatis/builder/AuthorMapper.xml", "org/apache/ibatis/builder/BlogMapper.xml", "org/apache/ibatis/builder/PostMapper.xml");
+
+    assertThat(parallel.getMappedStatementNames()).containsExactlyInAnyOrderElementsOf(sequential.getMappedStatementNames());
+    assertThat(parallel.getResultMapNames()).containsExactlyInAnyOrderElementsOf(sequential.getResultMapNames());
+    assertThat(parallel.getIncompleteStatements()).hasSameSizeAs(sequential.getIncompleteStatements());
+  }
+
+  @Test
+  public void shouldReportFirstFailingMapperWhenParsingInParallel() {
+    when(this).parseMappers(true, "org/apache/ibatis/builder/AuthorMapper.xml", "org/apache/ibatis/builder/Missing.xml",
+        "org/apache/ibatis/builder/AlsoMissing.xml");
+    then(caughtException()).isInstanceOf(BuilderException.class)
+      .hasMessageContaining("org/apache/ibatis/builder/Missing.xml");
+  }
+
+  Configuration parseMappers(boolean parallel, String... resources) {
+    StringBuilder config = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+        + "<!DOCTYPE configuration PUBLIC \"-//mybatis.org//DTD Config 3.0//EN\" \"http://mybatis.org/dtd/mybatis-3-config.dtd\">\n"
+        + "<configuration>\n"
+        + "  <settings>\n"
+        + "    <setting name=\"parallelMapperParsing\" value=\"" + parallel + "\"/>\n"
+        + "  </settings>\n"
+        + "  <typeAliases>\n"
+        + "    <package name=\"org.apache.ibatis.domain.blog\"/>\n"
+        + "  </typeAliases>\n"
+        + "  <mappers>\n");
+    for (String resource : resources) {
+      config.append("    <mapper resource=\"").append(resource).append("\"/>\n");
+    }
+    config.append("  </mappers>\n</configuration>\n");
+    return new XMLConfigBuilder(new StringReader(config.toString())).parse();
+  }
+
 }
@@ -16,7 +16,11 @@
 package org.apache.ibatis.builder;
 
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.ibatis.builder.xml.XMLMapperBuilder;
 import org.apache.ibatis.io.Resources;
@@ -45,6 +49,60 @@ public class XmlMapperBuilderTest {
     }
   }
 
+  @Test
+  public void shouldLoadSameMapperFromSnapshot() throws Exception {
+    Path directory = Files.createTempDirectory("snapshots");
+    try {
+      Configuration parsed = loadAuthorMapper(directory);
+      Configuration restored = loadAuthorMapper(directory);
+      try (Stream<Path> snapshots = Files.list(directory)) {
+        assertThat(snapshots.count()).isEqualTo(1);
+      }
+
+      assertThat(restored.getMappedStatementNames()).containsExactlyInAnyOrderElementsOf(parsed.getMappedStatementNames());
+      assertThat(restored.getResultMapNames()).containsExactlyInAnyOrderElementsOf(parsed.getResultMapNames());
+      MappedStatement mappedStatement = restored.getMappedStatement("selectWithOptions");
+      assertThat(mappedStatement.getFetchSize()).isEqualTo(200);
+      assertThat(mappedStatement.getBoundSql(null).getSql())
+          .isEqualTo(parsed.getMappedStatement("selectWithOptions").getBoundSql(null).getSql());
+    } finally {
+      try (Stream<Path> paths = Files.list(directory)) {
+        for (Path path : paths.collect(Collectors.toList())) {
+          Files.delete(path);
+        }
+      }
+      Files.delete(directory);
+    }
+  }
+
+  @Test
+  public void shouldBuildSameMapperWithStreamingParser() throws Exception {
+    Configuration parsed = loadAuthorMapper(null);
+    Configuration configuration = new Configuration();
+    configuration.setStreamingMapperParsing(true);
+    String resource = "org/apache/ibatis/builder/AuthorMapper.xml";
+    try (InputStream inputStream = Resources.getResourceAsStream(resource)) {
+      new XMLMapperBuilder(inputStream, configuration, resource, configuration.getSqlFragments()).parse();
+    }
+
+    assertThat(configuration.getMappedStatementNames()).containsExactlyInAnyOrderElementsOf(parsed.getMappedStatementNames());
+    assertThat(configuration.getResultMapNames()).containsExactlyInAnyOrderElementsOf(parsed.getResultMapNames());
+    for (String id : new String[] {"selectWithOptions", "selectAllAuthors", "insertAuthor"}) {
+      assertThat(configuration.getMappedStatement(id).getBoundSql(null).getSql())
+          .isEqualTo(parsed.getMappedStatement(id).getBoundSql(null).getSql());
+    }
+  }
+
+  private Configuration loadAuthorMapper(Path snapshotDirectory) throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.setMapperSnapshotDirectory(snapshotDirectory == null ? null : snapshotDirectory.toString());
+    String resource = "org/apache/ibatis/builder/AuthorMapper.xml";
+    try (InputStream inputStream = Resources.getResourceAsStream(resource)) {
+      new XMLMapperBuilder(inputStream, configuration, resource, configuration.getSqlFragments()).parse();
+    }
+    return configuration;
+  }
+
   @Test
   public void mappedStatementWithOptions() throws Exception {
     Configuration configuration = new Configuration();
@@ -0,0 +1,106 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.junit.jupiter.api.Test;
+
+public class PooledDataSourceLockingTest extends BaseDataTest {
+
+  @Test
+  public void shouldNotHoldPoolLockWhilePinging() throws Exception {
+    AtomicInteger pings = new AtomicInteger();
+    Properties props = Resources.getResourceAsProperties(JPETSTORE_PROPERTIES);
+    PooledDataSource ds = new PooledDataSource(props.getProperty("driver"), props.getProperty("url"),
+        props.getProperty("username"), props.getProperty("password")) {
+      @Override
+      protected boolean pingConnection(PooledConnection conn) {
+        pings.incrementAndGet();
+        assertFalse(getPoolState().lock.isHeldByCurrentThread(), "Pool lock must not be held while talking to the database");
+        return super.pingConnection(conn);
+      }
+    };
+    try {
+      Connection c = ds.getConnection();
+      c.close();
+      c = ds.getConnection();
+      c.close();
+      assertEquals(4, pings.get());
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldNotReturnConnectionClaimedAsOverdue() throws Exception {
+    AtomicInteger pings = new AtomicInteger();
+    Properties props = Resources.getResourceAsProperties(JPETSTORE_PROPERTIES);
+    PooledDataSource ds = new PooledDataSource(props.getProperty("driver"), props.getProperty("url"),
+        props.getProperty("username"), props.getProperty("password")) {
+      @Override
+      protected boolean pingConnection(PooledConnection conn) {
+        pings.incrementAndGet();
+        return super.pingConnection(conn);
+      }
+    };
+    ds.setPoolMaximumActiveConnections(1);
+    ds.setPoolMaximumCheckoutTime(10);
+    try {
+      Connection overdue = ds.getConnection();
+      overdue.setAutoCommit(false);
+      Thread.sleep(50);
+      // the only connection is overdue, so the next caller takes over its real connection
+      Connection claimed = ds.getConnection();
+      assertEquals(1, ds.getPoolState().getClaimedOverdueConnectionCount());
+      int pingsBeforeReturn = pings.get();
+
+      overdue.close();
+
+      // the late return neither checks, rolls back nor pools the real connection now used by the new owner
+      assertEquals(pingsBeforeReturn, pings.get());
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(1, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(1, ds.getPoolState().getBadConnectionCount());
+      assertFalse(claimed.isClosed());
+      claimed.close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldReleaseReservedSlotWhenConnectionCannotBeCreated() throws Exception {
+    PooledDataSource ds = new PooledDataSource("org.hsqldb.jdbcDriver", "jdbc:unknown:nowhere", "sa", "");
+    ds.setPoolMaximumActiveConnections(1);
+    for (int i = 0; i < 2; i++) {
+      assertThrows(Exception.class, ds::getConnection);
+    }
+    assertEquals(0, ds.getPoolState().pendingConnectionCount);
+    assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+  }
+
+}
@@ -15,9 +15,20 @@
  */
 package org.apache.ibatis.executor.resultset;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.sql.Connection;
@@ -28,6 +39,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -41,9 +53,12 @@ import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
 import org.junit.jupiter.api.Assertions;
@@ -87,7 +102,7 @@ public class DefaultResultSetHandlerTest {
     when(rs.getMetaData()).thenReturn(rsmd);
     when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
     when(rs.next()).thenReturn(true).thenReturn(false);
-    when(rs.getInt("CoLuMn1")).thenReturn(100);
+    when(rs.getInt(1)).thenReturn(100);
     when(rsmd.getColumnCount()).thenReturn(1);
     when(rsmd.getColumnLabel(1)).thenReturn("CoLuMn1");
     when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
@@ -129,6 +144,210 @@ public class DefaultResultSetHandlerTest {
     }
   }
 
+  @Test
+  public void shouldReadColumnsByIndex() throws Exception {
+    final MappedStatement ms = getMappedStatement();
+    final DefaultResultSetHandler resultSetHandler = new DefaultResultSetHandler(null/*executor*/, ms,
+            null/*parameterHandler*/, null/*resultHandler*/, null/*boundSql*/, new RowBounds(0, 100));
+
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenReturn(true).thenReturn(true).thenReturn(false);
+    when(rs.getString(1)).thenReturn("first", "second");
+    when(rs.getInt(2)).thenReturn(100, 200);
+    when(rsmd.getColumnCount()).thenReturn(2);
+    doReturn("name").when(rsmd).getColumnLabel(1);
+    doReturn(Types.VARCHAR).when(rsmd).getColumnType(1);
+    doReturn(String.class.getCanonicalName()).when(rsmd).getColumnClassName(1);
+    doReturn("column1").when(rsmd).getColumnLabel(2);
+    doReturn(Types.INTEGER).when(rsmd).getColumnType(2);
+    doReturn(Integer.class.getCanonicalName()).when(rsmd).getColumnClassName(2);
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(false);
+
+    final List<Object> results = resultSetHandler.handleResultSets(stmt);
+    assertEquals(2, results.size());
+    assertEquals("first", ((HashMap) results.get(0)).get("name"));
+    assertEquals(Integer.valueOf(100), ((HashMap) results.get(0)).get("cOlUmN1"));
+    assertEquals("second", ((HashMap) results.get(1)).get("name"));
+    assertEquals(Integer.valueOf(200), ((HashMap) results.get(1)).get("cOlUmN1"));
+    verify(rs, never()).getString(anyString());
+    verify(rs, never()).getInt(anyString());
+  }
+
+  @Test
+  public void shouldReuseResultSetLayoutOfStatement() throws Exception {
+    final MappedStatement ms = getMappedStatement();
+
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenReturn(true, false, true, false);
+    when(rs.getInt(1)).thenReturn(100, 200);
+    when(rsmd.getColumnCount()).thenReturn(1);
+    when(rsmd.getColumnLabel(1)).thenReturn("CoLuMn1");
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getCanonicalName());
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(false);
+
+    final List<Object> first = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds(0, 100)).handleResultSets(stmt);
+    final List<Object> second = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds(0, 100)).handleResultSets(stmt);
+
+    assertEquals(Integer.valueOf(100), ((HashMap) first.get(0)).get("cOlUmN1"));
+    assertEquals(Integer.valueOf(200), ((HashMap) second.get(0)).get("cOlUmN1"));
+    assertEquals(1, ms.getResultSetLayouts().size());
+    // the second execution compares the metadata instead of resolving type handlers again
+    verify(rsmd, times(2)).getColumnClassName(1);
+  }
+
+  @Test
+  public void shouldNotReuseLayoutOfDifferentColumns() throws Exception {
+    final MappedStatement ms = getMappedStatement();
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rsmd.getColumnCount()).thenReturn(1);
+    when(rsmd.getColumnLabel(1)).thenReturn("CoLuMn1", "other");
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+
+    final ResultSetWrapper first = new ResultSetWrapper(rs, ms);
+    final ResultSetWrapper second = new ResultSetWrapper(rs, ms);
+
+    assertEquals("CoLuMn1", first.getColumnNames().get(0));
+    assertEquals("other", second.getColumnNames().get(0));
+    assertEquals(2, ms.getResultSetLayouts().size());
+  }
+
+  @Test
+  public void shouldReadColumnMetadataOncePerLayoutLookup() throws Exception {
+    final MappedStatement ms = getMappedStatement();
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rsmd.getColumnCount()).thenReturn(1);
+    when(rsmd.getColumnLabel(1)).thenReturn("first", "second", "second");
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getName());
+
+    new ResultSetWrapper(rs, ms);
+    new ResultSetWrapper(rs, ms);
+    final ResultSetWrapper third = new ResultSetWrapper(rs, ms);
+
+    assertEquals("second", third.getColumnNames().get(0));
+    assertEquals(2, ms.getResultSetLayouts().size());
+    // the labels pick the candidate, only its types are compared, and a miss builds the layout from what was read
+    verify(rsmd, times(3)).getColumnLabel(1);
+    verify(rsmd, times(3)).getColumnType(1);
+    verify(rsmd, times(3)).getColumnClassName(1);
+  }
+
+  @Test
+  public void shouldNotReuseLayoutOfDifferentColumnClasses() throws Exception {
+    final MappedStatement ms = getMappedStatement();
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rsmd.getColumnCount()).thenReturn(1);
+    when(rsmd.getColumnLabel(1)).thenReturn("value");
+    when(rsmd.getColumnType(1)).thenReturn(Types.OTHER);
+    when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getName(), String.class.getName());
+
+    final ResultSetWrapper first = new ResultSetWrapper(rs, ms);
+    final ResultSetWrapper second = new ResultSetWrapper(rs, ms);
+
+    assertEquals(Integer.class.getName(), first.getClassNames().get(0));
+    assertEquals(String.class.getName(), second.getClassNames().get(0));
+    assertEquals(2, ms.getResultSetLayouts().size());
+  }
+
+  @Test
+  public void shouldResolveTypeHandlerOfColumnWithoutLabel() throws Exception {
+    final Configuration config = new Configuration();
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rsmd.getColumnCount()).thenReturn(1);
+    when(rsmd.getColumnLabel(1)).thenReturn(null);
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getName());
+
+    final ResultSetWrapper rsw = new ResultSetWrapper(rs, config);
+    assertEquals(JdbcType.INTEGER, rsw.getJdbcType(null));
+    assertEquals(config.getTypeHandlerRegistry().getTypeHandler(Integer.class, JdbcType.INTEGER), rsw.getTypeHandler(Object.class, null));
+  }
+
+  @Test
+  public void shouldResolveColumnIndexLikeFindColumn() throws Exception {
+    final Configuration config = new Configuration();
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rsmd.getColumnCount()).thenReturn(3);
+    doReturn("id").when(rsmd).getColumnLabel(1);
+    doReturn("child_id").when(rsmd).getColumnLabel(2);
+    doReturn("ID").when(rsmd).getColumnLabel(3);
+
+    final ResultSetWrapper rsw = new ResultSetWrapper(rs, config);
+    assertEquals(1, rsw.getColumnIndex("ID"));
+    assertEquals(2, rsw.getColumnIndex("CHILD_Id"));
+    assertEquals(-1, rsw.getColumnIndex("missing"));
+    assertEquals(-1, rsw.getColumnIndex(null));
+
+    final ResultMap childMap = new ResultMap.Builder(config, "childMap", HashMap.class, Collections.singletonList(
+        new ResultMapping.Builder(config, "id", "id", config.getTypeHandlerRegistry().getTypeHandler(Integer.class)).build())).build();
+    assertArrayEquals(new int[] {1}, rsw.getMappedColumnIndexes(childMap, null));
+    assertArrayEquals(new int[] {2}, rsw.getMappedColumnIndexes(childMap, "CHILD_"));
+  }
+
+  @Test
+  public void shouldReadColumnsByNameWhenColumnLabelsAreNotUsed() throws Exception {
+    final Configuration config = new Configuration();
+    config.setUseColumnLabel(false);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rsmd.getColumnCount()).thenReturn(1);
+    when(rsmd.getColumnName(1)).thenReturn("id");
+
+    final ResultSetWrapper rsw = new ResultSetWrapper(rs, config);
+    assertEquals(-1, rsw.getColumnIndex("id"));
+  }
+
+  /**
+   * The nested result map and multiple result set state is only allocated once a select needs it.
+   */
+  @Test
+  public void shouldCreateNestedResultStateOnFirstNestedUse() throws Exception {
+    final MappedStatement flatStatement = getMappedStatement();
+    final DefaultResultSetHandler flatHandler = new DefaultResultSetHandler(null, flatStatement, null, null, null, new RowBounds());
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenReturn(true).thenReturn(false).thenReturn(true).thenReturn(false);
+    when(rsmd.getColumnCount()).thenReturn(1);
+    when(rsmd.getColumnLabel(1)).thenReturn("CoLuMn1");
+    lenient().when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    lenient().when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getCanonicalName());
+    lenient().when(rs.getInt(anyInt())).thenReturn(100);
+    lenient().when(rs.getInt(anyString())).thenReturn(100);
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(false);
+
+    assertEquals(1, flatHandler.handleResultSets(stmt).size());
+    final MetaObject flatState = SystemMetaObject.forObject(flatHandler);
+    assertNull(flatState.getValue("nestedResultObjects"));
+    assertNull(flatState.getValue("ancestorObjects"));
+    assertSame(Collections.emptyMap(), flatState.getValue("pendingRelations"));
+    assertSame(Collections.emptyMap(), flatState.getValue("nextResultMaps"));
+
+    final Configuration config = flatStatement.getConfiguration();
+    final TypeHandler<?> intHandler = config.getTypeHandlerRegistry().getTypeHandler(Integer.class);
+    config.addResultMap(new ResultMap.Builder(config, "childMap", HashMap.class, Collections.singletonList(
+        new ResultMapping.Builder(config, "id", "CoLuMn1", intHandler).build())).build());
+    final ResultMap parentMap = new ResultMap.Builder(config, "parentMap", HashMap.class, Arrays.asList(
+        new ResultMapping.Builder(config, "id", "CoLuMn1", intHandler).build(),
+        new ResultMapping.Builder(config, "child").javaType(HashMap.class).nestedResultMapId("childMap").build())).build();
+    final MappedStatement nestedStatement = new MappedStatement.Builder(config, "nestedSelect",
+        new StaticSqlSource(config, "some select statement"), SqlCommandType.SELECT).resultMaps(Collections.singletonList(parentMap)).build();
+    final DefaultResultSetHandler nestedHandler = new DefaultResultSetHandler(null, nestedStatement, null, null, null, new RowBounds());
+
+    assertEquals(1, nestedHandler.handleResultSets(stmt).size());
+    assertNotNull(SystemMetaObject.forObject(nestedHandler).getValue("nestedResultObjects"));
+  }
+
   MappedStatement getMappedStatement() {
     final Configuration config = new Configuration();
     final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
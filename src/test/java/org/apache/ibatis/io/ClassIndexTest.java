@@ -0,0 +1,157 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.apache.ibatis.io.indexed.IndexedBean;
+import org.apache.ibatis.io.indexed.UntouchedBean;
+import org.apache.ibatis.io.indexed.sub.NestedIndexedBean;
+import org.apache.ibatis.type.Alias;
+import org.junit.jupiter.api.Test;
+
+public class ClassIndexTest {
+
+  @Test
+  public void shouldFindSubTypesFromIndexWithoutLoadingOtherClasses() {
+    final List<String> loadedClasses = new ArrayList<>();
+    ResolverUtil<Serializable> resolverUtil = new ResolverUtil<>();
+    resolverUtil.setClassLoader(new ClassLoader(getClass().getClassLoader()) {
+      @Override
+      public Class<?> loadClass(String name) throws ClassNotFoundException {
+        loadedClasses.add(name);
+        return super.loadClass(name);
+      }
+    });
+    resolverUtil.findImplementations(Serializable.class, "org.apache.ibatis.io.indexed");
+    // UnlistedBean is Serializable too, but a package with an index is never scanned
+    assertEquals(new HashSet<>(Arrays.asList(IndexedBean.class, NestedIndexedBean.class)), resolverUtil.getClasses());
+    assertFalse(loadedClasses.contains(UntouchedBean.class.getName()));
+  }
+
+  @Test
+  public void shouldFindAnnotatedTypesFromIndex() {
+    ResolverUtil<Object> resolverUtil = new ResolverUtil<>();
+    resolverUtil.findAnnotated(Alias.class, "org.apache.ibatis.io.indexed");
+    assertEquals(Collections.singleton(IndexedBean.class), resolverUtil.getClasses());
+  }
+
+  @Test
+  public void shouldScanSubPackageOfIndexedPackage() throws IOException {
+    assertNull(ClassIndex.find(getClass().getClassLoader(), "org.apache.ibatis.io.indexed.sub"));
+    ResolverUtil<Serializable> resolverUtil = new ResolverUtil<>();
+    resolverUtil.findImplementations(Serializable.class, "org.apache.ibatis.io.indexed.sub");
+    assertEquals(Collections.singleton(NestedIndexedBean.class), resolverUtil.getClasses());
+  }
+
+  @Test
+  public void shouldOnlyUseIndexWhenEveryRootOfPackageHasOne() throws IOException {
+    Path dir = Files.createTempDirectory("mybatis-index");
+    try {
+      Path indexed = createRoot(dir.resolve("indexed"), "com.example.Indexed");
+      Path unindexed = createRoot(dir.resolve("unindexed"), null);
+      try (URLClassLoader classLoader = new URLClassLoader(new URL[] { indexed.toUri().toURL(), unindexed.toUri().toURL() }, null)) {
+        assertNull(ClassIndex.find(classLoader, "com.example"));
+      }
+
+      Path otherIndexed = createRoot(dir.resolve("other"), "com.example.Other");
+      try (URLClassLoader classLoader = new URLClassLoader(new URL[] { indexed.toUri().toURL(), otherIndexed.toUri().toURL() }, null)) {
+        List<String> classNames = ClassIndex.find(classLoader, "com.example").getEntries().stream()
+            .map(ClassIndex.Entry::getClassName).collect(Collectors.toList());
+        assertEquals(Arrays.asList("com.example.Indexed", "com.example.Other"), classNames);
+      }
+    } finally {
+      delete(dir);
+    }
+  }
+
+  private Path createRoot(Path root, String indexedClass) throws IOException {
+    Files.createDirectories(root.resolve("com/example"));
+    if (indexedClass != null) {
+      Path index = root.resolve(ClassIndex.INDEX_LOCATION + "com.example");
+      Files.createDirectories(index.getParent());
+      Files.write(index, (indexedClass + " java.lang.Object\n").getBytes(StandardCharsets.UTF_8));
+    }
+    return root;
+  }
+
+  @Test
+  public void shouldReturnNullWhenPackageIsNotIndexed() throws IOException {
+    assertNull(ClassIndex.find(getClass().getClassLoader(), "org.apache.ibatis.domain.blog"));
+  }
+
+  @Test
+  public void shouldWriteIndexOfConfiguredPackages() throws IOException {
+    Path dir = Files.createTempDirectory("mybatis-index");
+    try {
+      Path source = dir.resolve("src/com/example/mapper/BlogMapper.java");
+      Files.createDirectories(source.getParent());
+      Files.write(source, ("package com.example.mapper;\n"
+          + "@Deprecated\n"
+          + "public interface BlogMapper extends java.io.Serializable {\n"
+          + "  class Row implements Comparable<Row> { public int compareTo(Row o) { return 0; } }\n"
+          + "}\n").getBytes(StandardCharsets.UTF_8));
+      Path classes = Files.createDirectories(dir.resolve("classes"));
+
+      JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+      try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+        JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null,
+            Arrays.asList("-proc:only", "-d", classes.toString(), "-A" + ClassIndexProcessor.PACKAGES_OPTION + "=com.example"),
+            null, fileManager.getJavaFileObjects(source.toFile()));
+        task.setProcessors(Collections.singletonList(new ClassIndexProcessor()));
+        assertTrue(task.call());
+      }
+
+      List<String> lines = Files.readAllLines(classes.resolve(ClassIndex.INDEX_LOCATION + "com.example"), StandardCharsets.UTF_8);
+      assertEquals(Arrays.asList(
+          "# Generated by " + ClassIndexProcessor.class.getName(),
+          "com.example.mapper.BlogMapper java.lang.Object java.io.Serializable @java.lang.Deprecated",
+          "com.example.mapper.BlogMapper$Row java.lang.Object java.lang.Comparable"), lines);
+    } finally {
+      delete(dir);
+    }
+  }
+
+  private void delete(Path dir) throws IOException {
+    try (Stream<Path> paths = Files.walk(dir)) {
+      paths.sorted((a, b) -> b.compareTo(a)).map(Path::toFile).forEach(File::delete);
+    }
+  }
+
+}
@@ -0,0 +1,95 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void bucketsShouldCoverAllValuesWithoutGaps() {
+    assertThat(LatencyHistogram.bucketIndex(0)).isEqualTo(0);
+    assertThat(LatencyHistogram.bucketIndex(Long.MAX_VALUE)).isEqualTo(959);
+    for (int i = 0; i < 959; i++) {
+      long lowest = LatencyHistogram.lowestValueOf(i);
+      long highest = LatencyHistogram.highestValueOf(i);
+      assertThat(LatencyHistogram.bucketIndex(lowest)).isEqualTo(i);
+      assertThat(LatencyHistogram.bucketIndex(highest)).isEqualTo(i);
+      assertThat(LatencyHistogram.lowestValueOf(i + 1)).isEqualTo(highest + 1);
+      // within 1/16 of the value
+      assertThat(highest - lowest).isLessThanOrEqualTo(Math.max(0, lowest / 16));
+    }
+  }
+
+  @Test
+  public void shouldReportPercentilesWithinBucketPrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long value = 1; value <= 1000; value++) {
+      histogram.record(value * 1000);
+    }
+    assertThat(histogram.getCount()).isEqualTo(1000);
+    assertThat(histogram.getMax()).isEqualTo(1_000_000);
+    assertThat(histogram.getMean()).isEqualTo(500_500.0);
+    assertThat(histogram.getValueAtPercentile(50)).isBetween(500_000L, 500_000L + 500_000L / 16);
+    assertThat(histogram.getValueAtPercentile(99)).isBetween(990_000L, 990_000L + 990_000L / 16);
+    assertThat(histogram.getValueAtPercentile(100)).isEqualTo(1_000_000);
+    assertThat(histogram.getValueAtPercentile(0)).isEqualTo(histogram.getValueAtPercentile(0.01));
+  }
+
+  @Test
+  public void shouldReportZeroWhenEmpty() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertThat(histogram.getValueAtPercentile(99)).isZero();
+    assertThat(histogram.getMean()).isZero();
+    assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(101));
+  }
+
+  @Test
+  public void shouldCountAllValuesRecordedConcurrently() throws Exception {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        final long offset = t;
+        futures.add(executorService.submit(() -> {
+          for (long i = 0; i < 10_000; i++) {
+            histogram.record(i * 4 + offset);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executorService.shutdown();
+    }
+    assertThat(histogram.getCount()).isEqualTo(40_000);
+    assertThat(histogram.getMax()).isEqualTo(39_999);
+    assertThat(histogram.getTotal()).isEqualTo(39_999L * 40_000 / 2);
+  }
+
+}
@@ -0,0 +1,129 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.parsing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.ibatis.builder.xml.XMLMapperEntityResolver;
+import org.apache.ibatis.io.Resources;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class DocumentSnapshotStoreTest {
+
+  private Path directory;
+
+  @BeforeEach
+  public void createDirectory() throws IOException {
+    directory = Files.createTempDirectory("snapshots");
+  }
+
+  @AfterEach
+  public void deleteDirectory() throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  @Test
+  public void shouldRestoreValidatedMapperFromSnapshot() throws Exception {
+    String resource = "org/apache/ibatis/builder/BlogMapper.xml";
+    DocumentSnapshotStore store = new DocumentSnapshotStore(directory);
+    XPathParser parsed;
+    try (InputStream inputStream = Resources.getResourceAsStream(resource)) {
+      parsed = store.newParser(inputStream, true, null, new XMLMapperEntityResolver());
+    }
+    assertThat(snapshots()).hasSize(1);
+
+    XPathParser restored;
+    try (InputStream inputStream = Resources.getResourceAsStream(resource)) {
+      restored = store.newParser(inputStream, true, null, new XMLMapperEntityResolver());
+    }
+    assertThat(restored.getDocument()).isNotSameAs(parsed.getDocument());
+    assertThat(restored.evalNode("/mapper").toString()).isEqualTo(parsed.evalNode("/mapper").toString());
+    assertThat(restored.evalNodes("/mapper/select")).hasSameSizeAs(parsed.evalNodes("/mapper/select"));
+  }
+
+  @Test
+  public void shouldReadDocumentFromSnapshotOfSameContent() throws Exception {
+    DocumentSnapshotStore store = new DocumentSnapshotStore(directory);
+    store.newParser(stream("<employee id='${id}'><name>Jim</name></employee>"), false, null, null);
+    Path snapshot = snapshots().get(0);
+    // replace the snapshot to prove it is read instead of the source
+    try (OutputStream out = Files.newOutputStream(snapshot)) {
+      DocumentSnapshotStore.encode(new XPathParser("<employee id='${id}'><name>Joe</name></employee>").getDocument(), out);
+    }
+
+    Properties variables = new Properties();
+    variables.setProperty("id", "7");
+    XPathParser parser = store.newParser(stream("<employee id='${id}'><name>Jim</name></employee>"), false, variables, null);
+    assertThat(parser.evalString("/employee/name")).isEqualTo("Joe");
+    assertThat(parser.evalNode("/employee").getStringAttribute("id")).isEqualTo("7");
+  }
+
+  @Test
+  public void shouldParseSourceWhenSnapshotIsUnreadable() throws Exception {
+    DocumentSnapshotStore store = new DocumentSnapshotStore(directory);
+    store.newParser(stream("<employee><name>Jim</name></employee>"), false, null, null);
+    Files.write(snapshots().get(0), new byte[] {1, 2, 3});
+
+    XPathParser parser = store.newParser(stream("<employee><name>Jim</name></employee>"), false, null, null);
+    assertThat(parser.evalString("/employee/name")).isEqualTo("Jim");
+    // the broken snapshot was replaced
+    assertThat(store.newParser(stream("<employee><name>Jim</name></employee>"), false, null, null)
+        .evalString("/employee/name")).isEqualTo("Jim");
+  }
+
+  @Test
+  public void shouldKeepTextAndCdataSections() throws Exception {
+    String xml = "<select>select * from t where a <![CDATA[ < ]]> 1 <if test=\"b\">and b = 2</if></select>";
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DocumentSnapshotStore.encode(new XPathParser(xml).getDocument(), bytes);
+
+    XPathParser restored = new XPathParser(DocumentSnapshotStore.decode(new ByteArrayInputStream(bytes.toByteArray())));
+    assertThat(restored.evalNode("/select").toString()).isEqualTo(new XPathParser(xml).evalNode("/select").toString());
+    assertThat(restored.getDocument().getDocumentElement().getChildNodes().item(1).getNodeType())
+        .isEqualTo(org.w3c.dom.Node.CDATA_SECTION_NODE);
+  }
+
+  private List<Path> snapshots() throws IOException {
+    try (Stream<Path> paths = Files.list(directory)) {
+      return paths.collect(Collectors.toList());
+    }
+  }
+
+  private static InputStream stream(String xml) {
+    return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+  }
+
+}
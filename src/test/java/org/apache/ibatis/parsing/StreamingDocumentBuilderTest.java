@@ -0,0 +1,71 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.parsing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+public class StreamingDocumentBuilderTest {
+
+  @Test
+  public void shouldBuildElementTreeWithoutLoadingDocumentType() {
+    Document document = parse("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<!DOCTYPE mapper PUBLIC \"-//mybatis.org//DTD Mapper 3.0//EN\" \"http://unreachable.invalid/mybatis-3-mapper.dtd\">\n"
+        + "<mapper namespace=\"ns\">\n"
+        + "  <!-- dropped -->\n"
+        + "  <select id=\"find\">select * from t where a &lt; #{a}<![CDATA[ and b < 1]]><if test=\"c\">and c</if></select>\n"
+        + "</mapper>\n");
+
+    Element mapper = document.getDocumentElement();
+    assertEquals("mapper", mapper.getNodeName());
+    assertEquals("ns", mapper.getAttribute("namespace"));
+    Element select = (Element) mapper.getElementsByTagName("select").item(0);
+    assertEquals("find", select.getAttribute("id"));
+    NodeList children = select.getChildNodes();
+    assertEquals(3, children.getLength());
+    assertEquals(Node.TEXT_NODE, children.item(0).getNodeType());
+    assertEquals("select * from t where a < #{a}", children.item(0).getNodeValue());
+    assertEquals(Node.CDATA_SECTION_NODE, children.item(1).getNodeType());
+    assertEquals(" and b < 1", children.item(1).getNodeValue());
+    assertEquals("if", children.item(2).getNodeName());
+    for (int i = 0; i < mapper.getChildNodes().getLength(); i++) {
+      assertNotEquals(Node.COMMENT_NODE, mapper.getChildNodes().item(i).getNodeType());
+    }
+  }
+
+  @Test
+  public void shouldFailOnMalformedDocument() {
+    BuilderException e = assertThrows(BuilderException.class, () -> parse("<mapper><select></mapper>"));
+    assertTrue(e.getMessage().contains("Error creating document instance"));
+  }
+
+  private static Document parse(String xml) {
+    return StreamingDocumentBuilder.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+  }
+
+}
@@ -16,8 +16,12 @@
 package org.apache.ibatis.parsing;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import org.apache.ibatis.io.Resources;
 import org.junit.jupiter.api.Test;
@@ -44,4 +48,20 @@ public class XPathParserTest {
     }
   }
 
+  @Test
+  public void shouldSelectElementPathsInDocumentOrder() throws Exception {
+    XPathParser parser = new XPathParser("<root><b id='1'/><a id='2'><b id='3'/></a><c id='4'/><b id='5'/></root>");
+    XNode root = parser.evalNode("/root");
+    assertEquals(Arrays.asList("1", "4", "5"), ids(root.evalNodes("b|c")));
+    assertEquals(Arrays.asList("3"), ids(root.evalNodes("/root/a/b")));
+    assertEquals(Arrays.asList("1", "5"), ids(parser.evalNodes("/root/b")));
+    assertEquals("2", root.evalNode("a").getStringAttribute("id"));
+    assertNull(root.evalNode("missing"));
+    assertEquals(Arrays.asList("1", "2", "4", "5"), ids(root.evalNodes("*")));
+  }
+
+  private static List<String> ids(List<XNode> nodes) {
+    return nodes.stream().map(node -> node.getStringAttribute("id")).collect(Collectors.toList());
+  }
+
 }
@@ -0,0 +1,269 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.junit.jupiter.api.Test;
+
+public class InterceptorChainTest {
+
+  @Test
+  public void shouldApplyDefaultPluginsWithOneProxy() {
+    List<String> calls = new ArrayList<>();
+    InterceptorChain chain = new InterceptorChain();
+    chain.addInterceptor(new RecordingGetInterceptor("first", calls));
+    chain.addInterceptor(new RecordingGetInterceptor("second", calls));
+
+    Map<String, String> target = new HashMap<>();
+    target.put("key", "value");
+    @SuppressWarnings("unchecked")
+    Map<String, String> map = (Map<String, String>) chain.pluginAll(target);
+
+    assertTrue(Proxy.isProxyClass(map.getClass()));
+    // a single proxy directly in front of the target
+    assertSame(target, SystemMetaObject.forObject(Proxy.getInvocationHandler(map)).getValue("target"));
+    assertEquals("value", map.get("key"));
+    // the same order as stacked proxies: the last registered interceptor is the outermost
+    assertEquals("second,first", String.join(",", calls));
+    assertEquals(1, map.size());
+    assertEquals(2, calls.size());
+  }
+
+  @Test
+  public void shouldKeepStackedOrderAroundCustomPlugins() {
+    List<String> calls = new ArrayList<>();
+    InterceptorChain chain = new InterceptorChain();
+    chain.addInterceptor(new RecordingGetInterceptor("first", calls));
+    chain.addInterceptor(new CustomPluginInterceptor("custom", calls));
+    chain.addInterceptor(new RecordingGetInterceptor("last", calls));
+
+    @SuppressWarnings("unchecked")
+    Map<String, String> map = (Map<String, String>) chain.pluginAll(new HashMap<String, String>());
+    map.get("key");
+
+    assertEquals("last,custom,first", String.join(",", calls));
+  }
+
+  @Test
+  public void shouldPropagateExceptionsOfInnerInterceptors() {
+    List<String> calls = new ArrayList<>();
+    InterceptorChain chain = new InterceptorChain();
+    chain.addInterceptor(new FailingGetInterceptor());
+    chain.addInterceptor(new CatchingGetInterceptor(calls));
+
+    @SuppressWarnings("unchecked")
+    Map<String, String> map = (Map<String, String>) chain.pluginAll(new HashMap<String, String>());
+
+    IllegalStateException e = assertThrows(IllegalStateException.class, () -> map.get("key"));
+    assertEquals("failed", e.getMessage());
+    assertEquals("failed", String.join(",", calls));
+  }
+
+  @Test
+  public void shouldRunInnerInterceptorsWhenOuterInterceptorCallsTheTarget() {
+    List<String> calls = new ArrayList<>();
+    InterceptorChain chain = new InterceptorChain();
+    chain.addInterceptor(new RecordingGetInterceptor("inner", calls));
+    chain.addInterceptor(new RedirectingGetInterceptor("redirected"));
+
+    Map<String, String> target = new HashMap<>();
+    target.put("redirected", "value");
+    @SuppressWarnings("unchecked")
+    Map<String, String> map = (Map<String, String>) chain.pluginAll(target);
+
+    // the outer interceptor calls the target itself instead of proceeding, like a paging plugin does
+    assertEquals("value", map.get("key"));
+    assertEquals("inner", String.join(",", calls));
+  }
+
+  @Test
+  public void shouldNotProxyTargetsWithoutInterceptedInterfaces() {
+    InterceptorChain chain = new InterceptorChain();
+    chain.addInterceptor(new RecordingGetInterceptor("first", new ArrayList<>()));
+    Object target = new Object();
+    assertSame(target, chain.pluginAll(target));
+  }
+
+  @Test
+  public void shouldCountInterceptorsPerSignatureType() {
+    InterceptorChain chain = new InterceptorChain();
+    chain.addInterceptor(new RecordingGetInterceptor("first", new ArrayList<>()));
+    chain.addInterceptor(new FailingGetInterceptor());
+    chain.addInterceptor(new ListSizeInterceptor());
+
+    assertEquals(2, chain.getInterceptorCount(Map.class));
+    assertEquals(1, chain.getInterceptorCount(List.class));
+    assertEquals(0, chain.getInterceptorCount(Set.class));
+    assertEquals(2, chain.getInterceptorCounts().size());
+  }
+
+  @Test
+  public void shouldReturnUntargetedComponentsUnwrapped() {
+    List<String> calls = new ArrayList<>();
+    InterceptorChain chain = new InterceptorChain();
+    chain.addInterceptor(new ListSizeInterceptor());
+    Map<String, String> map = new HashMap<>();
+    assertSame(map, chain.pluginAll(map));
+    assertTrue(Proxy.isProxyClass(chain.pluginAll(new ArrayList<>()).getClass()));
+
+    // a custom plugin method may wrap anything, so every target goes through it
+    chain.addInterceptor(new CustomPluginInterceptor("custom", calls) {
+      @Override
+      public Object plugin(Object target) {
+        calls.add(target.getClass().getSimpleName());
+        return target;
+      }
+    });
+    assertSame(map, chain.pluginAll(map));
+    assertEquals("HashMap", String.join(",", calls));
+  }
+
+  @Test
+  public void shouldRejectInterceptorWithoutSignaturesOnRegistration() {
+    InterceptorChain chain = new InterceptorChain();
+    assertThrows(PluginException.class, () -> chain.addInterceptor(new Interceptor() {
+      @Override
+      public Object intercept(Invocation invocation) {
+        return null;
+      }
+
+      @Override
+      public void setProperties(Properties properties) {
+      }
+    }));
+    assertTrue(chain.getInterceptors().isEmpty());
+  }
+
+  @Intercepts({
+      @Signature(type = Map.class, method = "get", args = {Object.class})})
+  public static class RecordingGetInterceptor implements Interceptor {
+    private final String name;
+    private final List<String> calls;
+
+    RecordingGetInterceptor(String name, List<String> calls) {
+      this.name = name;
+      this.calls = calls;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      calls.add(name);
+      return invocation.proceed();
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+  }
+
+  @Intercepts({
+      @Signature(type = Map.class, method = "get", args = {Object.class})})
+  public static class RedirectingGetInterceptor implements Interceptor {
+    private final String key;
+
+    RedirectingGetInterceptor(String key) {
+      this.key = key;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) {
+      return ((Map<?, ?>) invocation.getTarget()).get(key);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+  }
+
+  @Intercepts({
+      @Signature(type = Map.class, method = "get", args = {Object.class})})
+  public static class CustomPluginInterceptor extends RecordingGetInterceptor {
+    CustomPluginInterceptor(String name, List<String> calls) {
+      super(name, calls);
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+  }
+
+  @Intercepts({
+      @Signature(type = Map.class, method = "get", args = {Object.class})})
+  public static class CatchingGetInterceptor implements Interceptor {
+    private final List<String> calls;
+
+    CatchingGetInterceptor(List<String> calls) {
+      this.calls = calls;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      try {
+        return invocation.proceed();
+      } catch (InvocationTargetException e) {
+        calls.add(e.getTargetException().getMessage());
+        throw e;
+      }
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+  }
+
+  @Intercepts({
+      @Signature(type = List.class, method = "size", args = {}),
+      @Signature(type = List.class, method = "isEmpty", args = {})})
+  public static class ListSizeInterceptor implements Interceptor {
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      return invocation.proceed();
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+  }
+
+  @Intercepts({
+      @Signature(type = Map.class, method = "get", args = {Object.class})})
+  public static class FailingGetInterceptor implements Interceptor {
+    @Override
+    public Object intercept(Invocation invocation) {
+      throw new IllegalStateException("failed");
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+  }
+
+}
@@ -41,6 +41,31 @@ public class ReflectorTest {
     Assertions.assertEquals(Long.class, reflector.getGetterType("id"));
   }
 
+  @Test
+  public void shouldSetPrimitivePropertiesWithoutBoxing() throws Exception {
+    ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    Reflector reflector = reflectorFactory.findForClass(Primitives.class);
+    Assertions.assertNull(reflector.getPrimitiveSetInvoker("name"));
+    Primitives primitives = new Primitives();
+    reflector.getPrimitiveSetInvoker("count").setInt(primitives, 3);
+    reflector.getPrimitiveSetInvoker("total").setLong(primitives, 4L);
+    reflector.getPrimitiveSetInvoker("ratio").setDouble(primitives, 0.5);
+    Assertions.assertEquals(3, primitives.count);
+    Assertions.assertEquals(4L, primitives.total);
+    Assertions.assertEquals(0.5, primitives.ratio);
+  }
+
+  static class Primitives {
+    private int count;
+    private long total;
+    private double ratio;
+    private String name;
+
+    public void setCount(int count) {
+      this.count = count;
+    }
+  }
+
   @Test
   public void shouldNotGetClass() throws Exception {
     ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
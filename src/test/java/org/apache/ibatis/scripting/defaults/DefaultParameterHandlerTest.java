@@ -17,12 +17,17 @@ package org.apache.ibatis.scripting.defaults;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Blog;
 import org.apache.ibatis.mapping.*;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
@@ -36,6 +41,8 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -70,6 +77,115 @@ public class DefaultParameterHandlerTest {
 
   }
 
+  @Test
+  public void shouldBindBeanPropertiesThroughCachedPlan() throws SQLException {
+    final MappedStatement mappedStatement = getBlogInsertStatement();
+    final Blog blog = new Blog(1, "Tales", new Author(101, "jim", "pwd", "jim@example.com", null, null), null);
+
+    PreparedStatement ps = mock(PreparedStatement.class);
+    for (int i = 0; i < 2; i++) {
+      BoundSql boundSql = mappedStatement.getBoundSql(blog);
+      new DefaultParameterHandler(mappedStatement, blog, boundSql).setParameters(ps);
+    }
+
+    verify(ps, times(2)).setInt(1, 1);
+    verify(ps, times(2)).setString(2, "Tales");
+    verify(ps, times(2)).setString(3, "jim");
+    Assertions.assertEquals(1, mappedStatement.getParameterBindingPlans().size());
+  }
+
+  @Test
+  public void shouldBindNullForPropertiesOfNullObjects() throws SQLException {
+    final MappedStatement mappedStatement = getBlogInsertStatement();
+    final Blog blog = new Blog(1, "Tales", null, null);
+
+    PreparedStatement ps = mock(PreparedStatement.class);
+    new DefaultParameterHandler(mappedStatement, blog, mappedStatement.getBoundSql(blog)).setParameters(ps);
+
+    verify(ps).setString(2, "Tales");
+    verify(ps).setNull(3, Types.OTHER);
+  }
+
+  @Test
+  public void shouldBindMapValuesAndPreferAdditionalParameters() throws SQLException {
+    final MappedStatement mappedStatement = getBlogInsertStatement();
+    final Map<String, Object> parameter = new HashMap<>();
+    parameter.put("id", 1);
+    parameter.put("title", "Tales");
+    parameter.put("author", new Author(101, "jim", "pwd", "jim@example.com", null, null));
+
+    PreparedStatement ps = mock(PreparedStatement.class);
+    BoundSql boundSql = mappedStatement.getBoundSql(parameter);
+    boundSql.setAdditionalParameter("title", "Other tales");
+    new DefaultParameterHandler(mappedStatement, parameter, boundSql).setParameters(ps);
+
+    verify(ps).setInt(1, 1);
+    verify(ps).setString(2, "Other tales");
+    verify(ps).setString(3, "jim");
+  }
+
+  @Test
+  public void shouldBindParameterObjectWithTypeHandler() throws SQLException {
+    final Configuration config = new Configuration();
+    final List<ParameterMapping> parameterMappings = Collections.singletonList(new ParameterMapping.Builder(config, "id", Integer.class).build());
+    final MappedStatement mappedStatement = new MappedStatement.Builder(config, "deleteBlog",
+        new StaticSqlSource(config, "delete from blog where id = ?", parameterMappings), SqlCommandType.DELETE).build();
+
+    PreparedStatement ps = mock(PreparedStatement.class);
+    new DefaultParameterHandler(mappedStatement, 7, mappedStatement.getBoundSql(7)).setParameters(ps);
+    new DefaultParameterHandler(mappedStatement, null, mappedStatement.getBoundSql(null)).setParameters(ps);
+
+    verify(ps).setInt(1, 7);
+    verify(ps).setNull(1, Types.OTHER);
+    Assertions.assertEquals(2, mappedStatement.getParameterBindingPlans().size());
+  }
+
+  @Test
+  public void shouldReusePlanOfDynamicSqlWithSameMappedProperties() throws SQLException {
+    final Configuration config = new Configuration();
+    final SqlSource sqlSource = config.getDefaultScriptingLanguageInstance().createSqlSource(config,
+        "<script>select * from blog <where><if test='title != null'>title = #{title}</if>"
+            + "<foreach collection='ids' item='id' open=' and id in (' separator=',' close=')'>#{id}</foreach></where></script>",
+        Map.class);
+    final MappedStatement mappedStatement = new MappedStatement.Builder(config, "selectBlogs", sqlSource, SqlCommandType.SELECT).build();
+    final ParameterBindingPlan.Cache plans = mappedStatement.getParameterBindingPlans();
+
+    final Map<String, Object> first = new HashMap<>();
+    first.put("title", "Tales");
+    first.put("ids", Arrays.asList(1, 2));
+    final Map<String, Object> second = new HashMap<>();
+    second.put("title", "Fables");
+    second.put("ids", Arrays.asList(3, 4));
+    final BoundSql firstBoundSql = mappedStatement.getBoundSql(first);
+    final BoundSql secondBoundSql = mappedStatement.getBoundSql(second);
+    Assertions.assertNotSame(firstBoundSql.getParameterMappings(), secondBoundSql.getParameterMappings());
+
+    final ParameterBindingPlan plan = plans.getPlan(config, firstBoundSql, first);
+    Assertions.assertSame(plan, plans.getPlan(config, secondBoundSql, second));
+    Assertions.assertEquals(1, plans.size());
+
+    PreparedStatement ps = mock(PreparedStatement.class);
+    new DefaultParameterHandler(mappedStatement, second, secondBoundSql).setParameters(ps);
+    verify(ps).setString(1, "Fables");
+    verify(ps).setInt(2, 3);
+    verify(ps).setInt(3, 4);
+
+    final Map<String, Object> other = new HashMap<>();
+    other.put("ids", Arrays.asList(5, 6));
+    Assertions.assertNotSame(plan, plans.getPlan(config, mappedStatement.getBoundSql(other), other));
+    Assertions.assertEquals(2, plans.size());
+  }
+
+  private MappedStatement getBlogInsertStatement() {
+    final Configuration config = new Configuration();
+    final List<ParameterMapping> parameterMappings = Arrays.asList(
+        new ParameterMapping.Builder(config, "id", Integer.class).build(),
+        new ParameterMapping.Builder(config, "title", String.class).build(),
+        new ParameterMapping.Builder(config, "author.username", String.class).build());
+    return new MappedStatement.Builder(config, "insertBlog",
+        new StaticSqlSource(config, "insert into blog (id, title, author) values (?, ?, ?)", parameterMappings), SqlCommandType.INSERT).build();
+  }
+
   MappedStatement getMappedStatement() {
     final Configuration config = new Configuration();
     final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
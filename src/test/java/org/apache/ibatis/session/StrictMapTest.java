@@ -0,0 +1,60 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class StrictMapTest {
+
+  @Test
+  public void shouldThrowOnlyFromGet() {
+    Configuration.StrictMap<String> map = new Configuration.StrictMap<>("Test collection");
+    map.put("com.example.Mapper.select", "value");
+
+    assertEquals("value", map.get("select"));
+    assertThrows(IllegalArgumentException.class, () -> map.get("missing"));
+    assertFalse(map.containsKey("missing"));
+    assertFalse(map.containsKey(null));
+    assertEquals("default", map.getOrDefault("missing", "default"));
+    assertNull(map.getOrDefault(null, null));
+    assertEquals("value", map.getOrDefault("com.example.Mapper.select", "default"));
+  }
+
+  @Test
+  public void shouldCompareWithMapsMissingKeys() {
+    Configuration.StrictMap<String> map = new Configuration.StrictMap<>("Test collection");
+    map.put("a", "1");
+    Map<String, String> same = new HashMap<>();
+    same.put("a", "1");
+    Map<String, String> other = new HashMap<>();
+    other.put("b", "1");
+
+    assertTrue(map.equals(same));
+    assertEquals(same.hashCode(), map.hashCode());
+    assertFalse(map.equals(other));
+    assertFalse(map.equals(new Configuration.StrictMap<>("Other collection")));
+  }
+
+}
@@ -0,0 +1,143 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.columnar;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.result.ColumnarResult;
+import org.apache.ibatis.executor.result.ColumnarResult.ColumnType;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.type.JdbcType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class ColumnarResultTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  public static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/columnar/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+            "org/apache/ibatis/submitted/columnar/CreateDB.sql");
+  }
+
+  @Test
+  public void shouldMaterializeColumnsIntoPrimitiveArrays() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ColumnarResult result = sqlSession.getMapper(Mapper.class).selectSales();
+      assertEquals(5, result.getRowCount());
+      assertEquals(7, result.getColumnCount());
+
+      assertEquals(ColumnType.LONG, result.getColumnType("id"));
+      assertArrayEquals(new long[] { 1, 2, 3, 4, 5 }, result.getLongs("ID"));
+
+      assertArrayEquals(new long[] { 10, 20, 0, 40, 50 }, result.getLongs("quantity"));
+      assertTrue(result.isNull("quantity", 2));
+      assertFalse(result.isNull("quantity", 3));
+
+      assertEquals(ColumnType.OBJECT, result.getColumnType("amount"));
+      assertEquals(new BigDecimal("12.50"), result.getValue("amount", 0));
+      assertTrue(result.isNull("amount", 3));
+      assertNull(result.getValue("amount", 3));
+    }
+  }
+
+  @Test
+  public void shouldKeepDecimalPrecision() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ColumnarResult result = sqlSession.getMapper(Mapper.class).selectSales();
+
+      assertEquals(ColumnType.LONG, result.getColumnType("account"));
+      assertArrayEquals(new long[] { 123456789012345678L, -1, 0, 0, 42 }, result.getLongs("account"));
+      assertTrue(result.isNull("account", 3));
+
+      assertEquals(ColumnType.OBJECT, result.getColumnType("balance"));
+      Object[] balances = result.getObjects("balance");
+      assertEquals(new BigDecimal("12345678901234567890.0123456789"), balances[0]);
+      assertEquals(new BigDecimal("99999999999999999999.9999999999"), balances[4]);
+      assertNull(balances[3]);
+    }
+  }
+
+  @Test
+  public void shouldReadOnlyShortScaleZeroDecimalsAsLongs() {
+    assertEquals(ColumnType.LONG, ColumnarResult.columnTypeFor(JdbcType.NUMERIC, 18, 0));
+    assertEquals(ColumnType.OBJECT, ColumnarResult.columnTypeFor(JdbcType.NUMERIC, 19, 0));
+    assertEquals(ColumnType.OBJECT, ColumnarResult.columnTypeFor(JdbcType.DECIMAL, 10, 2));
+    assertEquals(ColumnType.OBJECT, ColumnarResult.columnTypeFor(JdbcType.NUMERIC, 0, -127));
+    assertEquals(ColumnType.OBJECT, ColumnarResult.columnTypeFor(JdbcType.DECIMAL));
+    assertEquals(ColumnType.DOUBLE, ColumnarResult.columnTypeFor(JdbcType.DOUBLE, 15, 0));
+  }
+
+  @Test
+  public void shouldDictionaryEncodeCharacterColumns() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ColumnarResult result = sqlSession.getMapper(Mapper.class).selectSales();
+      assertEquals(ColumnType.STRING, result.getColumnType("region"));
+      assertArrayEquals(new String[] { "north", "south" }, result.getDictionary("region"));
+      assertArrayEquals(new int[] { 0, 1, 0, -1, 1 }, result.getCodes("region"));
+      assertEquals("south", result.getString("region", 4));
+      assertNull(result.getString("region", 3));
+    }
+  }
+
+  @Test
+  public void shouldReadOtherColumnsThroughTypeHandlers() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ColumnarResult result = sqlSession.getMapper(Mapper.class).selectSales();
+      assertEquals(ColumnType.OBJECT, result.getColumnType("sold_on"));
+      Object[] soldOn = result.getObjects("sold_on");
+      assertEquals(Date.valueOf("2019-01-01"), soldOn[0]);
+      assertNull(soldOn[3]);
+      assertTrue(result.isNull("sold_on", 3));
+    }
+  }
+
+  @Test
+  public void shouldApplyRowBounds() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<ColumnarResult> results = sqlSession.selectList("org.apache.ibatis.submitted.columnar.Mapper.selectSales", null, new RowBounds(1, 2));
+      assertEquals(1, results.size());
+      ColumnarResult result = results.get(0);
+      assertEquals(2, result.getRowCount());
+      assertArrayEquals(new long[] { 2, 3 }, result.getLongs("id"));
+    }
+  }
+
+  @Test
+  public void shouldRejectAccessWithWrongColumnType() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ColumnarResult result = sqlSession.getMapper(Mapper.class).selectSales();
+      assertThrows(RuntimeException.class, () -> result.getDoubles("id"));
+      assertThrows(RuntimeException.class, () -> result.getLongs("unknown"));
+    }
+  }
+
+}
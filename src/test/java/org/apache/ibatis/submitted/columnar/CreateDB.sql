@@ -0,0 +1,33 @@
+--
+--    Copyright 2009-2019 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table sales if exists;
+
+create table sales (
+  id int,
+  region varchar(20),
+  quantity bigint,
+  amount decimal(10, 2),
+  sold_on date,
+  account numeric(18, 0),
+  balance decimal(30, 10)
+);
+
+insert into sales (id, region, quantity, amount, sold_on, account, balance) values (1, 'north', 10, 12.50, '2019-01-01', 123456789012345678, 12345678901234567890.0123456789);
+insert into sales (id, region, quantity, amount, sold_on, account, balance) values (2, 'south', 20, 7.25, '2019-01-02', -1, 0.1000000000);
+insert into sales (id, region, quantity, amount, sold_on, account, balance) values (3, 'north', null, 3.00, '2019-01-03', 0, 1.0000000000);
+insert into sales (id, region, quantity, amount, sold_on, account, balance) values (4, null, 40, null, null, null, null);
+insert into sales (id, region, quantity, amount, sold_on, account, balance) values (5, 'south', 50, 1.75, '2019-01-05', 42, 99999999999999999999.9999999999);
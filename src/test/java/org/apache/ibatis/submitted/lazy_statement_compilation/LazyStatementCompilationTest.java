@@ -0,0 +1,181 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.lazy_statement_compilation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class LazyStatementCompilationTest {
+
+  private static final String NAMESPACE = Mapper.class.getName();
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/lazy_statement_compilation/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+            "org/apache/ibatis/submitted/lazy_statement_compilation/CreateDB.sql");
+  }
+
+  @Test
+  public void shouldOnlyCompileWarmUpStatementsOnStartup() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    assertTrue(configuration.getLazyStatementNames().contains(NAMESPACE + ".getUser"));
+    assertTrue(configuration.getLazyStatementNames().contains(NAMESPACE + ".insertUser"));
+    assertTrue(configuration.getLazyStatementNames().contains(NAMESPACE + ".countUsers"));
+    assertFalse(configuration.getLazyStatementNames().contains(NAMESPACE + ".getUsersByName"));
+    assertTrue(configuration.hasResultMap(NAMESPACE + ".userMap"));
+  }
+
+  @Test
+  public void shouldCompileStatementsOnFirstUse() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals("User1", mapper.getUser(1).getName());
+      assertEquals(2, mapper.countUsers());
+      assertEquals(2, mapper.getUsersByName(null).size());
+    }
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    assertFalse(configuration.getLazyStatementNames().contains(NAMESPACE + ".getUser"));
+    assertFalse(configuration.getLazyStatementNames().contains(NAMESPACE + ".countUsers"));
+  }
+
+  @Test
+  public void shouldCompileSelectKeyWithItsStatement() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      User user = new User();
+      user.setName("User3");
+      sqlSession.getMapper(Mapper.class).insertUser(user);
+      assertEquals(Integer.valueOf(3), user.getId());
+    }
+  }
+
+  @Test
+  public void shouldCompileStatementReferencedByShortName() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      User user = sqlSession.selectOne("getUser", 2);
+      assertEquals("User2", user.getName());
+    }
+  }
+
+  @Test
+  public void shouldCompileRemainingStatementsWhenAllAreListed() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    assertTrue(configuration.getMappedStatementNames().contains(NAMESPACE + ".insertUser!selectKey"));
+    assertTrue(configuration.getLazyStatementNames().isEmpty());
+  }
+
+  @Test
+  public void shouldRejectDuplicateStatementIdsOnStartup() throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.setLazyStatementCompilation(true);
+    String resource = "org/apache/ibatis/submitted/lazy_statement_compilation/DuplicateMapper.xml";
+    try (InputStream inputStream = Resources.getResourceAsStream(resource)) {
+      XMLMapperBuilder builder = new XMLMapperBuilder(inputStream, configuration, resource, configuration.getSqlFragments());
+      BuilderException e = assertThrows(BuilderException.class, builder::parse);
+      assertTrue(e.getMessage().contains("Mapped Statements collection already contains value for "
+          + "org.apache.ibatis.submitted.lazy_statement_compilation.DuplicateMapper.getUser"));
+    }
+  }
+
+  @Test
+  public void shouldAcceptSameStatementIdForOtherDatabaseId() {
+    Configuration configuration = new Configuration();
+    configuration.addLazyStatement(NAMESPACE + ".selectNow", null, () -> { });
+    configuration.addLazyStatement(NAMESPACE + ".selectNow", "hsql", () -> { });
+    assertThrows(IllegalArgumentException.class, () -> configuration.addLazyStatement(NAMESPACE + ".selectNow", "hsql", () -> { }));
+  }
+
+  @Test
+  public void shouldCompileStatementOnceForConcurrentCallers() throws Exception {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Callable<MappedStatement>> tasks = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        tasks.add(() -> configuration.getMappedStatement(NAMESPACE + ".getUser"));
+      }
+      List<Future<MappedStatement>> results = executor.invokeAll(tasks);
+      for (Future<MappedStatement> result : results) {
+        assertSame(results.get(0).get(), result.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void shouldNotWaitForCompilationWhenLookingUpUnknownStatement() throws Exception {
+    Configuration configuration = new Configuration();
+    CountDownLatch compiling = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    configuration.addLazyStatement(NAMESPACE + ".slowStatement", null, () -> {
+      compiling.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    configuration.addLazyStatement(NAMESPACE + ".otherStatement", null, () -> { });
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Boolean> slow = executor.submit(() -> configuration.hasStatement(NAMESPACE + ".slowStatement"));
+      assertTrue(compiling.await(10, TimeUnit.SECONDS));
+      // neither pending nor being compiled, so the lookup does not take the compilation lock
+      assertFalse(configuration.hasStatement(NAMESPACE + ".missing"));
+      assertFalse(configuration.hasStatement("missing"));
+      release.countDown();
+      assertFalse(slow.get(10, TimeUnit.SECONDS));
+      assertEquals(Collections.singleton(NAMESPACE + ".otherStatement"), configuration.getLazyStatementNames());
+    } finally {
+      release.countDown();
+      executor.shutdown();
+    }
+  }
+
+}
\ No newline at end of file
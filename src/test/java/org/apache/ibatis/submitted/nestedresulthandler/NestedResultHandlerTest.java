@@ -16,6 +16,7 @@
 package org.apache.ibatis.submitted.nestedresulthandler;
 
 import java.io.Reader;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.ibatis.BaseDataTest;
@@ -86,6 +87,28 @@ public class NestedResultHandlerTest {
     }
   }
 
+  @Test
+  public void testGetPersonWithHandlerStreamsCompletedParents() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      final List<Person> persons = new ArrayList<>();
+      sqlSession.select("getPersons", new ResultHandler<Person>() {
+        public void handleResult(ResultContext<? extends Person> context) {
+          persons.add(context.getResultObject());
+          if (persons.size() == 2) {
+            context.stop();
+          }
+        }
+      });
+      Assertions.assertEquals(2, persons.size());
+      Assertions.assertEquals("grandma", persons.get(0).getName());
+      Assertions.assertEquals(2, persons.get(0).getItems().size());
+      Assertions.assertEquals("sister", persons.get(1).getName());
+      Assertions.assertTrue(persons.get(1).owns("phone"));
+      Assertions.assertTrue(persons.get(1).owns("shoes"));
+      Assertions.assertEquals(2, persons.get(1).getItems().size());
+    }
+  }
+
   @Test
   public void testUnorderedGetPersonWithHandler() {
     try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
@@ -0,0 +1,27 @@
+--
+--    Copyright 2009-2019 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table measurement if exists;
+
+create table measurement (
+  id int,
+  sample_count bigint,
+  average double,
+  total int
+);
+
+insert into measurement (id, sample_count, average, total) values (1, 10000000000, 2.5, 25);
+insert into measurement (id, sample_count, average, total) values (2, null, null, null);
@@ -0,0 +1,54 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.primitive_setters;
+
+public class Measurement {
+
+  private int id;
+  private long sampleCount;
+  private double average;
+  // no setter, written through the field
+  private long total;
+
+  public int getId() {
+    return id;
+  }
+
+  public void setId(int id) {
+    this.id = id;
+  }
+
+  public long getSampleCount() {
+    return sampleCount;
+  }
+
+  public void setSampleCount(long sampleCount) {
+    this.sampleCount = sampleCount;
+  }
+
+  public double getAverage() {
+    return average;
+  }
+
+  public void setAverage(double average) {
+    this.average = average;
+  }
+
+  public long getTotal() {
+    return total;
+  }
+
+}
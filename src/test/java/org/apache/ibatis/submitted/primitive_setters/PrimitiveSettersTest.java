@@ -0,0 +1,84 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.primitive_setters;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.Reader;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class PrimitiveSettersTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  public static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/primitive_setters/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+            "org/apache/ibatis/submitted/primitive_setters/CreateDB.sql");
+  }
+
+  @Test
+  public void shouldAutoMapPrimitiveProperties() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertMeasurements(sqlSession.getMapper(Mapper.class).selectAutoMapped());
+    }
+  }
+
+  @Test
+  public void shouldMapPrimitivePropertiesOfResultMap() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertMeasurements(sqlSession.getMapper(Mapper.class).selectMapped());
+    }
+  }
+
+  @Test
+  public void shouldReadThroughOverriddenNullableResultOfTypeHandler() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Measurement> measurements = sqlSession.getMapper(Mapper.class).selectWithCustomTypeHandler();
+      assertEquals(10000000000L, measurements.get(0).getSampleCount());
+      // the subclass maps NULL to -1, the primitive accessors of LongTypeHandler would have skipped it
+      assertEquals(-1L, measurements.get(1).getSampleCount());
+    }
+  }
+
+  private void assertMeasurements(List<Measurement> measurements) {
+    assertEquals(2, measurements.size());
+    Measurement first = measurements.get(0);
+    assertEquals(1, first.getId());
+    assertEquals(10000000000L, first.getSampleCount());
+    assertEquals(2.5, first.getAverage());
+    // int column written to a long field that has no setter
+    assertEquals(25L, first.getTotal());
+    Measurement second = measurements.get(1);
+    assertEquals(2, second.getId());
+    assertEquals(0L, second.getSampleCount());
+    assertEquals(0.0, second.getAverage());
+    assertEquals(0L, second.getTotal());
+  }
+
+}
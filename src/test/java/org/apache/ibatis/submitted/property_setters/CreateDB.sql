@@ -0,0 +1,27 @@
+--
+--    Copyright 2009-2019 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table book if exists;
+
+create table book (
+  id int,
+  title varchar(50),
+  author_name varchar(50),
+  author_country varchar(50)
+);
+
+insert into book (id, title, author_name, author_country) values (1, 'Dune', 'Frank Herbert', 'USA');
+insert into book (id, title, author_name, author_country) values (2, null, null, null);
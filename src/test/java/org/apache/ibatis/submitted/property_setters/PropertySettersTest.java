@@ -0,0 +1,93 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.property_setters;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class PropertySettersTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  public static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/property_setters/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+            "org/apache/ibatis/submitted/property_setters/CreateDB.sql");
+  }
+
+  @Test
+  public void shouldMapNestedPropertiesOfResultMap() {
+    List<Book> books = select(Mapper::selectMapped, false);
+    assertBook(books.get(0));
+    assertEquals("untitled", books.get(1).getTitle());
+    // no author is instantiated for null values
+    assertNull(books.get(1).getAuthor());
+  }
+
+  @Test
+  public void shouldAutoMapNestedProperties() {
+    List<Book> books = select(Mapper::selectAutoMapped, false);
+    assertBook(books.get(0));
+    assertEquals("untitled", books.get(1).getTitle());
+    assertNull(books.get(1).getAuthor());
+  }
+
+  @Test
+  public void shouldCallSettersOnNulls() {
+    for (Function<Mapper, List<Book>> query : Arrays.<Function<Mapper, List<Book>>>asList(Mapper::selectMapped, Mapper::selectAutoMapped)) {
+      List<Book> books = select(query, true);
+      assertBook(books.get(0));
+      assertNull(books.get(1).getTitle());
+      assertNull(books.get(1).getAuthor());
+    }
+  }
+
+  private List<Book> select(Function<Mapper, List<Book>> query, boolean callSettersOnNulls) {
+    sqlSessionFactory.getConfiguration().setCallSettersOnNulls(callSettersOnNulls);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Book> books = query.apply(sqlSession.getMapper(Mapper.class));
+      assertEquals(2, books.size());
+      return books;
+    } finally {
+      sqlSessionFactory.getConfiguration().setCallSettersOnNulls(false);
+    }
+  }
+
+  private void assertBook(Book book) {
+    assertEquals(1, book.getId());
+    assertEquals("Dune", book.getTitle());
+    assertEquals("Frank Herbert", book.getAuthor().getName());
+    assertEquals("USA", book.getAuthor().getCountry());
+  }
+
+}
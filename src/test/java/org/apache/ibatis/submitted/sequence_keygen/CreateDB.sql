@@ -0,0 +1,29 @@
+--
+--    Copyright 2009-2019 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table item if exists;
+drop sequence item_block_seq if exists;
+drop sequence item_pool_seq if exists;
+drop sequence item_row_seq if exists;
+
+create table item (
+  id bigint primary key,
+  name varchar(20)
+);
+
+create sequence item_block_seq start with 1;
+create sequence item_pool_seq start with 100 increment by 5;
+create sequence item_row_seq start with 1000;
@@ -0,0 +1,49 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.sequence_keygen;
+
+import java.util.List;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.executor.keygen.SequenceKeyGenerator.Allocation;
+
+public interface ItemMapper {
+
+  long nextItemBlock();
+
+  int insertItem(Item item);
+
+  int insertItems(List<Item> items);
+
+  List<Item> selectItems();
+
+  int insertItemFromSequence(Item item);
+
+  int insertItemsFromSequence(List<Item> items);
+
+  int insertItemsFromRows(List<Item> items);
+
+  @Select("call next value for item_pool_seq")
+  @Options(useCache = false, flushCache = Options.FlushCachePolicy.TRUE)
+  long nextItemPool();
+
+  @Insert("insert into item (id, name) values (#{id}, #{name})")
+  @Options(keySequence = "nextItemPool", keyBlockSize = 5, keyAllocation = Allocation.INCREMENT, keyProperty = "id")
+  int insertPooledItem(Item item);
+
+}
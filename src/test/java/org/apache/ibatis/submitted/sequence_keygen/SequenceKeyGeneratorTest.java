@@ -0,0 +1,192 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.sequence_keygen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.keygen.SequenceKeyGenerator;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SequenceKeyGeneratorTest {
+
+  private static final String NAMESPACE = ItemMapper.class.getName();
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/sequence_keygen/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+            "org/apache/ibatis/submitted/sequence_keygen/CreateDB.sql");
+
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    SequenceKeyGenerator keyGenerator = new SequenceKeyGenerator(configuration.getMappedStatement(NAMESPACE + ".nextItemBlock"), 10);
+    addWithKeyGenerator(configuration, "insertItem", keyGenerator);
+    addWithKeyGenerator(configuration, "insertItems", keyGenerator);
+  }
+
+  private static void addWithKeyGenerator(Configuration configuration, String id, SequenceKeyGenerator keyGenerator) {
+    MappedStatement insert = configuration.getMappedStatement(NAMESPACE + "." + id);
+    configuration.addMappedStatement(new MappedStatement.Builder(configuration, insert.getId() + "WithSequence",
+        insert.getSqlSource(), insert.getSqlCommandType()).keyGenerator(keyGenerator).keyProperty("id").build());
+  }
+
+  @Test
+  public void shouldAssignKeysOfOneBlockToMultiRowInsert() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Item> items = Arrays.asList(new Item("a"), new Item("b"), new Item("c"));
+      assertEquals(3, sqlSession.insert(NAMESPACE + ".insertItemsWithSequence", items));
+      assertEquals(Arrays.asList(10L, 11L, 12L), ids(items));
+      assertEquals(Arrays.asList(10L, 11L, 12L), ids(sqlSession.getMapper(ItemMapper.class).selectItems()));
+      // one sequence value was taken
+      assertEquals(2L, sqlSession.getMapper(ItemMapper.class).nextItemBlock());
+    }
+  }
+
+  @Test
+  public void shouldReportNullElementOfMultiRowInsert() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Item> items = Arrays.asList(new Item("a"), null, new Item("c"));
+      PersistenceException e = assertThrows(PersistenceException.class,
+          () -> sqlSession.insert(NAMESPACE + ".insertItemsWithSequence", items));
+      assertTrue(e.getMessage().contains("No setter found for the keyProperty 'id'"), e.getMessage());
+    }
+  }
+
+  @Test
+  public void shouldReserveNextBlockWhenCurrentIsUsedUp() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      for (int i = 0; i < 12; i++) {
+        sqlSession.insert(NAMESPACE + ".insertItemWithSequence", new Item("item" + i));
+      }
+      sqlSession.flushStatements();
+      List<Long> ids = ids(sqlSession.getMapper(ItemMapper.class).selectItems());
+      assertEquals(12, ids.size());
+      assertEquals(Long.valueOf(10L), ids.get(0));
+      assertEquals(Long.valueOf(19L), ids.get(9));
+      assertEquals(Long.valueOf(20L), ids.get(10));
+      assertEquals(Long.valueOf(21L), ids.get(11));
+    }
+  }
+
+  @Test
+  public void shouldShareKeyGeneratorOfSequenceConfiguredOnInsert() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    SequenceKeyGenerator keyGenerator = (SequenceKeyGenerator) configuration.getMappedStatement(NAMESPACE + ".insertItemFromSequence").getKeyGenerator();
+    assertSame(keyGenerator, configuration.getMappedStatement(NAMESPACE + ".insertItemsFromSequence").getKeyGenerator());
+    assertEquals(10, keyGenerator.getBlockSize());
+    assertEquals(SequenceKeyGenerator.Allocation.HILO, keyGenerator.getAllocation());
+    assertEquals(NAMESPACE + ".nextItemBlock", keyGenerator.getSequenceStatementId());
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ItemMapper mapper = sqlSession.getMapper(ItemMapper.class);
+      Item item = new Item("a");
+      mapper.insertItemFromSequence(item);
+      List<Item> items = Arrays.asList(new Item("b"), new Item("c"));
+      mapper.insertItemsFromSequence(items);
+      assertEquals(Long.valueOf(10L), item.getId());
+      assertEquals(Arrays.asList(11L, 12L), ids(items));
+    }
+  }
+
+  @Test
+  public void shouldUseSequenceValuesOfIncrementingSequence() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ItemMapper mapper = sqlSession.getMapper(ItemMapper.class);
+      List<Long> ids = new ArrayList<>();
+      for (int i = 0; i < 7; i++) {
+        Item item = new Item("item" + i);
+        mapper.insertPooledItem(item);
+        ids.add(item.getId());
+      }
+      assertEquals(Arrays.asList(100L, 101L, 102L, 103L, 104L, 105L, 106L), ids);
+      // two sequence values were taken
+      assertEquals(110L, mapper.nextItemPool());
+    }
+  }
+
+  @Test
+  public void shouldReserveBlockForEachRowOfSequenceStatement() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ItemMapper mapper = sqlSession.getMapper(ItemMapper.class);
+      List<Item> items = Arrays.asList(new Item("a"), new Item("b"), new Item("c"), new Item("d"));
+      mapper.insertItemsFromRows(items);
+      assertEquals(Arrays.asList(1000L, 1001L, 1002L, 1003L), ids(items));
+    }
+  }
+
+  @Test
+  public void shouldHandOutUniqueKeysAcrossThreads() throws Exception {
+    final int threads = 8;
+    final int insertsPerThread = 50;
+    ExecutorService executorService = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        futures.add(executorService.submit(() -> {
+          try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+            ItemMapper mapper = sqlSession.getMapper(ItemMapper.class);
+            for (int i = 0; i < insertsPerThread; i++) {
+              mapper.insertItemFromSequence(new Item("item"));
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executorService.shutdown();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Long> ids = ids(sqlSession.getMapper(ItemMapper.class).selectItems());
+      assertEquals(threads * insertsPerThread, ids.size());
+      assertEquals(ids.size(), new HashSet<>(ids).size());
+    }
+  }
+
+  private static List<Long> ids(List<Item> items) {
+    return items.stream().map(Item::getId).collect(Collectors.toList());
+  }
+
+}
@@ -0,0 +1,51 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.statement_metrics;
+
+import java.util.List;
+
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultType;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.ResultHandler;
+
+public interface Mapper {
+
+  User getUser(Integer id);
+
+  User getUserUncached(Integer id);
+
+  List<User> getUsers();
+
+  int insertUser(User user);
+
+  @Select({
+      "select id, name from users",
+      "where id >= #{minId} and name like #{pattern}",
+      "order by id"})
+  @Options(fetchSize = 50)
+  List<User> findUsers(@Param("minId") int minId, @Param("pattern") String pattern);
+
+  @Select("select id, name from users order by id")
+  @ResultType(User.class)
+  void scanUsers(ResultHandler<User> resultHandler);
+
+  @Select("select id, name from users order by id")
+  Cursor<User> openUsers();
+
+}
@@ -0,0 +1,167 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.statement_metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.statement.SlowStatement;
+import org.apache.ibatis.executor.statement.SlowStatementDetector;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SlowStatementTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/statement_metrics/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/statement_metrics/CreateDB.sql");
+  }
+
+  @Test
+  public void shouldNotReportStatementsUnderThreshold() {
+    RecordingDetector detector = new RecordingDetector(60000);
+    sqlSessionFactory.getConfiguration().setSlowStatementDetector(detector);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(Mapper.class).findUsers(1, "User%")).hasSize(2);
+    }
+    assertThat(detector.reports).isEmpty();
+  }
+
+  @Test
+  public void shouldReportContextOfSlowQuery() {
+    RecordingDetector detector = new RecordingDetector(0);
+    sqlSessionFactory.getConfiguration().setSlowStatementDetector(detector);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(Mapper.class).findUsers(1, "User%")).hasSize(2);
+    }
+    assertThat(detector.reports).hasSize(1);
+    SlowStatement report = detector.reports.get(0);
+    assertThat(report.getId()).isEqualTo(Mapper.class.getName() + ".findUsers");
+    assertThat(report.getSql()).isEqualTo("select id, name from users where id >= ? and name like ? order by id");
+    assertThat(report.getParameterFingerprints()).hasSize(2);
+    assertThat(report.getParameterFingerprints().get(0)).matches("Integer#[0-9a-f]{8}");
+    assertThat(report.getParameterFingerprints().get(1)).matches("String\\(5\\)#[0-9a-f]{8}");
+    assertThat(report.getRows()).isEqualTo(2);
+    assertThat(report.getError()).isNull();
+    assertThat(report.getFetchSize()).isEqualTo(50);
+    assertThat(report.getTotalNanos()).isEqualTo(report.getPrepareNanos() + report.getBindNanos()
+        + report.getExecuteNanos() + report.getFetchNanos() + report.getMapNanos());
+    assertThat(report.getExecuteNanos()).isPositive();
+    assertThat(report.getCaller()).startsWith(SlowStatementTest.class.getName() + ".shouldReportContextOfSlowQuery(");
+    assertThat(report.toString()).startsWith("Slow statement " + Mapper.class.getName() + ".findUsers took ");
+  }
+
+  @Test
+  public void shouldCountRowsPassedToResultHandler() {
+    RecordingDetector detector = new RecordingDetector(0);
+    sqlSessionFactory.getConfiguration().setSlowStatementDetector(detector);
+    List<User> users = new ArrayList<>();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).scanUsers(context -> users.add(context.getResultObject()));
+    }
+    assertThat(users).hasSize(2);
+    assertThat(detector.reports).hasSize(1);
+    assertThat(detector.reports.get(0).getRows()).isEqualTo(2);
+    assertThat(detector.reports.get(0).getParameterFingerprints()).isEmpty();
+    assertThat(detector.reports.get(0).getFetchSize()).isNull();
+  }
+
+  @Test
+  public void shouldReportSlowUpdate() {
+    RecordingDetector detector = new RecordingDetector(0);
+    sqlSessionFactory.getConfiguration().setSlowStatementDetector(detector);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.insert(Mapper.class.getName() + ".insertUser", new User(3, "User3"));
+      sqlSession.rollback(true);
+    }
+    assertThat(detector.reports).hasSize(1);
+    SlowStatement report = detector.reports.get(0);
+    assertThat(report.getRows()).isEqualTo(1);
+    assertThat(report.getParameterFingerprints()).hasSize(2);
+    assertThat(report.getMapNanos()).isZero();
+    assertThat(report.getCaller()).startsWith(SlowStatementTest.class.getName() + ".shouldReportSlowUpdate(");
+  }
+
+  @Test
+  public void shouldFingerprintEqualValuesAlike() {
+    RecordingDetector detector = new RecordingDetector(0);
+    sqlSessionFactory.getConfiguration().setSlowStatementDetector(detector);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.findUsers(1, "User%");
+      sqlSession.clearCache();
+      mapper.findUsers(1, "User%");
+      mapper.findUsers(2, "User%");
+    }
+    assertThat(detector.reports).hasSize(3);
+    List<String> first = detector.reports.get(0).getParameterFingerprints();
+    assertThat(detector.reports.get(1).getParameterFingerprints()).isEqualTo(first);
+    List<String> third = detector.reports.get(2).getParameterFingerprints();
+    assertThat(third.get(0)).isNotEqualTo(first.get(0));
+    assertThat(third.get(1)).isEqualTo(first.get(1));
+  }
+
+  @Test
+  public void shouldReportFailedExecution() {
+    RecordingDetector detector = new RecordingDetector(0);
+    sqlSessionFactory.getConfiguration().setSlowStatementDetector(detector);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      // the name does not fit the column
+      assertThatThrownBy(() -> sqlSession.getMapper(Mapper.class).insertUser(new User(3, "a name longer than the column")))
+          .isInstanceOf(PersistenceException.class);
+    }
+    assertThat(detector.reports).hasSize(1);
+    SlowStatement report = detector.reports.get(0);
+    assertThat(report.getId()).isEqualTo(Mapper.class.getName() + ".insertUser");
+    assertThat(report.getError()).startsWith("java.sql.SQL");
+    assertThat(report.getRows()).isEqualTo(-1);
+    assertThat(report.getParameterFingerprints()).hasSize(2);
+    assertThat(report.getParameterFingerprints().get(1)).startsWith("String(29)#");
+    assertThat(report.getExecuteNanos()).isPositive();
+    assertThat(report.toString()).contains(", failed with: " + report.getError());
+  }
+
+  private static class RecordingDetector extends SlowStatementDetector {
+
+    private final List<SlowStatement> reports = new ArrayList<>();
+
+    RecordingDetector(long thresholdMillis) {
+      super(thresholdMillis);
+    }
+
+    @Override
+    protected void report(SlowStatement slowStatement) {
+      reports.add(slowStatement);
+    }
+  }
+
+}
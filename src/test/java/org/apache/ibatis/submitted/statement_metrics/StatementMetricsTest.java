@@ -0,0 +1,138 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.statement_metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.metrics.DefaultMetricsCollector;
+import org.apache.ibatis.metrics.LatencyHistogram;
+import org.apache.ibatis.metrics.StatementMetrics;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class StatementMetricsTest {
+
+  private static final String NAMESPACE = Mapper.class.getName();
+
+  private SqlSessionFactory sqlSessionFactory;
+  private DefaultMetricsCollector metrics;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/statement_metrics/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/statement_metrics/CreateDB.sql");
+    // start each test from empty metrics
+    metrics = new DefaultMetricsCollector();
+    sqlSessionFactory.getConfiguration().setMetricsCollector(metrics);
+  }
+
+  @Test
+  public void shouldRecordExecutionsRowsAndLocalCacheAccesses() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.getUserUncached(1);
+      mapper.getUserUncached(1);
+      mapper.getUsers();
+    }
+    StatementMetrics getUser = metrics.getStatementMetrics(NAMESPACE + ".getUserUncached");
+    assertThat(getUser.getLatency().getCount()).isEqualTo(1);
+    assertThat(getUser.getLatency().getMax()).isPositive();
+    assertThat(getUser.getRows()).isEqualTo(1);
+    assertThat(getUser.getBytesBound()).isEqualTo(4);
+    assertThat(getUser.getLocalCacheHits()).isEqualTo(1);
+    assertThat(getUser.getLocalCacheMisses()).isEqualTo(1);
+    assertThat(getUser.getLocalCacheHitRatio()).isEqualTo(0.5);
+    assertThat(getUser.getSecondLevelCacheHits() + getUser.getSecondLevelCacheMisses()).isZero();
+
+    StatementMetrics getUsers = metrics.getStatementMetrics(NAMESPACE + ".getUsers");
+    assertThat(getUsers.getRows()).isEqualTo(2);
+    assertThat(getUsers.getBytesBound()).isZero();
+  }
+
+  @Test
+  public void shouldRecordSecondLevelCacheAccesses() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).getUser(1);
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).getUser(1);
+    }
+    StatementMetrics getUser = metrics.getStatementMetrics(NAMESPACE + ".getUser");
+    assertThat(getUser.getSecondLevelCacheHits()).isEqualTo(1);
+    assertThat(getUser.getSecondLevelCacheMisses()).isEqualTo(1);
+    assertThat(getUser.getLatency().getCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldRecordRowsOfUpdatesAndBatches() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).insertUser(new User(3, "User3"));
+      sqlSession.rollback(true);
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertUser(new User(4, "User4"));
+      mapper.insertUser(new User(5, "User5"));
+      sqlSession.flushStatements();
+      sqlSession.rollback(true);
+    }
+    StatementMetrics insertUser = metrics.getStatementMetrics(NAMESPACE + ".insertUser");
+    assertThat(insertUser.getLatency().getCount()).isEqualTo(3);
+    assertThat(insertUser.getRows()).isEqualTo(3);
+    // an int and a five character string per insert
+    assertThat(insertUser.getBytesBound()).isEqualTo(27);
+  }
+
+  @Test
+  public void shouldRecordPoolWaitAndExport() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).getUsers();
+    }
+    assertThat(metrics.getPoolWait().getCount()).isEqualTo(1);
+
+    List<String> exported = new ArrayList<>();
+    metrics.export((Collection<StatementMetrics> statements, LatencyHistogram poolWait) -> {
+      statements.forEach(statement -> exported.add(statement.getId()));
+      exported.add("pool:" + poolWait.getCount());
+    });
+    assertThat(exported).containsExactly(NAMESPACE + ".getUsers", "pool:1");
+  }
+
+  @Test
+  public void shouldStopRecordingWhenCollectorIsRemoved() {
+    sqlSessionFactory.getConfiguration().setMetricsCollector(null);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).getUsers();
+    }
+    assertThat(metrics.getStatementMetrics()).isEmpty();
+    assertThat(metrics.getPoolWait().getCount()).isZero();
+  }
+
+}
@@ -0,0 +1,140 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.statement_metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.statement.StatementProfile;
+import org.apache.ibatis.executor.statement.StatementProfile.Phase;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.metrics.DefaultMetricsCollector;
+import org.apache.ibatis.metrics.PhaseTimings;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class StatementPhaseTimingTest {
+
+  private static final String NAMESPACE = Mapper.class.getName();
+
+  private SqlSessionFactory sqlSessionFactory;
+  private DefaultMetricsCollector metrics;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/statement_metrics/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/statement_metrics/CreateDB.sql");
+    metrics = new DefaultMetricsCollector();
+    sqlSessionFactory.getConfiguration().setMetricsCollector(metrics);
+    sqlSessionFactory.getConfiguration().setStatementPhaseTiming(true);
+  }
+
+  @Test
+  public void shouldAggregateQueryPhasesPerStatement() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertThat(mapper.findUsers(2, "User%")).hasSize(1);
+      assertThat(mapper.findUsers(1, "User%")).hasSize(2);
+    }
+    PhaseTimings timings = metrics.getStatementMetrics(NAMESPACE + ".findUsers").getPhases();
+    assertThat(timings.getExecutions()).isEqualTo(2);
+    assertThat(timings.getNanos(Phase.PREPARE)).isPositive();
+    assertThat(timings.getNanos(Phase.BIND)).isPositive();
+    assertThat(timings.getNanos(Phase.EXECUTE)).isPositive();
+    assertThat(timings.getNanos(Phase.FETCH)).isPositive();
+    assertThat(timings.getNanos(Phase.MAP)).isPositive();
+    assertThat(timings.getTotalNanos()).isEqualTo(timings.getNanos(Phase.PREPARE) + timings.getNanos(Phase.BIND)
+        + timings.getNanos(Phase.EXECUTE) + timings.getNanos(Phase.FETCH) + timings.getNanos(Phase.MAP));
+    assertThat(timings.getMeanNanos(Phase.EXECUTE)).isEqualTo(timings.getNanos(Phase.EXECUTE) / 2);
+    assertThat(metrics.getStatementMetrics(NAMESPACE + ".findUsers").toString()).contains(", phases(ns): executions=2, prepare=");
+  }
+
+  @Test
+  public void shouldNotFetchOrMapUpdates() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(Mapper.class).insertUser(new User(3, "User3"))).isEqualTo(1);
+      sqlSession.rollback(true);
+    }
+    PhaseTimings timings = metrics.getStatementMetrics(NAMESPACE + ".insertUser").getPhases();
+    assertThat(timings.getExecutions()).isEqualTo(1);
+    assertThat(timings.getNanos(Phase.EXECUTE)).isPositive();
+    assertThat(timings.getNanos(Phase.FETCH)).isZero();
+    assertThat(timings.getNanos(Phase.MAP)).isZero();
+  }
+
+  @Test
+  public void shouldNotTimeRowsOfCursor() throws Exception {
+    List<StatementProfile> profiles = new ArrayList<>();
+    sqlSessionFactory.getConfiguration().setMetricsCollector(new DefaultMetricsCollector() {
+      @Override
+      public void recordPhases(MappedStatement ms, StatementProfile profile) {
+        super.recordPhases(ms, profile);
+        profiles.add(profile);
+      }
+    });
+    try (SqlSession sqlSession = sqlSessionFactory.openSession();
+         Cursor<User> cursor = sqlSession.getMapper(Mapper.class).openUsers()) {
+      assertThat(profiles).hasSize(1);
+      long totalNanos = profiles.get(0).getTotalNanos();
+      int rows = 0;
+      for (User user : cursor) {
+        rows++;
+      }
+      assertThat(rows).isEqualTo(2);
+      // the profile was finished when the cursor was returned
+      assertThat(profiles.get(0).getTotalNanos()).isEqualTo(totalNanos);
+      assertThat(profiles.get(0).getNanos(Phase.EXECUTE)).isPositive();
+    }
+  }
+
+  @Test
+  public void shouldDefaultToInMemoryCollectorWhenEnabledWithoutOne() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setMetricsCollector(null);
+    configuration.setStatementPhaseTiming(false);
+    configuration.setStatementPhaseTiming(true);
+    assertThat(configuration.getMetricsCollector()).isInstanceOf(DefaultMetricsCollector.class);
+    assertThat(configuration.getStatementPhaseTimings(NAMESPACE + ".findUsers")).isNull();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(Mapper.class).findUsers(1, "User%")).hasSize(2);
+    }
+    assertThat(configuration.getStatementPhaseTimings(NAMESPACE + ".findUsers").getExecutions()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldNotRecordWhenDisabled() {
+    sqlSessionFactory.getConfiguration().setStatementPhaseTiming(false);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(Mapper.class).findUsers(1, "User%")).hasSize(2);
+    }
+    assertThat(metrics.getStatementMetrics(NAMESPACE + ".findUsers").getPhases().getExecutions()).isZero();
+    assertThat(metrics.getStatementMetrics(NAMESPACE + ".findUsers").toString()).doesNotContain("phases");
+  }
+
+}
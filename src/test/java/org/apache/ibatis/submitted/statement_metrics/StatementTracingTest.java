@@ -0,0 +1,207 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.statement_metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.Reader;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.executor.statement.StatementTracer;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.logging.jdbc.ConnectionLogger;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class StatementTracingTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+  private ConnectionRecorder connectionRecorder;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/statement_metrics/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/statement_metrics/CreateDB.sql");
+    connectionRecorder = new ConnectionRecorder();
+    sqlSessionFactory.getConfiguration().addInterceptor(connectionRecorder);
+  }
+
+  @Test
+  public void shouldTraceQueryWithoutProxyingConnection() {
+    RecordingTracer tracer = new RecordingTracer(1.0);
+    sqlSessionFactory.getConfiguration().setStatementTracer(tracer);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(Mapper.class).findUsers(1, "User%")).hasSize(2);
+    }
+    assertThat(tracer.messages).hasSize(1);
+    assertThat(tracer.messages.get(0))
+        .startsWith("==> select id, name from users where id >= ? and name like ? order by id"
+            + " | Parameters: 1(Integer), User%(String) | Rows: 2 | Time: ")
+        .doesNotContain("Error");
+    assertThat(connectionRecorder.connections).hasSize(1);
+    assertThat(isLogged(connectionRecorder.connections.get(0))).isFalse();
+  }
+
+  @Test
+  public void shouldTraceBatchedStatements() {
+    RecordingTracer tracer = new RecordingTracer(1.0);
+    sqlSessionFactory.getConfiguration().setStatementTracer(tracer);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertUser(new User(3, "User3"));
+      mapper.insertUser(new User(4, null));
+      sqlSession.rollback(true);
+    }
+    assertThat(tracer.messages).hasSize(2);
+    assertThat(tracer.messages.get(0)).contains(" | Parameters: 3(Integer), User3(String) | Rows: - | ");
+    assertThat(tracer.messages.get(1)).contains(" | Parameters: 4(Integer), null | Rows: - | ");
+  }
+
+  @Test
+  public void shouldTraceFailedExecutions() {
+    RecordingTracer tracer = new RecordingTracer(1.0);
+    sqlSessionFactory.getConfiguration().setStatementTracer(tracer);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      // the name does not fit the column
+      assertThatThrownBy(() -> mapper.insertUser(new User(3, "a name longer than the column")))
+          .isInstanceOf(PersistenceException.class);
+      assertThatThrownBy(() -> sqlSession.selectList(Mapper.class.getName() + ".findUsers", "not the parameters"))
+          .isInstanceOf(PersistenceException.class);
+    }
+    assertThat(tracer.messages).hasSize(2);
+    assertThat(tracer.messages.get(0))
+        .startsWith("==> insert into users (id, name) values (?, ?)"
+            + " | Parameters: 3(Integer), a name longer than the column(String) | Rows: - | Time: ")
+        .contains(" | Error: java.sql.SQL");
+    // failed while binding, before it was executed
+    assertThat(tracer.messages.get(1)).contains(" | Parameters:  | Rows: - | ").contains(" | Error: ");
+  }
+
+  @Test
+  public void shouldTraceThroughPluginsOfParameterAndResultSetHandlers() {
+    RecordingTracer tracer = new RecordingTracer(1.0);
+    sqlSessionFactory.getConfiguration().setStatementTracer(tracer);
+    sqlSessionFactory.getConfiguration().addInterceptor(new HandlerPassThrough());
+    List<User> scanned = new ArrayList<>();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertThat(mapper.findUsers(1, "User%")).hasSize(2);
+      mapper.scanUsers(context -> scanned.add(context.getResultObject()));
+    }
+    assertThat(scanned).hasSize(2);
+    assertThat(tracer.messages).hasSize(2);
+    assertThat(tracer.messages.get(0)).contains(" | Parameters: 1(Integer), User%(String) | Rows: 2 | ");
+    // the rows went to the result handler, not to the returned list
+    assertThat(tracer.messages.get(1)).contains(" | Rows: 2 | ");
+  }
+
+  @Test
+  public void shouldNotTraceUnsampledExecutions() {
+    RecordingTracer tracer = new RecordingTracer(0.0);
+    sqlSessionFactory.getConfiguration().setStatementTracer(tracer);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(Mapper.class).findUsers(1, "User%")).hasSize(2);
+    }
+    assertThat(tracer.messages).isEmpty();
+    assertThat(isLogged(connectionRecorder.connections.get(0))).isFalse();
+  }
+
+  @Test
+  public void shouldProxyConnectionsWithoutTracer() {
+    sqlSessionFactory.getConfiguration().setStatementTracer(null);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(Mapper.class).findUsers(1, "User%")).hasSize(2);
+    }
+    // statement logs of this package are debug enabled in the test logging configuration
+    assertThat(isLogged(connectionRecorder.connections.get(0))).isTrue();
+  }
+
+  private static boolean isLogged(Connection connection) {
+    // connections of the pooled data source are proxies too
+    return Proxy.isProxyClass(connection.getClass()) && Proxy.getInvocationHandler(connection) instanceof ConnectionLogger;
+  }
+
+  private static class RecordingTracer extends StatementTracer {
+
+    private final List<String> messages = new ArrayList<>();
+
+    RecordingTracer(double sampleRate) {
+      super(sampleRate);
+    }
+
+    @Override
+    protected void emit(MappedStatement ms, String message) {
+      messages.add(message);
+    }
+  }
+
+  @Intercepts({
+      @Signature(type = ParameterHandler.class, method = "setParameters", args = {PreparedStatement.class}),
+      @Signature(type = ResultSetHandler.class, method = "handleResultSets", args = {Statement.class})})
+  public static class HandlerPassThrough implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      return invocation.proceed();
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+  }
+
+  @Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}))
+  public static class ConnectionRecorder implements Interceptor {
+
+    private final List<Connection> connections = new ArrayList<>();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      connections.add((Connection) invocation.getArgs()[0]);
+      return invocation.proceed();
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+  }
+
+}